@@ -0,0 +1,594 @@
+/*
+ * This code was written by Bear Giles <bgiles@coyotesong.com>and he
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Any contributions made by others are licensed to this project under
+ * one or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ * Copyright (c) 2012 Bear Giles <bgiles@coyotesong.com>
+ */
+package com.invariantproperties.udt;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+
+/**
+ * Implementation of immutable arbitrary-precision rational numbers.
+ * 
+ * Values whose numerator and denominator both fit in a long are kept inline
+ * and use the same long arithmetic as Rational. Values are only promoted to
+ * BigInteger when a result does not fit, and are demoted again as soon as it
+ * does, so every value has exactly one representation.
+ * 
+ * @author bgiles@coyotesong.com
+ */
+public class BigRational extends Number implements Serializable,
+        Comparable<BigRational> {
+    private static final long serialVersionUID = 1L;
+    protected static final int NULL_POSITION = 1; // sort nulls high
+
+    /**
+     * Largest power of ten a parsed decimal may be scaled by, so a short
+     * literal such as "1e999999999" can't expand to an enormous value.
+     */
+    public static final int MAX_SCALE = 100000;
+
+    // inline representation, used when bigNumerator is null.
+    protected long numerator;
+    protected long denominator;
+
+    // promoted representation.
+    protected BigInteger bigNumerator;
+    protected BigInteger bigDenominator;
+
+    /**
+     * Constructor taking only a numerator.
+     * 
+     * @param numerator
+     */
+    public BigRational(long numerator) {
+        this.numerator = numerator;
+        this.denominator = 1;
+    }
+
+    /**
+     * Constructor taking a numerator and denominator.
+     * 
+     * @param numerator
+     * @param denominator
+     */
+    public BigRational(long numerator, long denominator) {
+        if (denominator == 0) {
+            throw new IllegalArgumentException("demominator must be non-zero");
+        }
+
+        // Long.MIN_VALUE can't be negated so it takes the slow path.
+        if ((numerator == Long.MIN_VALUE) || (denominator == Long.MIN_VALUE)) {
+            normalize(BigInteger.valueOf(numerator),
+                    BigInteger.valueOf(denominator));
+            return;
+        }
+
+        if (denominator < 0) {
+            numerator = -numerator;
+            denominator = -denominator;
+        }
+
+        long gcd = Rational.gcd0(Math.abs(numerator), denominator);
+        this.numerator = numerator / gcd;
+        this.denominator = denominator / gcd;
+    }
+
+    /**
+     * Constructor taking a numerator and denominator.
+     * 
+     * @param numerator
+     * @param denominator
+     */
+    public BigRational(BigInteger numerator, BigInteger denominator) {
+        normalize(numerator, denominator);
+    }
+
+    /**
+     * Constructor taking a Rational value.
+     * 
+     * @param value
+     */
+    public BigRational(Rational value) {
+        this.numerator = value.getNumerator();
+        this.denominator = value.getDenominator();
+    }
+
+    /**
+     * Reduce a fraction and set the value, demoting it to the inline
+     * representation if possible.
+     */
+    private void normalize(BigInteger numerator, BigInteger denominator) {
+        if (denominator.signum() == 0) {
+            throw new IllegalArgumentException("demominator must be non-zero");
+        }
+
+        // do a little bit of normalization
+        if (denominator.signum() < 0) {
+            numerator = numerator.negate();
+            denominator = denominator.negate();
+        }
+
+        BigInteger gcd = numerator.gcd(denominator);
+        if (!BigInteger.ONE.equals(gcd)) {
+            numerator = numerator.divide(gcd);
+            denominator = denominator.divide(gcd);
+        }
+
+        if (fitsInLong(numerator) && fitsInLong(denominator)) {
+            this.numerator = numerator.longValue();
+            this.denominator = denominator.longValue();
+        } else {
+            this.bigNumerator = numerator;
+            this.bigDenominator = denominator;
+        }
+    }
+
+    private static boolean fitsInLong(BigInteger value) {
+        return value.bitLength() < 64;
+    }
+
+    /**
+     * Get numerator.
+     * 
+     * @return
+     */
+    public BigInteger getNumerator() {
+        return (bigNumerator == null) ? BigInteger.valueOf(numerator)
+                : bigNumerator;
+    }
+
+    /**
+     * Get denominator.
+     * 
+     * @return
+     */
+    public BigInteger getDenominator() {
+        return (bigDenominator == null) ? BigInteger.valueOf(denominator)
+                : bigDenominator;
+    }
+
+    /**
+     * Get the sign of the value.
+     * 
+     * @return -1, 0 or 1
+     */
+    public int signum() {
+        return (bigNumerator == null) ? Long.signum(numerator) : bigNumerator
+                .signum();
+    }
+
+    /**
+     * Does the value fit in a Rational?
+     * 
+     * @return
+     */
+    public boolean isInline() {
+        return bigNumerator == null;
+    }
+
+    /**
+     * Convert to a Rational.
+     * 
+     * @return
+     * @throws ArithmeticException
+     *             if the value does not fit in a Rational
+     */
+    public Rational toRational() {
+        if (bigNumerator != null) {
+            throw new ArithmeticException("value is too large for rational: "
+                    + this);
+        }
+        return Rational.reduced(numerator, denominator);
+    }
+
+    /**
+     * Inline values hash like the equal Rational. Promoted values mix the
+     * BigInteger hashes the same way.
+     * 
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        if (bigNumerator == null) {
+            return (int) Rational.hash64(0, numerator, denominator);
+        }
+        return (int) Rational.hash64(0, bigNumerator.hashCode(),
+                bigDenominator.hashCode());
+    }
+
+    /**
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(Object right) {
+        if (right == null) {
+            return false;
+        }
+
+        if (this == right) {
+            return true;
+        }
+
+        if (!(right instanceof BigRational)) {
+            return false;
+        }
+
+        BigRational r = (BigRational) right;
+        if ((bigNumerator == null) && (r.bigNumerator == null)) {
+            return (numerator == r.numerator)
+                    && (denominator == r.denominator);
+        }
+        return getNumerator().equals(r.getNumerator())
+                && getDenominator().equals(r.getDenominator());
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        if (bigNumerator == null) {
+            if (denominator == 1) {
+                return String.valueOf(numerator);
+            }
+            return numerator + "/" + denominator;
+        }
+        if (BigInteger.ONE.equals(bigDenominator)) {
+            return bigNumerator.toString();
+        }
+        return bigNumerator + "/" + bigDenominator;
+    }
+
+    /**
+     * Parse a rational number from a string.
+     */
+    public static BigRational parse(String input) {
+        return parse((CharSequence) input);
+    }
+
+    /**
+     * Parse a rational number from a character sequence. This accepts the
+     * same forms as Rational.parse(), an integer, a fraction or an exact
+     * decimal, without limits on the number of digits. The exponent of a
+     * decimal is limited to MAX_SCALE.
+     */
+    public static BigRational parse(CharSequence input) {
+        int len = input.length();
+        int pos = Rational.skipWhitespace(input, 0, len);
+        BigInteger n = BigInteger.ZERO;
+        BigInteger d = BigInteger.ONE;
+        StringBuilder digits = new StringBuilder();
+
+        try {
+            for (int part = 0; part < 2; part++) {
+                char c = (pos < len) ? input.charAt(pos) : 0;
+                boolean negative = (c == '-');
+                if ((c == '-') || (c == '+')) {
+                    pos++;
+                }
+
+                // the decimal point is dropped from the digits and recorded
+                // in the scale.
+                digits.setLength(0);
+                int scale = 0;
+                int start = pos;
+                while ((pos < len) && ((c = input.charAt(pos)) >= '0')
+                        && (c <= '9')) {
+                    pos++;
+                }
+                digits.append(input, start, pos);
+                if ((pos < len) && (input.charAt(pos) == '.')) {
+                    start = ++pos;
+                    while ((pos < len) && ((c = input.charAt(pos)) >= '0')
+                            && (c <= '9')) {
+                        pos++;
+                    }
+                    digits.append(input, start, pos);
+                    scale = pos - start;
+                }
+                if (digits.length() == 0) {
+                    throw new NumberFormatException();
+                }
+                c = (pos < len) ? input.charAt(pos) : 0;
+                if ((c == 'e') || (c == 'E')) {
+                    pos++;
+                    c = (pos < len) ? input.charAt(pos) : 0;
+                    boolean negativeExponent = (c == '-');
+                    if ((c == '-') || (c == '+')) {
+                        pos++;
+                    }
+                    int exponent = 0;
+                    start = pos;
+                    while ((pos < len) && ((c = input.charAt(pos)) >= '0')
+                            && (c <= '9')) {
+                        exponent = Math.addExact(Math.multiplyExact(exponent,
+                                10), c - '0');
+                        pos++;
+                    }
+                    if (pos == start) {
+                        throw new NumberFormatException();
+                    }
+                    scale = Math.subtractExact(scale,
+                            negativeExponent ? -exponent : exponent);
+                }
+
+                BigInteger num = new BigInteger(digits.toString());
+                if (negative) {
+                    num = num.negate();
+                }
+                BigInteger den = BigInteger.ONE;
+                if (num.signum() != 0) {
+                    if (scale > 0) {
+                        den = pow10(scale);
+                    } else if (scale < 0) {
+                        num = num.multiply(pow10(-scale));
+                    }
+                }
+
+                if (part == 0) {
+                    n = num;
+                    d = den;
+                } else {
+                    // (n/d) / (num/den)
+                    n = n.multiply(den);
+                    d = d.multiply(num);
+                }
+
+                pos = Rational.skipWhitespace(input, pos, len);
+                if ((part == 1) || (pos == len) || (input.charAt(pos) != '/')) {
+                    break;
+                }
+                pos = Rational.skipWhitespace(input, pos + 1, len);
+            }
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("value out of range: \""
+                    + input + '"');
+        } catch (NumberFormatException e) {
+            pos = -1;
+        }
+
+        if (pos != len) {
+            throw new IllegalArgumentException(
+                    "Unable to parse rational from string \"" + input + '"');
+        }
+        return new BigRational(n, d);
+    }
+
+    /**
+     * 10^exponent
+     * 
+     * @throws ArithmeticException
+     *             if the exponent is larger than MAX_SCALE
+     */
+    private static BigInteger pow10(int exponent) {
+        if (exponent > MAX_SCALE) {
+            throw new ArithmeticException("exponent out of range");
+        }
+        return BigInteger.TEN.pow(exponent);
+    }
+
+    /**
+     * Compare two BigRational numbers.
+     * 
+     * @param p
+     * @return
+     */
+    @Override
+    public int compareTo(BigRational p) {
+        if (p == null) {
+            return NULL_POSITION;
+        }
+        if ((bigNumerator == null) && (p.bigNumerator == null)) {
+            return Rational.compare(numerator, denominator, p.numerator,
+                    p.denominator);
+        }
+        return getNumerator().multiply(p.getDenominator()).compareTo(
+                p.getNumerator().multiply(getDenominator()));
+    }
+
+    /**
+     * @see {java.lang.Number#doubleValue()}
+     */
+    @Override
+    public double doubleValue() {
+        if (bigNumerator == null) {
+            return ((double) numerator) / ((double) denominator);
+        }
+        return new BigDecimal(bigNumerator).divide(
+                new BigDecimal(bigDenominator), MathContext.DECIMAL64)
+                .doubleValue();
+    }
+
+    /**
+     * @see {java.lang.Number#floatValue()}. Implementation note: we go through
+     *      double first for max. accuracy.
+     */
+    @Override
+    public float floatValue() {
+        return (float) doubleValue();
+    }
+
+    /**
+     * @see {java.lang.Number#intValue()}. Implementation note: the value is
+     *      truncated towards zero.
+     */
+    @Override
+    public int intValue() {
+        return (int) longValue();
+    }
+
+    /**
+     * @see {java.lang.Number#longValue()}. Implementation note: the value is
+     *      truncated towards zero.
+     */
+    @Override
+    public long longValue() {
+        if (bigNumerator == null) {
+            return numerator / denominator;
+        }
+        return bigNumerator.divide(bigDenominator).longValue();
+    }
+
+    /**
+     * Determine the minimum of two BigRational numbers.
+     * 
+     * @param p
+     * @param q
+     * @return
+     */
+    public static BigRational min(BigRational p, BigRational q) {
+        if ((p == null) || (q == null)) {
+            throw new IllegalArgumentException();
+        }
+        return (p.compareTo(q) <= 0) ? p : q;
+    }
+
+    /**
+     * Determine the maximum of two BigRational numbers.
+     * 
+     * @param p
+     * @param q
+     * @return
+     */
+    public static BigRational max(BigRational p, BigRational q) {
+        if ((p == null) || (q == null)) {
+            throw new IllegalArgumentException();
+        }
+        return (p.compareTo(q) > 0) ? p : q;
+    }
+
+    /**
+     * Negate a rational number.
+     * 
+     * @return
+     */
+    public BigRational negate() {
+        if ((bigNumerator == null) && (numerator != Long.MIN_VALUE)) {
+            return new BigRational(Rational.reduced(-numerator, denominator));
+        }
+        return new BigRational(getNumerator().negate(), getDenominator());
+    }
+
+    /**
+     * Add two rational numbers.
+     * 
+     * @param p
+     * @return
+     */
+    public BigRational add(BigRational p) {
+        if (p == null) {
+            throw new IllegalArgumentException();
+        }
+        if ((bigNumerator == null) && (p.bigNumerator == null)) {
+            try {
+                return new BigRational(Rational.add(numerator, denominator,
+                        p.numerator, p.denominator));
+            } catch (ArithmeticException e) {
+                // fall through to BigInteger arithmetic
+            }
+        }
+        BigInteger n = getNumerator().multiply(p.getDenominator()).add(
+                p.getNumerator().multiply(getDenominator()));
+        BigInteger d = getDenominator().multiply(p.getDenominator());
+        return new BigRational(n, d);
+    }
+
+    /**
+     * Subtract two rational numbers.
+     * 
+     * @param p
+     * @return
+     */
+    public BigRational subtract(BigRational p) {
+        if (p == null) {
+            throw new IllegalArgumentException();
+        }
+        if ((bigNumerator == null) && (p.bigNumerator == null)) {
+            try {
+                return new BigRational(Rational.add(numerator, denominator,
+                        Math.negateExact(p.numerator), p.denominator));
+            } catch (ArithmeticException e) {
+                // fall through to BigInteger arithmetic
+            }
+        }
+        BigInteger n = getNumerator().multiply(p.getDenominator()).subtract(
+                p.getNumerator().multiply(getDenominator()));
+        BigInteger d = getDenominator().multiply(p.getDenominator());
+        return new BigRational(n, d);
+    }
+
+    /**
+     * Multiply two rational numbers.
+     * 
+     * @param p
+     * @return
+     */
+    public BigRational multiply(BigRational p) {
+        if (p == null) {
+            throw new IllegalArgumentException();
+        }
+        if ((bigNumerator == null) && (p.bigNumerator == null)) {
+            try {
+                return new BigRational(Rational.multiply(numerator,
+                        denominator, p.numerator, p.denominator));
+            } catch (ArithmeticException e) {
+                // fall through to BigInteger arithmetic
+            }
+        }
+        BigInteger n = getNumerator().multiply(p.getNumerator());
+        BigInteger d = getDenominator().multiply(p.getDenominator());
+        return new BigRational(n, d);
+    }
+
+    /**
+     * Divide two rational numbers.
+     * 
+     * @param p
+     * @return
+     */
+    public BigRational divide(BigRational p) {
+        if (p == null) {
+            throw new IllegalArgumentException();
+        }
+        if ((p.bigNumerator == null) && (p.numerator == 0)) {
+            throw new IllegalArgumentException("attempt to divide by zero");
+        }
+        if ((bigNumerator == null) && (p.bigNumerator == null)) {
+            try {
+                if (p.numerator < 0) {
+                    return new BigRational(Rational.multiply(numerator,
+                            denominator, Math.negateExact(p.denominator),
+                            Math.negateExact(p.numerator)));
+                }
+                return new BigRational(Rational.multiply(numerator,
+                        denominator, p.denominator, p.numerator));
+            } catch (ArithmeticException e) {
+                // fall through to BigInteger arithmetic
+            }
+        }
+        BigInteger n = getNumerator().multiply(p.getDenominator());
+        BigInteger d = getDenominator().multiply(p.getNumerator());
+        return new BigRational(n, d);
+    }
+}
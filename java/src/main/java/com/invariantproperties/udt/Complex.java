@@ -23,17 +23,22 @@
 package com.invariantproperties.udt;
 
 import java.io.Serializable;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Implementation of immutable complex numbers. This class does not extend
  * Number since it cannot be uniquely mapped to the other Number classes.
  * 
+ * Complex numbers have no natural order. compareTo() imposes the
+ * lexicographic order on (re, im) so values can be sorted, indexed and
+ * grouped. Each component is ordered like the SQL float8 type: -0.0 equals
+ * 0.0 and NaN equals itself and is greater than every other value. This
+ * differs from equals(), which follows the Java == operator.
+ * 
  * @author bgiles@coyotesong.com
  */
-public class Complex implements Serializable {
+public class Complex implements Serializable, Comparable<Complex> {
     private static final long serialVersionUID = 1L;
+    protected static final int NULL_POSITION = 1; // sort nulls high
 
     // FIXME: add Formattable.
 
@@ -41,6 +46,10 @@ public class Complex implements Serializable {
     public static final Complex ONE = new Complex(1, 0);
     public static final Complex I = new Complex(0, 1);
 
+    private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4,
+            1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+            1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
     protected double real;
     protected double imaginary;
 
@@ -125,15 +134,78 @@ public class Complex implements Serializable {
      * Get magnitude
      */
     public double getMagnitude() {
-        return Math.sqrt(Math.abs(this.multiply(this.getConjugate()).Re()));
+        return ComplexMath.abs(real, imaginary);
     }
 
     /**
+     * Get argument (phase angle) in the range [-pi, pi].
+     */
+    public double getArgument() {
+        return ComplexMath.arg(real, imaginary);
+    }
+
+    /**
+     * The hash is the low 32 bits of hash64(0).
+     * 
      * @see java.lang.Object#hashCode()
      */
     @Override
     public int hashCode() {
-        return (int) (31 * real + imaginary);
+        return (int) hash64(0);
+    }
+
+    /**
+     * Compute a well-mixed 64-bit hash of the value. Values that compareTo()
+     * considers equal have equal hashes for any seed, i.e., -0.0 hashes like
+     * 0.0 and all NaNs hash alike.
+     * 
+     * @param seed
+     * @return
+     */
+    public long hash64(long seed) {
+        long h = Rational.mix64(seed + bits(real) * 0x9E3779B97F4A7C15L);
+        return Rational.mix64(h ^ bits(imaginary));
+    }
+
+    /**
+     * Canonical bits of a component. doubleToLongBits() already collapses
+     * NaNs.
+     */
+    private static long bits(double x) {
+        return Double.doubleToLongBits((x == 0) ? 0.0 : x);
+    }
+
+    /**
+     * Compare lexicographically on (re, im). See the class comment for the
+     * treatment of -0.0 and NaN.
+     * 
+     * @see java.lang.Comparable#compareTo(java.lang.Object)
+     */
+    public int compareTo(Complex p) {
+        if (p == null) {
+            return NULL_POSITION;
+        }
+        int c = compare(real, p.real);
+        return (c != 0) ? c : compare(imaginary, p.imaginary);
+    }
+
+    /**
+     * Compare two components, with -0.0 equal to 0.0 and NaN greater than
+     * everything else.
+     */
+    static int compare(double x, double y) {
+        if (x < y) {
+            return -1;
+        }
+        if (x > y) {
+            return 1;
+        }
+        if (x == y) {
+            return 0;
+        }
+        boolean xnan = Double.isNaN(x);
+        boolean ynan = Double.isNaN(y);
+        return (xnan == ynan) ? 0 : (xnan ? 1 : -1);
     }
 
     /**
@@ -153,7 +225,8 @@ public class Complex implements Serializable {
         }
 
         Complex r = (Complex) right;
-        return this.subtract(r).getMagnitude() <= epsilon;
+        return ComplexMath.abs(real - r.real, imaginary - r.imaginary)
+                <= epsilon;
     }
 
     /**
@@ -189,36 +262,276 @@ public class Complex implements Serializable {
      */
     @Override
     public String toString() {
-        String value = null;
-        // if (imaginary == 0) {
-        // value = String.valueOf(real);
-        // } else {
-        value = String.format("(%s, %s)", Double.toString(real),
-                Double.toString(imaginary));
-        // }
-        return value;
+        return appendTo(new StringBuilder(56)).toString();
+    }
+
+    /**
+     * Append the string representation of this value, "(re, im)", to a
+     * (possibly reused) StringBuilder. Each component is written as by
+     * Double.toString(), which always parses back to the same double. It is
+     * the shortest such string only on JDK 19 and later.
+     * 
+     * @param sb
+     * @return sb
+     */
+    public StringBuilder appendTo(StringBuilder sb) {
+        return sb.append('(').append(real).append(", ").append(imaginary)
+                .append(')');
     }
 
     /**
      * Parse a complex number from a string.
      */
     public static Complex parse(String input) {
-        Pattern pattern = Pattern
-                .compile("\\((-?[0-9]+(\\.[0-9]+)?)( *, *(-?[0-9]+(\\.[0-9]+)?))?\\)");
-        Matcher matcher = pattern.matcher(input);
-        if (!matcher.matches()) {
-            throw new IllegalArgumentException(
-                    "Unable to parse complex from string \"" + input + '"');
+        return parse((CharSequence) input);
+    }
+
+    /**
+     * Parse a complex number from a character sequence. The accepted forms
+     * are "(re, im)", "(re)" and the algebraic forms "a+bi", "a-bi", "bi",
+     * "i" and "a". Each number may use the full Java floating point literal
+     * syntax, including exponents, hexadecimal, NaN and Infinity, except for
+     * the 'd' and 'f' suffixes.
+     */
+    public static Complex parse(CharSequence input) {
+        int len = input.length();
+        int pos = skipWhitespace(input, 0, len);
+        double re = 0;
+        double im = 0;
+
+        if ((pos < len) && (input.charAt(pos) == '(')) {
+            pos = skipWhitespace(input, pos + 1, len);
+            int end = scanNumber(input, pos, len);
+            if (end < 0) {
+                throw parseException(input);
+            }
+            re = parseNumber(input, pos, end);
+            pos = skipWhitespace(input, end, len);
+            if ((pos < len) && (input.charAt(pos) == ',')) {
+                pos = skipWhitespace(input, pos + 1, len);
+                end = scanNumber(input, pos, len);
+                if (end < 0) {
+                    throw parseException(input);
+                }
+                im = parseNumber(input, pos, end);
+                pos = skipWhitespace(input, end, len);
+            }
+            if ((pos == len) || (input.charAt(pos) != ')')) {
+                throw parseException(input);
+            }
+            pos = skipWhitespace(input, pos + 1, len);
+        } else {
+            int end = scanNumber(input, pos, len);
+            if (end < 0) {
+                // "i", "+i" or "-i"
+                char c = (pos < len) ? input.charAt(pos) : 0;
+                double sign = (c == '-') ? -1 : 1;
+                if ((c == '-') || (c == '+')) {
+                    pos++;
+                }
+                if ((pos == len) || (input.charAt(pos) != 'i')) {
+                    throw parseException(input);
+                }
+                im = sign;
+                pos = skipWhitespace(input, pos + 1, len);
+            } else {
+                double value = parseNumber(input, pos, end);
+                pos = skipWhitespace(input, end, len);
+                if ((pos < len) && (input.charAt(pos) == 'i')) {
+                    // "bi"
+                    im = value;
+                    pos = skipWhitespace(input, pos + 1, len);
+                } else if (pos < len) {
+                    // "a+bi" or "a-bi"
+                    re = value;
+                    char c = input.charAt(pos);
+                    if ((c != '+') && (c != '-')) {
+                        throw parseException(input);
+                    }
+                    double sign = (c == '-') ? -1 : 1;
+                    pos = skipWhitespace(input, pos + 1, len);
+                    end = scanNumber(input, pos, len);
+                    if (end < 0) {
+                        im = sign;
+                    } else {
+                        im = sign * parseNumber(input, pos, end);
+                        pos = skipWhitespace(input, end, len);
+                    }
+                    if ((pos == len) || (input.charAt(pos) != 'i')) {
+                        throw parseException(input);
+                    }
+                    pos = skipWhitespace(input, pos + 1, len);
+                } else {
+                    // "a"
+                    re = value;
+                }
+            }
+        }
+
+        if (pos != len) {
+            throw parseException(input);
+        }
+        return new Complex(re, im);
+    }
+
+    private static IllegalArgumentException parseException(CharSequence input) {
+        return new IllegalArgumentException(
+                "Unable to parse complex from string \"" + input + '"');
+    }
+
+    private static int skipWhitespace(CharSequence input, int pos, int len) {
+        while ((pos < len) && Character.isWhitespace(input.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static boolean regionMatches(CharSequence input, int pos,
+            int len, String s) {
+        if (len - pos < s.length()) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            if (input.charAt(pos + i) != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int scanDigits(CharSequence input, int pos, int len,
+            boolean hex) {
+        while (pos < len) {
+            char c = input.charAt(pos);
+            boolean digit = (c >= '0') && (c <= '9');
+            boolean hexDigit = ((c >= 'a') && (c <= 'f'))
+                    || ((c >= 'A') && (c <= 'F'));
+            if (digit || (hex && hexDigit)) {
+                pos++;
+            } else {
+                break;
+            }
+        }
+        return pos;
+    }
+
+    /**
+     * Find the end of the floating point literal starting at pos.
+     * 
+     * @return the index after the literal, or -1 if there isn't one.
+     */
+    private static int scanNumber(CharSequence input, int pos, int len) {
+        char c = (pos < len) ? input.charAt(pos) : 0;
+        if ((c == '-') || (c == '+')) {
+            pos++;
+        }
+        if (regionMatches(input, pos, len, "NaN")) {
+            return pos + 3;
+        }
+        if (regionMatches(input, pos, len, "Infinity")) {
+            return pos + 8;
         }
 
-        if (matcher.groupCount() == 5) {
-            if (matcher.group(4) == null) {
-                return new Complex(Double.parseDouble(matcher.group(1)));
+        boolean hex = regionMatches(input, pos, len, "0x")
+                || regionMatches(input, pos, len, "0X");
+        if (hex) {
+            pos += 2;
+        }
+        int start = pos;
+        pos = scanDigits(input, pos, len, hex);
+        int digits = pos - start;
+        if ((pos < len) && (input.charAt(pos) == '.')) {
+            start = pos + 1;
+            pos = scanDigits(input, start, len, hex);
+            digits += pos - start;
+        }
+        if (digits == 0) {
+            return -1;
+        }
+
+        // the exponent is required for hexadecimal values.
+        char e = hex ? 'p' : 'e';
+        if ((pos < len) && (Character.toLowerCase(input.charAt(pos)) == e)) {
+            pos++;
+            c = (pos < len) ? input.charAt(pos) : 0;
+            if ((c == '-') || (c == '+')) {
+                pos++;
+            }
+            start = pos;
+            pos = scanDigits(input, pos, len, false);
+            if (pos == start) {
+                return -1;
             }
-            return new Complex(Double.parseDouble(matcher.group(1)),
-                    Double.parseDouble(matcher.group(4)));
+        } else if (hex) {
+            return -1;
         }
-        throw new IllegalArgumentException("invalid format: \"" + input + '"');
+        return pos;
+    }
+
+    /**
+     * Convert a floating point literal previously found by scanNumber(). Short
+     * decimal values are converted exactly without allocating: a mantissa of
+     * at most 15 digits and a power of ten of at most 22 are both exactly
+     * representable, so a single multiplication or division is correctly
+     * rounded. Everything else goes through Double.parseDouble().
+     */
+    private static double parseNumber(CharSequence input, int start, int end) {
+        int pos = start;
+        boolean negative = false;
+        if ((input.charAt(pos) == '-') || (input.charAt(pos) == '+')) {
+            negative = (input.charAt(pos) == '-');
+            pos++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean fraction = false;
+        for (; pos < end; pos++) {
+            char d = input.charAt(pos);
+            if ((d >= '0') && (d <= '9')) {
+                if ((mantissa != 0) || (d != '0')) {
+                    digits++;
+                }
+                mantissa = 10 * mantissa + (d - '0');
+                if (fraction) {
+                    scale--;
+                }
+                if (digits > 15) {
+                    break;
+                }
+            } else if ((d == '.') && !fraction) {
+                fraction = true;
+            } else {
+                break;
+            }
+        }
+
+        char c = (pos < end) ? input.charAt(pos) : 0;
+        if ((c == 'e') || (c == 'E')) {
+            pos++;
+            boolean negativeExponent = false;
+            if ((input.charAt(pos) == '-') || (input.charAt(pos) == '+')) {
+                negativeExponent = (input.charAt(pos) == '-');
+                pos++;
+            }
+            int exponent = 0;
+            for (; (pos < end) && (exponent < 1000); pos++) {
+                exponent = 10 * exponent + (input.charAt(pos) - '0');
+            }
+            scale += negativeExponent ? -exponent : exponent;
+        }
+
+        if ((pos == end) && (scale >= -22) && (scale <= 22)) {
+            double value = (double) mantissa;
+            if (scale < 0) {
+                value /= POWERS_OF_TEN[-scale];
+            } else {
+                value *= POWERS_OF_TEN[scale];
+            }
+            return negative ? -value : value;
+        }
+        return Double.parseDouble(input.subSequence(start, end).toString());
     }
 
     /**
@@ -280,8 +593,7 @@ public class Complex implements Serializable {
         if (p == null) {
             throw new IllegalArgumentException();
         }
-        
-        return this.multiply(p.invert());
+        return ComplexMath.divide(real, imaginary, p.real, p.imaginary);
     }
 
     /**
@@ -291,12 +603,7 @@ public class Complex implements Serializable {
      * @return
      */
     public Complex invert() {
-        double det = real * real + imaginary * imaginary;
-        if (det == 0) {
-            throw new IllegalArgumentException("attempt to divide by zero");
-        }
-
-        return new Complex(real / det, -imaginary / det);
+        return ComplexMath.divide(1, 0, real, imaginary);
     }
 
     /**
@@ -338,4 +645,72 @@ public class Complex implements Serializable {
     public Complex divide(double p) {
         return new Complex(real / p, imaginary / p);
     }
+
+    /**
+     * Exponential, e^this.
+     * 
+     * @return
+     */
+    public Complex exp() {
+        return ComplexMath.exp(real, imaginary);
+    }
+
+    /**
+     * Principal natural logarithm.
+     * 
+     * @return
+     */
+    public Complex log() {
+        return ComplexMath.log(real, imaginary);
+    }
+
+    /**
+     * Principal square root.
+     * 
+     * @return
+     */
+    public Complex sqrt() {
+        return ComplexMath.sqrt(real, imaginary);
+    }
+
+    /**
+     * Principal power, this^p.
+     * 
+     * @param p
+     * @return
+     */
+    public Complex pow(Complex p) {
+        if (p == null) {
+            throw new IllegalArgumentException();
+        }
+        return ComplexMath.pow(real, imaginary, p.real, p.imaginary);
+    }
+
+    /**
+     * Principal power, this^p.
+     * 
+     * @param p
+     * @return
+     */
+    public Complex pow(double p) {
+        return ComplexMath.pow(real, imaginary, p, 0);
+    }
+
+    /**
+     * Sine.
+     * 
+     * @return
+     */
+    public Complex sin() {
+        return ComplexMath.sin(real, imaginary);
+    }
+
+    /**
+     * Cosine.
+     * 
+     * @return
+     */
+    public Complex cos() {
+        return ComplexMath.cos(real, imaginary);
+    }
 }
@@ -0,0 +1,298 @@
+/*
+ * This code was written by Bear Giles <bgiles@coyotesong.com>and he
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Any contributions made by others are licensed to this project under
+ * one or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ * Copyright (c) 2012 Bear Giles <bgiles@coyotesong.com>
+ */
+package com.invariantproperties.udt;
+
+import java.io.Serializable;
+
+/**
+ * Implementation of immutable single-precision complex numbers. This is the
+ * storage-oriented counterpart of Complex for large tables of samples that
+ * only need float precision. Arithmetic is performed in double precision and
+ * the result rounded once to float.
+ * 
+ * @author bgiles@coyotesong.com
+ */
+public class Complex32 implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final Complex32 ZERO = new Complex32(0, 0);
+    public static final Complex32 ONE = new Complex32(1, 0);
+    public static final Complex32 I = new Complex32(0, 1);
+
+    protected float real;
+    protected float imaginary;
+
+    /**
+     * Default constructor. This returns a value equal to ZERO.
+     */
+    public Complex32() {
+        this(0, 0);
+    }
+
+    /**
+     * Constructor taking only a real value.
+     * 
+     * @param real
+     */
+    public Complex32(float real) {
+        this(real, 0);
+    }
+
+    /**
+     * Constructor taking a real and imaginary value.
+     * 
+     * @param real
+     * @param imaginary
+     */
+    public Complex32(float real, float imaginary) {
+        this.real = real;
+        this.imaginary = imaginary;
+    }
+
+    /**
+     * Constructor that rounds a double-precision value.
+     * 
+     * @param p
+     */
+    public Complex32(Complex p) {
+        if (p == null) {
+            throw new IllegalArgumentException();
+        }
+        this.real = (float) p.Re();
+        this.imaginary = (float) p.Im();
+    }
+
+    /**
+     * Get real value.
+     * 
+     * @return
+     */
+    public float getReal() {
+        return real;
+    }
+
+    /**
+     * Get real value (shorter alias)
+     */
+    public float Re() {
+        return getReal();
+    }
+
+    /**
+     * Get imaginary value.
+     * 
+     * @return
+     */
+    public float getImaginary() {
+        return imaginary;
+    }
+
+    /**
+     * Get imaginary value (shorter alias)
+     */
+    public float Im() {
+        return getImaginary();
+    }
+
+    /**
+     * Widen to a double-precision value. This is exact.
+     * 
+     * @return
+     */
+    public Complex toComplex() {
+        return new Complex(real, imaginary);
+    }
+
+    /**
+     * Get complex conjugate.
+     */
+    public Complex32 getConjugate() {
+        return new Complex32(real, -imaginary);
+    }
+
+    /**
+     * Get magnitude. The squares are computed in double precision so they
+     * can't overflow.
+     */
+    public double getMagnitude() {
+        double re = real;
+        double im = imaginary;
+        return Math.sqrt(re * re + im * im);
+    }
+
+    /**
+     * The hash is mixed like Complex.hash64(0) on the widened components, so
+     * -0.0f hashes like 0.0f and a value hashes like its exact Complex.
+     * 
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        long h = Rational.mix64(bits(real) * 0x9E3779B97F4A7C15L);
+        return (int) Rational.mix64(h ^ bits(imaginary));
+    }
+
+    /**
+     * Canonical bits of a component. See Complex.bits().
+     */
+    private static long bits(float x) {
+        return Double.doubleToLongBits((x == 0) ? 0.0 : x);
+    }
+
+    /**
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(Object right) {
+        if (right == null) {
+            return false;
+        }
+
+        if (this == right) {
+            return true;
+        }
+
+        if (!(right instanceof Complex32)) {
+            return false;
+        }
+
+        Complex32 r = (Complex32) right;
+        return (real == r.real) && (imaginary == r.imaginary);
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return appendTo(new StringBuilder(36)).toString();
+    }
+
+    /**
+     * Append the string representation of this value, "(re, im)", to a
+     * (possibly reused) StringBuilder. Each component is written with
+     * Float.toString() so it parses back to the same float.
+     * 
+     * @param sb
+     * @return sb
+     */
+    public StringBuilder appendTo(StringBuilder sb) {
+        return sb.append('(').append(real).append(", ").append(imaginary)
+                .append(')');
+    }
+
+    /**
+     * Parse a complex number from a string. This accepts the same forms as
+     * Complex.parse() and rounds the components to float.
+     */
+    public static Complex32 parse(CharSequence input) {
+        return new Complex32(Complex.parse(input));
+    }
+
+    /**
+     * Negate a complex number.
+     * 
+     * @return
+     */
+    public Complex32 negate() {
+        return new Complex32(-real, -imaginary);
+    }
+
+    /**
+     * Add two complex numbers.
+     * 
+     * @param p
+     * @return
+     */
+    public Complex32 add(Complex32 p) {
+        if (p == null) {
+            throw new IllegalArgumentException();
+        }
+        return new Complex32((float) ((double) real + p.real),
+                (float) ((double) imaginary + p.imaginary));
+    }
+
+    /**
+     * Subtract two complex numbers.
+     * 
+     * @param p
+     * @return
+     */
+    public Complex32 subtract(Complex32 p) {
+        if (p == null) {
+            throw new IllegalArgumentException();
+        }
+        return new Complex32((float) ((double) real - p.real),
+                (float) ((double) imaginary - p.imaginary));
+    }
+
+    /**
+     * Multiply two complex numbers. The products are exact in double
+     * precision.
+     * 
+     * @param p
+     * @return
+     */
+    public Complex32 multiply(Complex32 p) {
+        if (p == null) {
+            throw new IllegalArgumentException();
+        }
+        double a = real;
+        double b = imaginary;
+        double c = p.real;
+        double d = p.imaginary;
+        return new Complex32((float) (a * c - b * d), (float) (a * d + b * c));
+    }
+
+    /**
+     * Divide two complex numbers.
+     * 
+     * @param p
+     * @return
+     */
+    public Complex32 divide(Complex32 p) {
+        if (p == null) {
+            throw new IllegalArgumentException();
+        }
+        double c = p.real;
+        double d = p.imaginary;
+        double det = c * c + d * d;
+        if (det == 0) {
+            throw new IllegalArgumentException("attempt to divide by zero");
+        }
+        double a = real;
+        double b = imaginary;
+        return new Complex32((float) ((a * c + b * d) / det),
+                (float) ((b * c - a * d) / det));
+    }
+
+    /**
+     * Multiply a complex number and a scalar.
+     * 
+     * @param p
+     * @return
+     */
+    public Complex32 multiply(double p) {
+        return new Complex32((float) (real * p), (float) (imaginary * p));
+    }
+}
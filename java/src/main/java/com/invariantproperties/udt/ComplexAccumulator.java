@@ -0,0 +1,251 @@
+/*
+ * This code was written by Bear Giles <bgiles@coyotesong.com>and he
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Any contributions made by others are licensed to this project under
+ * one or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ * Copyright (c) 2012 Bear Giles <bgiles@coyotesong.com>
+ */
+package com.invariantproperties.udt;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+
+/**
+ * Mutable accumulator for sums of complex numbers.
+ * 
+ * The real and imaginary parts are summed separately using Neumaier's
+ * variant of Kahan summation. Each part carries a compensation term that
+ * holds the low-order bits lost by the floating-point additions, so the
+ * error is independent of the number of values and values can be removed
+ * again without the cancellation error that a naive running sum suffers.
+ * 
+ * This class is not thread-safe.
+ * 
+ * @author bgiles@coyotesong.com
+ */
+public class ComplexAccumulator implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final int LENGTH = 40;
+
+    private long count;
+    private double re;
+    private double reCompensation;
+    private double im;
+    private double imCompensation;
+
+    /**
+     * Default constructor. The initial sum is zero.
+     */
+    public ComplexAccumulator() {
+    }
+
+    /**
+     * Get the number of values added.
+     * 
+     * @return
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Is the running sum finite? A value can't be removed once the sum has
+     * overflowed or become NaN.
+     * 
+     * @return
+     */
+    public boolean isFinite() {
+        return Double.isFinite(re) && Double.isFinite(im);
+    }
+
+    /**
+     * Reset the accumulator to zero.
+     */
+    public void clear() {
+        count = 0;
+        re = 0;
+        reCompensation = 0;
+        im = 0;
+        imCompensation = 0;
+    }
+
+    /**
+     * Add a value.
+     * 
+     * @param p
+     */
+    public void add(Complex p) {
+        if (p == null) {
+            throw new IllegalArgumentException();
+        }
+        add(p.getReal(), p.getImaginary());
+    }
+
+    /**
+     * Add a value.
+     * 
+     * @param real
+     * @param imaginary
+     */
+    public void add(double real, double imaginary) {
+        accumulate(real, imaginary);
+        count++;
+    }
+
+    /**
+     * Remove a value that was previously added. This is the inverse of
+     * add(Complex).
+     * 
+     * @param p
+     */
+    public void remove(Complex p) {
+        if (p == null) {
+            throw new IllegalArgumentException();
+        }
+        remove(p.getReal(), p.getImaginary());
+    }
+
+    /**
+     * Remove a value that was previously added. This is the inverse of
+     * add(double, double).
+     * 
+     * @param real
+     * @param imaginary
+     */
+    public void remove(double real, double imaginary) {
+        if (count == 0) {
+            throw new IllegalArgumentException("accumulator is empty");
+        }
+        if (!isFinite() || !Double.isFinite(real)
+                || !Double.isFinite(imaginary)) {
+            throw new IllegalArgumentException(
+                    "can't remove a value from a non-finite sum");
+        }
+        count--;
+        if (count == 0) {
+            clear();
+        } else {
+            accumulate(-real, -imaginary);
+        }
+    }
+
+    /**
+     * Merge the contents of another accumulator into this one.
+     * 
+     * @param other
+     */
+    public void add(ComplexAccumulator other) {
+        if (other == null) {
+            throw new IllegalArgumentException();
+        }
+        accumulate(other.re, other.im);
+        accumulate(other.reCompensation, other.imCompensation);
+        count += other.count;
+    }
+
+    /**
+     * Get the compensated sum.
+     * 
+     * @return
+     */
+    public Complex getSum() {
+        return new Complex(sum(re, reCompensation), sum(im, imCompensation));
+    }
+
+    /**
+     * Get the mean.
+     * 
+     * @return the mean, or null if no values have been added
+     */
+    public Complex getMean() {
+        if (count == 0) {
+            return null;
+        }
+        return new Complex(sum(re, reCompensation) / count, sum(im,
+                imCompensation) / count);
+    }
+
+    /**
+     * Encode the state as the count followed by the real sum and
+     * compensation and the imaginary sum and compensation (40 bytes).
+     * 
+     * @return
+     */
+    public byte[] toByteArray() {
+        return ByteBuffer.allocate(LENGTH).putLong(count).putDouble(re)
+                .putDouble(reCompensation).putDouble(im)
+                .putDouble(imCompensation).array();
+    }
+
+    /**
+     * Decode state written by toByteArray().
+     * 
+     * @param bytes
+     * @return
+     */
+    public static ComplexAccumulator fromByteArray(byte[] bytes) {
+        if (bytes == null) {
+            throw new IllegalArgumentException();
+        }
+        if (bytes.length != LENGTH) {
+            throw new IllegalArgumentException(
+                    "malformed complex accumulator");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        ComplexAccumulator acc = new ComplexAccumulator();
+        acc.count = buffer.getLong();
+        acc.re = buffer.getDouble();
+        acc.reCompensation = buffer.getDouble();
+        acc.im = buffer.getDouble();
+        acc.imCompensation = buffer.getDouble();
+        if (acc.count < 0) {
+            throw new IllegalArgumentException(
+                    "malformed complex accumulator");
+        }
+        return acc;
+    }
+
+    /**
+     * Add x + iy to the running sum.
+     */
+    private void accumulate(double x, double y) {
+        double t = re + x;
+        if (Math.abs(re) >= Math.abs(x)) {
+            reCompensation += (re - t) + x;
+        } else {
+            reCompensation += (x - t) + re;
+        }
+        re = t;
+
+        t = im + y;
+        if (Math.abs(im) >= Math.abs(y)) {
+            imCompensation += (im - t) + y;
+        } else {
+            imCompensation += (y - t) + im;
+        }
+        im = t;
+    }
+
+    /**
+     * Apply the compensation. It is meaningless, and usually NaN, once the
+     * sum itself is infinite or NaN.
+     */
+    private static double sum(double s, double c) {
+        return Double.isFinite(s) ? s + c : s;
+    }
+}
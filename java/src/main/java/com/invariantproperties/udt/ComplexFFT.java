@@ -0,0 +1,327 @@
+/*
+ * This code was written by Bear Giles <bgiles@coyotesong.com>and he
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Any contributions made by others are licensed to this project under
+ * one or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ * Copyright (c) 2012 Bear Giles <bgiles@coyotesong.com>
+ */
+package com.invariantproperties.udt;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fast Fourier transforms of complex vectors.
+ * 
+ * Power-of-two sizes use an iterative radix-2 Cooley-Tukey transform. Other
+ * sizes use Bluestein's algorithm, which rewrites the transform as a
+ * convolution with a chirp and evaluates it with a radix-2 transform of at
+ * least twice the size. The twiddle factors for each power-of-two size and
+ * the chirp for the most recently used other sizes are cached.
+ * 
+ * The forward transform is X[k] = sum(x[j] * exp(-2 pi i jk / n)). The
+ * inverse transform is scaled by 1/n so ifft(fft(x)) == x.
+ * 
+ * @author bgiles@coyotesong.com
+ */
+public final class ComplexFFT {
+    private static final int MAX_CHIRPS = 16;
+
+    // twiddle factors indexed by log2(n): { cos(2 pi k/n), -sin(2 pi k/n) }
+    private static final AtomicReferenceArray<double[][]> TWIDDLES =
+            new AtomicReferenceArray<double[][]>(31);
+
+    private static final Map<Integer, Chirp> CHIRPS =
+            new LinkedHashMap<Integer, Chirp>(MAX_CHIRPS, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Chirp> eldest) {
+            return size() > MAX_CHIRPS;
+        }
+    };
+
+    /**
+     * Bluestein chirp for a size n: w[k] = exp(-pi i k^2 / n) and the
+     * transform of the convolution kernel conj(w), padded to a power of two.
+     */
+    private static final class Chirp {
+        final double[] wRe;
+        final double[] wIm;
+        final double[] bRe;
+        final double[] bIm;
+
+        Chirp(int n) {
+            wRe = new double[n];
+            wIm = new double[n];
+            int m = 1;
+            while (m < 2 * n - 1) {
+                m <<= 1;
+            }
+            bRe = new double[m];
+            bIm = new double[m];
+            long n2 = 2L * n;
+            for (int k = 0; k < n; k++) {
+                // reduce k^2 modulo 2n before scaling to keep the angle exact
+                double theta = Math.PI * ((long) k * k % n2) / n;
+                wRe[k] = Math.cos(theta);
+                wIm[k] = -Math.sin(theta);
+                bRe[k] = wRe[k];
+                bIm[k] = -wIm[k];
+                if (k > 0) {
+                    bRe[m - k] = bRe[k];
+                    bIm[m - k] = bIm[k];
+                }
+            }
+            radix2(bRe, bIm);
+        }
+    }
+
+    private ComplexFFT() {
+    }
+
+    /**
+     * Forward transform.
+     * 
+     * @param x
+     * @return
+     */
+    public static ComplexVector fft(ComplexVector x) {
+        ComplexVector r = new ComplexVector(x);
+        transform(r.re, r.im);
+        return r;
+    }
+
+    /**
+     * Inverse transform, scaled by 1/n.
+     * 
+     * @param x
+     * @return
+     */
+    public static ComplexVector ifft(ComplexVector x) {
+        ComplexVector r = new ComplexVector(x);
+        inverse(r.re, r.im);
+        return r;
+    }
+
+    /**
+     * Linear convolution. The result has x.size() + y.size() - 1 elements,
+     * or none if either vector is empty.
+     * 
+     * @param x
+     * @param y
+     * @return
+     */
+    public static ComplexVector convolve(ComplexVector x, ComplexVector y) {
+        int nx = x.size();
+        int ny = y.size();
+        if ((nx == 0) || (ny == 0)) {
+            return new ComplexVector(0);
+        }
+        int len = nx + ny - 1;
+        int m = 1;
+        while (m < len) {
+            m <<= 1;
+        }
+        double[] xr = new double[m];
+        double[] xi = new double[m];
+        double[] yr = new double[m];
+        double[] yi = new double[m];
+        System.arraycopy(x.re, 0, xr, 0, nx);
+        System.arraycopy(x.im, 0, xi, 0, nx);
+        System.arraycopy(y.re, 0, yr, 0, ny);
+        System.arraycopy(y.im, 0, yi, 0, ny);
+        radix2(xr, xi);
+        radix2(yr, yi);
+        for (int k = 0; k < m; k++) {
+            double a = xr[k];
+            double b = xi[k];
+            xr[k] = a * yr[k] - b * yi[k];
+            xi[k] = a * yi[k] + b * yr[k];
+        }
+        inverse(xr, xi);
+        ComplexVector r = new ComplexVector(len);
+        System.arraycopy(xr, 0, r.re, 0, len);
+        System.arraycopy(xi, 0, r.im, 0, len);
+        return r;
+    }
+
+    /**
+     * Cross-correlation, r[lag] = sum(x[j + lag] * conj(y[j])). The result
+     * has x.size() + y.size() - 1 elements for the lags -(y.size() - 1)
+     * through x.size() - 1, in that order.
+     * 
+     * @param x
+     * @param y
+     * @return
+     */
+    public static ComplexVector xcorr(ComplexVector x, ComplexVector y) {
+        int ny = y.size();
+        ComplexVector reversed = new ComplexVector(ny);
+        for (int j = 0; j < ny; j++) {
+            reversed.re[ny - 1 - j] = y.re[j];
+            reversed.im[ny - 1 - j] = -y.im[j];
+        }
+        return convolve(x, reversed);
+    }
+
+    /**
+     * Forward transform in place, any size.
+     */
+    static void transform(double[] re, double[] im) {
+        int n = re.length;
+        if (n <= 1) {
+            return;
+        }
+        if ((n & (n - 1)) == 0) {
+            radix2(re, im);
+        } else {
+            bluestein(re, im);
+        }
+    }
+
+    /**
+     * Inverse transform in place, any size, using ifft(x) = conj(fft(conj(x)))
+     * / n.
+     */
+    static void inverse(double[] re, double[] im) {
+        int n = re.length;
+        if (n == 0) {
+            return;
+        }
+        for (int i = 0; i < n; i++) {
+            im[i] = -im[i];
+        }
+        transform(re, im);
+        double scale = 1.0 / n;
+        for (int i = 0; i < n; i++) {
+            re[i] *= scale;
+            im[i] *= -scale;
+        }
+    }
+
+    /**
+     * Iterative radix-2 transform in place. The length must be a power of two.
+     */
+    static void radix2(double[] re, double[] im) {
+        int n = re.length;
+        if (n <= 1) {
+            return;
+        }
+        int shift = 32 - Integer.numberOfTrailingZeros(n);
+        for (int i = 0; i < n; i++) {
+            int j = Integer.reverse(i) >>> shift;
+            if (j > i) {
+                double t = re[i];
+                re[i] = re[j];
+                re[j] = t;
+                t = im[i];
+                im[i] = im[j];
+                im[j] = t;
+            }
+        }
+
+        double[][] twiddles = twiddles(n);
+        double[] cos = twiddles[0];
+        double[] sin = twiddles[1];
+        for (int len = 2; len <= n; len <<= 1) {
+            int half = len >>> 1;
+            int stride = n / len;
+            for (int i = 0; i < n; i += len) {
+                for (int k = 0, t = 0; k < half; k++, t += stride) {
+                    int a = i + k;
+                    int b = a + half;
+                    double wr = cos[t];
+                    double wi = sin[t];
+                    double xr = re[b] * wr - im[b] * wi;
+                    double xi = re[b] * wi + im[b] * wr;
+                    re[b] = re[a] - xr;
+                    im[b] = im[a] - xi;
+                    re[a] += xr;
+                    im[a] += xi;
+                }
+            }
+        }
+    }
+
+    /**
+     * Bluestein transform in place for sizes that are not a power of two.
+     */
+    private static void bluestein(double[] re, double[] im) {
+        int n = re.length;
+        Chirp chirp = chirp(n);
+        int m = chirp.bRe.length;
+        double[] ar = new double[m];
+        double[] ai = new double[m];
+        for (int k = 0; k < n; k++) {
+            ar[k] = re[k] * chirp.wRe[k] - im[k] * chirp.wIm[k];
+            ai[k] = re[k] * chirp.wIm[k] + im[k] * chirp.wRe[k];
+        }
+        radix2(ar, ai);
+        for (int k = 0; k < m; k++) {
+            double a = ar[k];
+            double b = ai[k];
+            ar[k] = a * chirp.bRe[k] - b * chirp.bIm[k];
+            ai[k] = a * chirp.bIm[k] + b * chirp.bRe[k];
+        }
+        inverse(ar, ai);
+        for (int k = 0; k < n; k++) {
+            re[k] = ar[k] * chirp.wRe[k] - ai[k] * chirp.wIm[k];
+            im[k] = ar[k] * chirp.wIm[k] + ai[k] * chirp.wRe[k];
+        }
+    }
+
+    /**
+     * Get the cached twiddle factors for a power-of-two size. A race may
+     * compute the table twice but both copies are identical.
+     */
+    private static double[][] twiddles(int n) {
+        int log2 = Integer.numberOfTrailingZeros(n);
+        double[][] twiddles = TWIDDLES.get(log2);
+        if (twiddles == null) {
+            int half = n >>> 1;
+            twiddles = new double[][] { new double[half], new double[half] };
+            for (int k = 0; k < half; k++) {
+                double theta = 2 * Math.PI * k / n;
+                twiddles[0][k] = Math.cos(theta);
+                twiddles[1][k] = -Math.sin(theta);
+            }
+            TWIDDLES.set(log2, twiddles);
+        }
+        return twiddles;
+    }
+
+    /**
+     * Get the cached chirp for a size that is not a power of two.
+     */
+    private static Chirp chirp(int n) {
+        Integer key = Integer.valueOf(n);
+        synchronized (CHIRPS) {
+            Chirp chirp = CHIRPS.get(key);
+            if (chirp != null) {
+                return chirp;
+            }
+        }
+        Chirp chirp = new Chirp(n);
+        synchronized (CHIRPS) {
+            CHIRPS.put(key, chirp);
+        }
+        return chirp;
+    }
+}
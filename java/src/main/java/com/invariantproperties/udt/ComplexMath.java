@@ -0,0 +1,223 @@
+/*
+ * This code was written by Bear Giles <bgiles@coyotesong.com>and he
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Any contributions made by others are licensed to this project under
+ * one or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ * Copyright (c) 2012 Bear Giles <bgiles@coyotesong.com>
+ */
+package com.invariantproperties.udt;
+
+/**
+ * Elementary functions of complex numbers given as their real and imaginary
+ * parts. Intermediate values are kept in primitive doubles so each function
+ * allocates only the Complex it returns.
+ * 
+ * Division uses Smith's algorithm and the magnitude falls back to hypot() so
+ * neither overflows or underflows for components whose result is
+ * representable.
+ * 
+ * @author bgiles@coyotesong.com
+ */
+public final class ComplexMath {
+
+    // sqrt() halves the exponent after scaling by 1/4 beyond this limit.
+    private static final double SQRT_LIMIT = Double.MAX_VALUE / 4;
+
+    // x^2 + y^2 can't overflow, or lose y to underflow when it matters, if
+    // the larger component is in this range.
+    private static final double HYPOT_MIN = 0x1p-500;
+    private static final double HYPOT_MAX = 0x1p500;
+
+    private ComplexMath() {
+    }
+
+    /**
+     * Magnitude, |z|. This is sqrt(re^2 + im^2) when that can't overflow or
+     * underflow and Math.hypot() otherwise, since hypot() is several times
+     * slower.
+     * 
+     * @param re
+     * @param im
+     * @return
+     */
+    public static double abs(double re, double im) {
+        double x = Math.abs(re);
+        double y = Math.abs(im);
+        double max = Math.max(x, y);
+        if ((max > HYPOT_MIN) && (max < HYPOT_MAX)) {
+            return Math.sqrt(x * x + y * y);
+        }
+        return Math.hypot(re, im);
+    }
+
+    /**
+     * Argument (phase angle) in the range [-pi, pi].
+     * 
+     * @param re
+     * @param im
+     * @return
+     */
+    public static double arg(double re, double im) {
+        return Math.atan2(im, re);
+    }
+
+    /**
+     * Quotient (a + bi) / (c + di) by Smith's algorithm, which divides by the
+     * larger component of the divisor first instead of forming c^2 + d^2.
+     * 
+     * @param a
+     * @param b
+     * @param c
+     * @param d
+     * @return
+     */
+    public static Complex divide(double a, double b, double c, double d) {
+        if ((c == 0) && (d == 0)) {
+            throw new IllegalArgumentException("attempt to divide by zero");
+        }
+        if (Math.abs(c) >= Math.abs(d)) {
+            double r = d / c;
+            double den = c + d * r;
+            return new Complex((a + b * r) / den, (b - a * r) / den);
+        }
+        double r = c / d;
+        double den = c * r + d;
+        return new Complex((a * r + b) / den, (b * r - a) / den);
+    }
+
+    /**
+     * Exponential, e^z.
+     * 
+     * @param re
+     * @param im
+     * @return
+     */
+    public static Complex exp(double re, double im) {
+        double e = Math.exp(re);
+        if (im == 0) {
+            // avoid infinity * 0
+            return new Complex(e, im);
+        }
+        return new Complex(e * Math.cos(im), e * Math.sin(im));
+    }
+
+    /**
+     * Principal natural logarithm, ln|z| + i arg(z).
+     * 
+     * @param re
+     * @param im
+     * @return
+     */
+    public static Complex log(double re, double im) {
+        return new Complex(logAbs(re, im), Math.atan2(im, re));
+    }
+
+    /**
+     * Principal square root. The result has a non-negative real part.
+     * 
+     * @param re
+     * @param im
+     * @return
+     */
+    public static Complex sqrt(double re, double im) {
+        if ((re == 0) && (im == 0)) {
+            return new Complex(0, im);
+        }
+        double scale = 1;
+        if ((Math.abs(re) > SQRT_LIMIT) || (Math.abs(im) > SQRT_LIMIT)) {
+            // sqrt(z) = 2 sqrt(z / 4)
+            re *= 0.25;
+            im *= 0.25;
+            scale = 2;
+        }
+        double t = Math.sqrt((Math.abs(re) + abs(re, im)) / 2);
+        if (re >= 0) {
+            return new Complex(scale * t, scale * (im / (2 * t)));
+        }
+        return new Complex(scale * (Math.abs(im) / (2 * t)), scale
+                * Math.copySign(t, im));
+    }
+
+    /**
+     * Principal power, z^w = e^(w ln z). 0^0 is 1 and 0^w is 0 when w has a
+     * positive real part.
+     * 
+     * @param re
+     * @param im
+     * @param wre
+     * @param wim
+     * @return
+     */
+    public static Complex pow(double re, double im, double wre, double wim) {
+        if ((wre == 0) && (wim == 0)) {
+            return new Complex(1, 0);
+        }
+        if ((re == 0) && (im == 0)) {
+            if (wre > 0) {
+                return new Complex(0, 0);
+            }
+            throw new IllegalArgumentException(
+                    "zero raised to a power with non-positive real part");
+        }
+        double lr = logAbs(re, im);
+        double li = Math.atan2(im, re);
+        return exp(wre * lr - wim * li, wre * li + wim * lr);
+    }
+
+    /**
+     * Sine, sin(a) cosh(b) + i cos(a) sinh(b).
+     * 
+     * @param re
+     * @param im
+     * @return
+     */
+    public static Complex sin(double re, double im) {
+        return new Complex(Math.sin(re) * Math.cosh(im), Math.cos(re)
+                * Math.sinh(im));
+    }
+
+    /**
+     * Cosine, cos(a) cosh(b) - i sin(a) sinh(b).
+     * 
+     * @param re
+     * @param im
+     * @return
+     */
+    public static Complex cos(double re, double im) {
+        return new Complex(Math.cos(re) * Math.cosh(im), -Math.sin(re)
+                * Math.sinh(im));
+    }
+
+    /**
+     * ln|z|. Near the unit circle this is computed as log1p(|z|^2 - 1) / 2
+     * with |z|^2 - 1 factored to avoid cancellation.
+     */
+    static double logAbs(double re, double im) {
+        double x = Math.abs(re);
+        double y = Math.abs(im);
+        if (x < y) {
+            double t = x;
+            x = y;
+            y = t;
+        }
+        if ((x >= 0.5) && (x <= 2)) {
+            return 0.5 * Math.log1p((x - 1) * (x + 1) + y * y);
+        }
+        return Math.log(abs(x, y));
+    }
+}
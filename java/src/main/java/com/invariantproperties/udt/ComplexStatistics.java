@@ -0,0 +1,284 @@
+/*
+ * This code was written by Bear Giles <bgiles@coyotesong.com>and he
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Any contributions made by others are licensed to this project under
+ * one or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ * Copyright (c) 2012 Bear Giles <bgiles@coyotesong.com>
+ */
+package com.invariantproperties.udt;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+
+/**
+ * Mutable accumulator for the mean, variance and covariance of complex
+ * numbers.
+ * 
+ * This is Welford's one-pass algorithm. The sums of x and y and the
+ * co-moment sum((x - mean(x)) * conj(y - mean(y))) are each kept with a
+ * Neumaier compensation term, so the error does not grow with the number of
+ * values. Accumulators are merged with Chan's pairwise update. The variance
+ * of x is the real co-moment of x with itself, E|x - mean(x)|^2.
+ * 
+ * This class is not thread-safe.
+ * 
+ * @author bgiles@coyotesong.com
+ */
+public class ComplexStatistics implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    // offsets into the state. Each sum is followed by its compensation.
+    private static final int X_RE = 0;
+    private static final int X_IM = 2;
+    private static final int Y_RE = 4;
+    private static final int Y_IM = 6;
+    private static final int C_RE = 8;
+    private static final int C_IM = 10;
+    private static final int SIZE = 12;
+    private static final int LENGTH = 8 + 8 * SIZE;
+
+    private long count;
+    private final double[] state = new double[SIZE];
+
+    /**
+     * Default constructor.
+     */
+    public ComplexStatistics() {
+    }
+
+    /**
+     * Get the number of values added.
+     * 
+     * @return
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Add a value. Only the mean and variance are meaningful if values are
+     * added this way.
+     * 
+     * @param x
+     */
+    public void add(Complex x) {
+        if (x == null) {
+            throw new IllegalArgumentException();
+        }
+        add(x.getReal(), x.getImaginary(), x.getReal(), x.getImaginary());
+    }
+
+    /**
+     * Add a pair of values.
+     * 
+     * @param x
+     * @param y
+     */
+    public void add(Complex x, Complex y) {
+        if ((x == null) || (y == null)) {
+            throw new IllegalArgumentException();
+        }
+        add(x.getReal(), x.getImaginary(), y.getReal(), y.getImaginary());
+    }
+
+    /**
+     * Add the pair of values (xr + i xi, yr + i yi).
+     */
+    private void add(double xr, double xi, double yr, double yi) {
+        // x - mean(x) before the update
+        double dxr = xr;
+        double dxi = xi;
+        if (count > 0) {
+            dxr -= value(X_RE) / count;
+            dxi -= value(X_IM) / count;
+        }
+        count++;
+        accumulate(X_RE, xr);
+        accumulate(X_IM, xi);
+        accumulate(Y_RE, yr);
+        accumulate(Y_IM, yi);
+
+        // y - mean(y) after the update
+        double dyr = yr - value(Y_RE) / count;
+        double dyi = yi - value(Y_IM) / count;
+
+        // (x - old mean) * conj(y - new mean)
+        accumulate(C_RE, dxr * dyr + dxi * dyi);
+        accumulate(C_IM, dxi * dyr - dxr * dyi);
+    }
+
+    /**
+     * Merge the contents of another accumulator into this one.
+     * 
+     * @param other
+     */
+    public void add(ComplexStatistics other) {
+        if (other == null) {
+            throw new IllegalArgumentException();
+        }
+        if (other.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            count = other.count;
+            System.arraycopy(other.state, 0, state, 0, SIZE);
+            return;
+        }
+        double na = count;
+        double nb = other.count;
+        double dxr = other.value(X_RE) / nb - value(X_RE) / na;
+        double dxi = other.value(X_IM) / nb - value(X_IM) / na;
+        double dyr = other.value(Y_RE) / nb - value(Y_RE) / na;
+        double dyi = other.value(Y_IM) / nb - value(Y_IM) / na;
+        double f = na * nb / (na + nb);
+
+        count += other.count;
+        for (int i = 0; i < SIZE; i += 2) {
+            accumulate(i, other.state[i]);
+            accumulate(i, other.state[i + 1]);
+        }
+        accumulate(C_RE, (dxr * dyr + dxi * dyi) * f);
+        accumulate(C_IM, (dxi * dyr - dxr * dyi) * f);
+    }
+
+    /**
+     * Get the mean of x.
+     * 
+     * @return the mean, or null if no values have been added
+     */
+    public Complex getMean() {
+        if (count == 0) {
+            return null;
+        }
+        return new Complex(value(X_RE) / count, value(X_IM) / count);
+    }
+
+    /**
+     * Get the population variance of x, E|x - mean(x)|^2. This requires
+     * that the values were added with add(Complex).
+     * 
+     * @return the variance, or null if no values have been added
+     */
+    public Double getPopulationVariance() {
+        if (count == 0) {
+            return null;
+        }
+        return Math.max(0, value(C_RE)) / count;
+    }
+
+    /**
+     * Get the sample variance of x. This requires that the values were
+     * added with add(Complex).
+     * 
+     * @return the variance, or null if fewer than two values have been
+     *         added
+     */
+    public Double getSampleVariance() {
+        if (count < 2) {
+            return null;
+        }
+        return Math.max(0, value(C_RE)) / (count - 1);
+    }
+
+    /**
+     * Get the population covariance, E[(x - mean(x)) * conj(y - mean(y))].
+     * 
+     * @return the covariance, or null if no values have been added
+     */
+    public Complex getPopulationCovariance() {
+        if (count == 0) {
+            return null;
+        }
+        return new Complex(value(C_RE) / count, value(C_IM) / count);
+    }
+
+    /**
+     * Get the sample covariance.
+     * 
+     * @return the covariance, or null if fewer than two values have been
+     *         added
+     */
+    public Complex getSampleCovariance() {
+        if (count < 2) {
+            return null;
+        }
+        return new Complex(value(C_RE) / (count - 1), value(C_IM)
+                / (count - 1));
+    }
+
+    /**
+     * Encode the state as the count followed by the six sums and their
+     * compensation terms (104 bytes).
+     * 
+     * @return
+     */
+    public byte[] toByteArray() {
+        ByteBuffer buffer = ByteBuffer.allocate(LENGTH).putLong(count);
+        for (int i = 0; i < SIZE; i++) {
+            buffer.putDouble(state[i]);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Decode state written by toByteArray().
+     * 
+     * @param bytes
+     * @return
+     */
+    public static ComplexStatistics fromByteArray(byte[] bytes) {
+        if (bytes == null) {
+            throw new IllegalArgumentException();
+        }
+        if (bytes.length != LENGTH) {
+            throw new IllegalArgumentException("malformed complex statistics");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        ComplexStatistics stats = new ComplexStatistics();
+        stats.count = buffer.getLong();
+        if (stats.count < 0) {
+            throw new IllegalArgumentException("malformed complex statistics");
+        }
+        for (int i = 0; i < SIZE; i++) {
+            stats.state[i] = buffer.getDouble();
+        }
+        return stats;
+    }
+
+    /**
+     * Add x to the compensated sum at offset i.
+     */
+    private void accumulate(int i, double x) {
+        double s = state[i];
+        double t = s + x;
+        if (Math.abs(s) >= Math.abs(x)) {
+            state[i + 1] += (s - t) + x;
+        } else {
+            state[i + 1] += (x - t) + s;
+        }
+        state[i] = t;
+    }
+
+    /**
+     * Get the compensated sum at offset i.
+     */
+    private double value(int i) {
+        double s = state[i];
+        return Double.isFinite(s) ? s + state[i + 1] : s;
+    }
+}
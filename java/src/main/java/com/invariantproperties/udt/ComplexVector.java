@@ -0,0 +1,405 @@
+/*
+ * This code was written by Bear Giles <bgiles@coyotesong.com>and he
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Any contributions made by others are licensed to this project under
+ * one or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ * Copyright (c) 2012 Bear Giles <bgiles@coyotesong.com>
+ */
+package com.invariantproperties.udt;
+
+import java.io.Serializable;
+
+/**
+ * Fixed-size vector of complex numbers stored as separate arrays of real and
+ * imaginary parts. The kernels are simple counted loops over the arrays with
+ * no allocation or branches so HotSpot can unroll and auto-vectorize the
+ * element-wise operations. Reductions keep four independent partial sums to
+ * break the floating point dependency chain, so their rounding can differ in
+ * the last bit from a strictly sequential sum.
+ * 
+ * @author bgiles@coyotesong.com
+ */
+public class ComplexVector implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    // package-private so ComplexFFT can transform in place.
+    final double[] re;
+    final double[] im;
+
+    /**
+     * Constructor. Every element is zero.
+     * 
+     * @param size
+     */
+    public ComplexVector(int size) {
+        re = new double[size];
+        im = new double[size];
+    }
+
+    /**
+     * Constructor taking the real and imaginary parts. The arrays are copied.
+     * 
+     * @param re
+     * @param im
+     */
+    public ComplexVector(double[] re, double[] im) {
+        if ((re == null) || (im == null)) {
+            throw new IllegalArgumentException();
+        }
+        if (re.length != im.length) {
+            throw new IllegalArgumentException("array lengths differ: "
+                    + re.length + " and " + im.length);
+        }
+        this.re = re.clone();
+        this.im = im.clone();
+    }
+
+    /**
+     * Constructor taking an array of values. The array must not contain
+     * nulls.
+     * 
+     * @param values
+     */
+    public ComplexVector(Complex[] values) {
+        this(values.length);
+        for (int i = 0; i < values.length; i++) {
+            set(i, values[i]);
+        }
+    }
+
+    /**
+     * Copy constructor.
+     * 
+     * @param p
+     */
+    public ComplexVector(ComplexVector p) {
+        re = p.re.clone();
+        im = p.im.clone();
+    }
+
+    /**
+     * Get the number of elements.
+     * 
+     * @return
+     */
+    public int size() {
+        return re.length;
+    }
+
+    /**
+     * Get an element.
+     * 
+     * @param i
+     * @return
+     */
+    public Complex get(int i) {
+        return new Complex(re[i], im[i]);
+    }
+
+    /**
+     * Get the real part of an element.
+     * 
+     * @param i
+     * @return
+     */
+    public double getReal(int i) {
+        return re[i];
+    }
+
+    /**
+     * Get the imaginary part of an element.
+     * 
+     * @param i
+     * @return
+     */
+    public double getImaginary(int i) {
+        return im[i];
+    }
+
+    /**
+     * Set an element.
+     * 
+     * @param i
+     * @param value
+     */
+    public void set(int i, Complex value) {
+        if (value == null) {
+            throw new IllegalArgumentException();
+        }
+        re[i] = value.real;
+        im[i] = value.imaginary;
+    }
+
+    /**
+     * Set an element.
+     * 
+     * @param i
+     * @param real
+     * @param imaginary
+     */
+    public void set(int i, double real, double imaginary) {
+        re[i] = real;
+        im[i] = imaginary;
+    }
+
+    /**
+     * Get a copy of the real parts.
+     * 
+     * @return
+     */
+    public double[] getReal() {
+        return re.clone();
+    }
+
+    /**
+     * Get a copy of the imaginary parts.
+     * 
+     * @return
+     */
+    public double[] getImaginary() {
+        return im.clone();
+    }
+
+    /**
+     * Get the elements as Complex values.
+     * 
+     * @return
+     */
+    public Complex[] toArray() {
+        Complex[] values = new Complex[size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = get(i);
+        }
+        return values;
+    }
+
+    /**
+     * Element-wise sum.
+     * 
+     * @param p
+     * @return
+     */
+    public ComplexVector add(ComplexVector p) {
+        checkSize(p);
+        ComplexVector r = new ComplexVector(size());
+        double[] pre = p.re;
+        double[] pim = p.im;
+        double[] rre = r.re;
+        double[] rim = r.im;
+        for (int i = 0; i < rre.length; i++) {
+            rre[i] = re[i] + pre[i];
+            rim[i] = im[i] + pim[i];
+        }
+        return r;
+    }
+
+    /**
+     * Element-wise difference.
+     * 
+     * @param p
+     * @return
+     */
+    public ComplexVector subtract(ComplexVector p) {
+        checkSize(p);
+        ComplexVector r = new ComplexVector(size());
+        double[] pre = p.re;
+        double[] pim = p.im;
+        double[] rre = r.re;
+        double[] rim = r.im;
+        for (int i = 0; i < rre.length; i++) {
+            rre[i] = re[i] - pre[i];
+            rim[i] = im[i] - pim[i];
+        }
+        return r;
+    }
+
+    /**
+     * Element-wise product.
+     * 
+     * @param p
+     * @return
+     */
+    public ComplexVector multiply(ComplexVector p) {
+        checkSize(p);
+        ComplexVector r = new ComplexVector(size());
+        double[] pre = p.re;
+        double[] pim = p.im;
+        double[] rre = r.re;
+        double[] rim = r.im;
+        for (int i = 0; i < rre.length; i++) {
+            double a = re[i];
+            double b = im[i];
+            double c = pre[i];
+            double d = pim[i];
+            rre[i] = a * c - b * d;
+            rim[i] = a * d + b * c;
+        }
+        return r;
+    }
+
+    /**
+     * Element-wise product with the conjugate of p, i.e., this[i] *
+     * conj(p[i]). This is the kernel of correlation.
+     * 
+     * @param p
+     * @return
+     */
+    public ComplexVector multiplyConjugate(ComplexVector p) {
+        checkSize(p);
+        ComplexVector r = new ComplexVector(size());
+        double[] pre = p.re;
+        double[] pim = p.im;
+        double[] rre = r.re;
+        double[] rim = r.im;
+        for (int i = 0; i < rre.length; i++) {
+            double a = re[i];
+            double b = im[i];
+            double c = pre[i];
+            double d = pim[i];
+            rre[i] = a * c + b * d;
+            rim[i] = b * c - a * d;
+        }
+        return r;
+    }
+
+    /**
+     * Multiply every element by a real scalar.
+     * 
+     * @param s
+     * @return
+     */
+    public ComplexVector scale(double s) {
+        ComplexVector r = new ComplexVector(size());
+        double[] rre = r.re;
+        double[] rim = r.im;
+        for (int i = 0; i < rre.length; i++) {
+            rre[i] = re[i] * s;
+            rim[i] = im[i] * s;
+        }
+        return r;
+    }
+
+    /**
+     * Element-wise complex conjugate.
+     * 
+     * @return
+     */
+    public ComplexVector conjugate() {
+        ComplexVector r = new ComplexVector(size());
+        System.arraycopy(re, 0, r.re, 0, re.length);
+        double[] rim = r.im;
+        for (int i = 0; i < rim.length; i++) {
+            rim[i] = -im[i];
+        }
+        return r;
+    }
+
+    /**
+     * Element-wise magnitude. This uses sqrt(re^2 + im^2), which vectorizes,
+     * rather than Math.hypot(), so it overflows for components larger than
+     * about 1e154.
+     * 
+     * @return
+     */
+    public double[] magnitude() {
+        double[] r = new double[size()];
+        for (int i = 0; i < r.length; i++) {
+            double a = re[i];
+            double b = im[i];
+            r[i] = Math.sqrt(a * a + b * b);
+        }
+        return r;
+    }
+
+    /**
+     * Dot product, sum(this[i] * p[i]).
+     * 
+     * @param p
+     * @return
+     */
+    public Complex dot(ComplexVector p) {
+        return dot(p, false);
+    }
+
+    /**
+     * Hermitian inner product, sum(this[i] * conj(p[i])).
+     * 
+     * @param p
+     * @return
+     */
+    public Complex dotConjugate(ComplexVector p) {
+        return dot(p, true);
+    }
+
+    private Complex dot(ComplexVector p, boolean conjugate) {
+        checkSize(p);
+        double[] pre = p.re;
+        double[] pim = p.im;
+        double s = conjugate ? -1 : 1;
+        double r0 = 0, r1 = 0, r2 = 0, r3 = 0;
+        double i0 = 0, i1 = 0, i2 = 0, i3 = 0;
+        int len = re.length;
+        int i = 0;
+        for (; i + 3 < len; i += 4) {
+            r0 += re[i] * pre[i] - s * im[i] * pim[i];
+            i0 += s * re[i] * pim[i] + im[i] * pre[i];
+            r1 += re[i + 1] * pre[i + 1] - s * im[i + 1] * pim[i + 1];
+            i1 += s * re[i + 1] * pim[i + 1] + im[i + 1] * pre[i + 1];
+            r2 += re[i + 2] * pre[i + 2] - s * im[i + 2] * pim[i + 2];
+            i2 += s * re[i + 2] * pim[i + 2] + im[i + 2] * pre[i + 2];
+            r3 += re[i + 3] * pre[i + 3] - s * im[i + 3] * pim[i + 3];
+            i3 += s * re[i + 3] * pim[i + 3] + im[i + 3] * pre[i + 3];
+        }
+        for (; i < len; i++) {
+            r0 += re[i] * pre[i] - s * im[i] * pim[i];
+            i0 += s * re[i] * pim[i] + im[i] * pre[i];
+        }
+        return new Complex((r0 + r1) + (r2 + r3), (i0 + i1) + (i2 + i3));
+    }
+
+    /**
+     * Euclidean norm, sqrt(sum(|this[i]|^2)).
+     * 
+     * @return
+     */
+    public double norm() {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int len = re.length;
+        int i = 0;
+        for (; i + 3 < len; i += 4) {
+            s0 += re[i] * re[i] + im[i] * im[i];
+            s1 += re[i + 1] * re[i + 1] + im[i + 1] * im[i + 1];
+            s2 += re[i + 2] * re[i + 2] + im[i + 2] * im[i + 2];
+            s3 += re[i + 3] * re[i + 3] + im[i + 3] * im[i + 3];
+        }
+        for (; i < len; i++) {
+            s0 += re[i] * re[i] + im[i] * im[i];
+        }
+        return Math.sqrt((s0 + s1) + (s2 + s3));
+    }
+
+    private void checkSize(ComplexVector p) {
+        if (p == null) {
+            throw new IllegalArgumentException();
+        }
+        if (p.size() != size()) {
+            throw new IllegalArgumentException("vector sizes differ: "
+                    + size() + " and " + p.size());
+        }
+    }
+}
@@ -0,0 +1,507 @@
+/*
+ * This code was written by Bear Giles <bgiles@coyotesong.com>and he
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Any contributions made by others are licensed to this project under
+ * one or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ * Copyright (c) 2012 Bear Giles <bgiles@coyotesong.com>
+ */
+package com.invariantproperties.udt;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Mergeable sketch for approximate distinct counts (HyperLogLog++).
+ * 
+ * Values are added as well-mixed 64-bit hashes. The top p bits of a hash
+ * select one of 2^p registers, which keeps the largest number of leading
+ * zeros seen in the remaining bits.
+ * 
+ * Small sketches use the sparse representation from HLL++: a sorted list
+ * of (index, rank) pairs at precision 25, estimated by linear counting. It
+ * is exact in practice for small cardinalities and converts to the dense
+ * registers when it would no longer be smaller. Dense registers are estimated
+ * with Ertl's improved estimator, which is unbiased over the whole range
+ * without the empirical bias tables of HLL++. The relative standard error
+ * is about 1.04 / sqrt(2^p).
+ * 
+ * This class is not thread-safe.
+ * 
+ * @author bgiles@coyotesong.com
+ */
+public class HyperLogLog implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final byte SPARSE = 0;
+    private static final byte DENSE = 1;
+    private static final int SPARSE_PRECISION = 25;
+    private static final int MIN_PRECISION = 4;
+    private static final int MAX_PRECISION = 18;
+
+    /**
+     * Default precision: 4096 registers, 1.6% error and at most 3 KB.
+     */
+    public static final int DEFAULT_PRECISION = 12;
+
+    private final int precision;
+
+    // sparse state, used when registers is null. Each entry is the index at
+    // SPARSE_PRECISION shifted left 6 bits, or'ed with the rank.
+    private int[] entries;
+    private int size;
+
+    // dense state
+    private byte[] registers;
+
+    /**
+     * Default constructor.
+     */
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * Constructor taking the precision.
+     * 
+     * @param precision
+     *            the base-2 logarithm of the number of registers
+     */
+    public HyperLogLog(int precision) {
+        if ((precision < MIN_PRECISION) || (precision > MAX_PRECISION)) {
+            throw new IllegalArgumentException("precision must be between "
+                    + MIN_PRECISION + " and " + MAX_PRECISION);
+        }
+        this.precision = precision;
+        this.entries = new int[16];
+    }
+
+    /**
+     * Get the precision.
+     * 
+     * @return
+     */
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Is the sketch in the sparse representation?
+     * 
+     * @return
+     */
+    public boolean isSparse() {
+        return registers == null;
+    }
+
+    /**
+     * Add a value by its 64-bit hash. The hash must be well mixed, e.g.
+     * Rational.hash64() or Complex.hash64().
+     * 
+     * @param hash
+     */
+    public void add(long hash) {
+        if (registers == null) {
+            int index = (int) (hash >>> (64 - SPARSE_PRECISION));
+            int rank = Long.numberOfLeadingZeros((hash << SPARSE_PRECISION)
+                    | (1L << (SPARSE_PRECISION - 1))) + 1;
+            insert((index << 6) | rank);
+            if (size > sparseLimit()) {
+                toDense();
+            }
+        } else {
+            int index = (int) (hash >>> (64 - precision));
+            int rank = Long.numberOfLeadingZeros((hash << precision)
+                    | (1L << (precision - 1))) + 1;
+            if (rank > registers[index]) {
+                registers[index] = (byte) rank;
+            }
+        }
+    }
+
+    /**
+     * Add a value to an encoded sketch. A dense sketch is updated in place,
+     * touching only the one packed register, so an aggregate's transition
+     * function doesn't pay to unpack and repack every register on each row.
+     * A sparse sketch is decoded, updated and encoded again.
+     * 
+     * @param bytes
+     *            a sketch written by toByteArray()
+     * @param hash
+     * @return the updated sketch, which may be the same array
+     */
+    public static byte[] add(byte[] bytes, long hash) {
+        if ((bytes != null) && (bytes.length > 2) && (bytes[0] == DENSE)
+                && (bytes[1] >= MIN_PRECISION) && (bytes[1] <= MAX_PRECISION)
+                && (bytes.length == 2 + (1 << bytes[1]) * 6 / 8)) {
+            int p = bytes[1];
+            int index = (int) (hash >>> (64 - p));
+            int rank = Long.numberOfLeadingZeros((hash << p)
+                    | (1L << (p - 1))) + 1;
+            int pos = 2 + (index >>> 2) * 3;
+            int shift = 18 - 6 * (index & 3);
+            int bits = ((bytes[pos] & 0xFF) << 16)
+                    | ((bytes[pos + 1] & 0xFF) << 8) | (bytes[pos + 2] & 0xFF);
+            if (rank > ((bits >>> shift) & 0x3F)) {
+                bits = (bits & ~(0x3F << shift)) | (rank << shift);
+                bytes[pos] = (byte) (bits >>> 16);
+                bytes[pos + 1] = (byte) (bits >>> 8);
+                bytes[pos + 2] = (byte) bits;
+            }
+            return bytes;
+        }
+        HyperLogLog hll = fromByteArray(bytes);
+        hll.add(hash);
+        return hll.toByteArray();
+    }
+
+    /**
+     * Merge another sketch into this one. Both must have the same precision.
+     * The other sketch is not modified.
+     * 
+     * @param other
+     */
+    public void add(HyperLogLog other) {
+        if (other == null) {
+            throw new IllegalArgumentException();
+        }
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("precisions differ: "
+                    + precision + " and " + other.precision);
+        }
+        if (other.registers == null) {
+            if (registers == null) {
+                mergeSparse(other);
+            } else {
+                for (int i = 0; i < other.size; i++) {
+                    addEntry(other.entries[i]);
+                }
+            }
+        } else {
+            if (registers == null) {
+                toDense();
+            }
+            for (int i = 0; i < registers.length; i++) {
+                if (other.registers[i] > registers[i]) {
+                    registers[i] = other.registers[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the estimated number of distinct values.
+     * 
+     * @return
+     */
+    public long cardinality() {
+        if (registers == null) {
+            // linear counting over the 2^25 sparse registers
+            double m = 1 << SPARSE_PRECISION;
+            return Math.round(m * Math.log(m / (m - size)));
+        }
+
+        int q = 64 - precision;
+        int[] histogram = new int[q + 2];
+        for (byte r : registers) {
+            histogram[r]++;
+        }
+        double m = registers.length;
+        double z = m * tau(1 - histogram[q + 1] / m);
+        for (int k = q; k >= 1; k--) {
+            z = 0.5 * (z + histogram[k]);
+        }
+        z += m * sigma(histogram[0] / m);
+        return Math.round(m * m / (2 * Math.log(2)) / z);
+    }
+
+    /**
+     * Encode the sketch. The first byte is a tag and the second the
+     * precision. Sparse sketches follow with the number of entries and the
+     * differences between successive entries, as varints. Dense sketches
+     * follow with the registers packed in 6 bits each.
+     * 
+     * @return
+     */
+    public byte[] toByteArray() {
+        if (registers == null) {
+            int len = 2 + varintLength(size);
+            int previous = 0;
+            for (int i = 0; i < size; i++) {
+                len += varintLength(entries[i] - previous);
+                previous = entries[i];
+            }
+            byte[] bytes = new byte[len];
+            bytes[0] = SPARSE;
+            bytes[1] = (byte) precision;
+            int pos = putVarint(bytes, 2, size);
+            previous = 0;
+            for (int i = 0; i < size; i++) {
+                pos = putVarint(bytes, pos, entries[i] - previous);
+                previous = entries[i];
+            }
+            return bytes;
+        }
+
+        byte[] bytes = new byte[2 + registers.length * 6 / 8];
+        bytes[0] = DENSE;
+        bytes[1] = (byte) precision;
+        for (int i = 0, pos = 2; i < registers.length; i += 4, pos += 3) {
+            int bits = (registers[i] << 18) | (registers[i + 1] << 12)
+                    | (registers[i + 2] << 6) | registers[i + 3];
+            bytes[pos] = (byte) (bits >>> 16);
+            bytes[pos + 1] = (byte) (bits >>> 8);
+            bytes[pos + 2] = (byte) bits;
+        }
+        return bytes;
+    }
+
+    /**
+     * Decode a sketch written by toByteArray().
+     * 
+     * @param bytes
+     * @return
+     */
+    public static HyperLogLog fromByteArray(byte[] bytes) {
+        if (bytes == null) {
+            throw new IllegalArgumentException();
+        }
+        if ((bytes.length < 3) || (bytes[1] < MIN_PRECISION)
+                || (bytes[1] > MAX_PRECISION)) {
+            throw new IllegalArgumentException("malformed hyperloglog");
+        }
+        HyperLogLog hll = new HyperLogLog(bytes[1]);
+        int m = 1 << hll.precision;
+        if (bytes[0] == SPARSE) {
+            int[] pos = { 2 };
+            int n = getVarint(bytes, pos);
+            if ((n < 0) || (n > hll.sparseLimit())) {
+                throw new IllegalArgumentException("malformed hyperloglog");
+            }
+            hll.entries = new int[Math.max(n, 16)];
+            int previous = 0;
+            for (int i = 0; i < n; i++) {
+                int delta = getVarint(bytes, pos);
+                if ((delta <= 0) || (previous + delta < 0)) {
+                    throw new IllegalArgumentException(
+                            "malformed hyperloglog");
+                }
+                previous += delta;
+                hll.entries[i] = previous;
+            }
+            if (pos[0] != bytes.length) {
+                throw new IllegalArgumentException("malformed hyperloglog");
+            }
+            hll.size = n;
+        } else if ((bytes[0] == DENSE) && (bytes.length == 2 + m * 6 / 8)) {
+            hll.entries = null;
+            hll.registers = new byte[m];
+            int max = 64 - hll.precision + 1;
+            for (int i = 0, pos = 2; i < m; i += 4, pos += 3) {
+                int bits = ((bytes[pos] & 0xFF) << 16)
+                        | ((bytes[pos + 1] & 0xFF) << 8)
+                        | (bytes[pos + 2] & 0xFF);
+                for (int j = 3; j >= 0; j--) {
+                    int r = bits & 0x3F;
+                    if (r > max) {
+                        throw new IllegalArgumentException(
+                                "malformed hyperloglog");
+                    }
+                    hll.registers[i + j] = (byte) r;
+                    bits >>>= 6;
+                }
+            }
+        } else {
+            throw new IllegalArgumentException("malformed hyperloglog");
+        }
+        return hll;
+    }
+
+    /**
+     * The sparse list is converted once it would be larger than the packed
+     * registers, assuming about three bytes per entry.
+     */
+    private int sparseLimit() {
+        return (1 << precision) / 4;
+    }
+
+    /**
+     * Insert a sparse entry, keeping the largest rank for each index.
+     */
+    private void insert(int entry) {
+        int index = entry >>> 6;
+        int lo = 0;
+        int hi = size - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int midIndex = entries[mid] >>> 6;
+            if (midIndex < index) {
+                lo = mid + 1;
+            } else if (midIndex > index) {
+                hi = mid - 1;
+            } else {
+                if (entry > entries[mid]) {
+                    entries[mid] = entry;
+                }
+                return;
+            }
+        }
+        if (size == entries.length) {
+            entries = Arrays.copyOf(entries, 2 * size);
+        }
+        System.arraycopy(entries, lo, entries, lo + 1, size - lo);
+        entries[lo] = entry;
+        size++;
+    }
+
+    /**
+     * Merge another sparse list into this one.
+     */
+    private void mergeSparse(HyperLogLog other) {
+        int[] merged = new int[Math.max(size + other.size, 16)];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while ((i < size) && (j < other.size)) {
+            int a = entries[i];
+            int b = other.entries[j];
+            if ((a >>> 6) == (b >>> 6)) {
+                merged[n++] = Math.max(a, b);
+                i++;
+                j++;
+            } else if ((a >>> 6) < (b >>> 6)) {
+                merged[n++] = a;
+                i++;
+            } else {
+                merged[n++] = b;
+                j++;
+            }
+        }
+        while (i < size) {
+            merged[n++] = entries[i++];
+        }
+        while (j < other.size) {
+            merged[n++] = other.entries[j++];
+        }
+        entries = merged;
+        size = n;
+        if (size > sparseLimit()) {
+            toDense();
+        }
+    }
+
+    /**
+     * Convert the sparse list to dense registers.
+     */
+    private void toDense() {
+        registers = new byte[1 << precision];
+        for (int i = 0; i < size; i++) {
+            addEntry(entries[i]);
+        }
+        entries = null;
+        size = 0;
+    }
+
+    /**
+     * Fold a sparse entry into the dense registers. The bits between the
+     * dense and sparse precisions determine the rank unless they are all
+     * zero.
+     */
+    private void addEntry(int entry) {
+        int index = entry >>> 6;
+        int shift = SPARSE_PRECISION - precision;
+        int low = index & ((1 << shift) - 1);
+        int rank = (low != 0) ? Integer.numberOfLeadingZeros(low)
+                - (32 - shift) + 1 : shift + (entry & 0x3F);
+        int i = index >>> shift;
+        if (rank > registers[i]) {
+            registers[i] = (byte) rank;
+        }
+    }
+
+    /**
+     * sigma(x) = x + sum(x^(2^k) 2^(k-1), k >= 1), from Ertl.
+     */
+    private static double sigma(double x) {
+        if (x == 1) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double y = 1;
+        double z = x;
+        double previous;
+        do {
+            x *= x;
+            previous = z;
+            z += x * y;
+            y += y;
+        } while (z != previous);
+        return z;
+    }
+
+    /**
+     * tau(x) = (1 - x - sum((1 - x^(2^-k))^2 2^-k, k >= 1)) / 3, from Ertl.
+     */
+    private static double tau(double x) {
+        if ((x == 0) || (x == 1)) {
+            return 0;
+        }
+        double y = 1;
+        double z = 1 - x;
+        double previous;
+        do {
+            x = Math.sqrt(x);
+            previous = z;
+            y *= 0.5;
+            z -= (1 - x) * (1 - x) * y;
+        } while (z != previous);
+        return z / 3;
+    }
+
+    private static int varintLength(int value) {
+        int len = 1;
+        while ((value >>>= 7) != 0) {
+            len++;
+        }
+        return len;
+    }
+
+    private static int putVarint(byte[] bytes, int pos, int value) {
+        while ((value & ~0x7F) != 0) {
+            bytes[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[pos++] = (byte) value;
+        return pos;
+    }
+
+    /**
+     * Read a varint. The position is passed and updated in pos[0].
+     */
+    private static int getVarint(byte[] bytes, int[] pos) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            if (pos[0] >= bytes.length) {
+                throw new IllegalArgumentException("malformed hyperloglog");
+            }
+            byte b = bytes[pos[0]++];
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("malformed hyperloglog");
+    }
+}
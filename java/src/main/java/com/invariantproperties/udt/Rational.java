@@ -24,8 +24,6 @@ package com.invariantproperties.udt;
 
 import java.io.Serializable;
 import java.math.BigInteger;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Implementation of immutable rational numbers.
@@ -37,9 +35,53 @@ public class Rational extends Number implements Serializable,
     private static final long serialVersionUID = 1L;
     protected static final int NULL_POSITION = 1; // sort nulls high
 
+    // flyweight cache of common values. See valueOf().
+    private static final int CACHE_LOW = -128;
+    private static final int CACHE_HIGH = 127;
+    private static final int CACHE_DENOMINATOR = 100;
+    private static final Rational[] INTEGER_CACHE;
+    private static final Rational[][] FRACTION_CACHE;
+
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = 10 * POWERS_OF_TEN[i - 1];
+        }
+
+        INTEGER_CACHE = new Rational[CACHE_HIGH - CACHE_LOW + 1];
+        for (int i = 0; i < INTEGER_CACHE.length; i++) {
+            INTEGER_CACHE[i] = new Rational();
+            INTEGER_CACHE[i].numerator = i + CACHE_LOW;
+            INTEGER_CACHE[i].denominator = 1;
+        }
+
+        // proper fractions n/d, |n| < d, indexed by [d][n + d - 1]
+        FRACTION_CACHE = new Rational[CACHE_DENOMINATOR + 1][];
+        for (int d = 2; d <= CACHE_DENOMINATOR; d++) {
+            FRACTION_CACHE[d] = new Rational[2 * d - 1];
+            for (int n = 1 - d; n < d; n++) {
+                if (gcd0(Math.abs(n), d) == 1) {
+                    Rational r = new Rational();
+                    r.numerator = n;
+                    r.denominator = d;
+                    FRACTION_CACHE[d][n + d - 1] = r;
+                }
+            }
+        }
+    }
+
     protected long numerator;
     protected long denominator;
 
+    /**
+     * Constructor used by factory methods that have already normalized their
+     * values.
+     */
+    private Rational() {
+    }
+
     /**
      * Constructor taking only a numerator.
      * 
@@ -54,19 +96,31 @@ public class Rational extends Number implements Serializable,
      * 
      * @param numerator
      * @param denominator
+     * @throws ArithmeticException
+     *             if the normalized value does not fit, e.g.,
+     *             Long.MIN_VALUE/-1
      */
     public Rational(long numerator, long denominator) {
         if (denominator == 0) {
             throw new IllegalArgumentException("demominator must be non-zero");
         }
 
+        // negating Long.MIN_VALUE wraps around.
+        if ((numerator == Long.MIN_VALUE) || (denominator == Long.MIN_VALUE)) {
+            Rational r = valueOf(BigInteger.valueOf(numerator),
+                    BigInteger.valueOf(denominator));
+            this.numerator = r.numerator;
+            this.denominator = r.denominator;
+            return;
+        }
+
         // do a little bit of normalization
         if (denominator < 0) {
             numerator = -numerator;
             denominator = -denominator;
         }
 
-        long gcd = Rational.gcd(numerator, denominator);
+        long gcd = gcd0(Math.abs(numerator), Math.abs(denominator));
         
         this.numerator = numerator / gcd;
         this.denominator = denominator / gcd;
@@ -77,6 +131,46 @@ public class Rational extends Number implements Serializable,
         }
     }
 
+    /**
+     * Returns a Rational equal to the integer value. This may return a cached
+     * instance and should be preferred to the constructor.
+     * 
+     * @param numerator
+     * @return
+     */
+    public static Rational valueOf(long numerator) {
+        return reduced(numerator, 1);
+    }
+
+    /**
+     * Returns a Rational equal to numerator/denominator. Small integers and
+     * proper fractions with small denominators (halves, quarters,
+     * percentages, etc.) are returned from a precomputed cache, similar to
+     * Integer.valueOf(). This should be preferred to the constructor.
+     * 
+     * @param numerator
+     * @param denominator
+     * @return
+     * @throws ArithmeticException
+     *             if the normalized value does not fit, e.g.,
+     *             Long.MIN_VALUE/-1
+     */
+    public static Rational valueOf(long numerator, long denominator) {
+        if (denominator == 0) {
+            throw new IllegalArgumentException("demominator must be non-zero");
+        }
+        if ((numerator == Long.MIN_VALUE) || (denominator == Long.MIN_VALUE)) {
+            return valueOf(BigInteger.valueOf(numerator),
+                    BigInteger.valueOf(denominator));
+        }
+        if (denominator < 0) {
+            numerator = -numerator;
+            denominator = -denominator;
+        }
+        long gcd = gcd0(Math.abs(numerator), denominator);
+        return reduced(numerator / gcd, denominator / gcd);
+    }
+
     /**
      * Get numerator.
      * 
@@ -96,11 +190,42 @@ public class Rational extends Number implements Serializable,
     }
 
     /**
+     * The hash is the low 32 bits of hash64(0).
+     * 
      * @see java.lang.Object#hashCode()
      */
     @Override
     public int hashCode() {
-        return (int) (31 * numerator + denominator);
+        return (int) hash64(0);
+    }
+
+    /**
+     * Compute a well-mixed 64-bit hash of the value. Equal values have equal
+     * hashes for any seed since values are always kept in lowest terms.
+     * 
+     * @param seed
+     * @return
+     */
+    public long hash64(long seed) {
+        return hash64(seed, numerator, denominator);
+    }
+
+    /**
+     * Hash a fraction in lowest terms. BigRational uses this for inline
+     * values so they hash like the equal Rational.
+     */
+    static long hash64(long seed, long numerator, long denominator) {
+        long h = mix64(seed + numerator * 0x9E3779B97F4A7C15L);
+        return mix64(h ^ denominator);
+    }
+
+    /**
+     * MurmurHash3 64-bit finalizer.
+     */
+    static long mix64(long h) {
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
     }
 
     /**
@@ -129,33 +254,170 @@ public class Rational extends Number implements Serializable,
      */
     @Override
     public String toString() {
-        String value = null;
-        if (denominator == 1) {
-            value = String.valueOf(numerator);
-        } else {
-            value = String.format("%d/%d", numerator, denominator);
+        return appendTo(new StringBuilder(41)).toString();
+    }
+
+    /**
+     * Append the string representation of this value to a (possibly reused)
+     * StringBuilder. The digits are written directly into the builder.
+     * 
+     * @param sb
+     * @return sb
+     */
+    public StringBuilder appendTo(StringBuilder sb) {
+        sb.append(numerator);
+        if (denominator != 1) {
+            sb.append('/').append(denominator);
         }
-        return value;
+        return sb;
     }
 
     /**
      * Parse a rational number from a string.
      */
     public static Rational parse(String input) {
-        Pattern pattern = Pattern.compile("(-?[0-9]+)( */ *(-?[0-9]+))?");
-        Matcher matcher = pattern.matcher(input);
-        if (!matcher.matches()) {
+        return parse((CharSequence) input);
+    }
+
+    /**
+     * Parse a rational number from a character sequence in a single pass.
+     * The accepted forms are an integer ("3"), a fraction ("-3/4", with
+     * optional spaces around the '/') and an exact decimal ("0.125",
+     * "1.5e-3"). Either side of a fraction may be a decimal.
+     */
+    public static Rational parse(CharSequence input) {
+        int len = input.length();
+        int pos = skipWhitespace(input, 0, len);
+        long n = 0;
+        long d = 1;
+
+        try {
+            for (int part = 0; part < 2; part++) {
+                char c = (pos < len) ? input.charAt(pos) : 0;
+                boolean negative = (c == '-');
+                if ((c == '-') || (c == '+')) {
+                    pos++;
+                }
+
+                // the mantissa is accumulated as a negative value so
+                // Long.MIN_VALUE can be parsed.
+                long mantissa = 0;
+                int scale = 0;
+                int digits = 0;
+                while ((pos < len) && ((c = input.charAt(pos)) >= '0')
+                        && (c <= '9')) {
+                    mantissa = Math.subtractExact(
+                            Math.multiplyExact(mantissa, 10), c - '0');
+                    digits++;
+                    pos++;
+                }
+                if ((pos < len) && (input.charAt(pos) == '.')) {
+                    pos++;
+                    // trailing zeroes are only applied if a non-zero digit
+                    // follows them.
+                    int zeroes = 0;
+                    while ((pos < len) && ((c = input.charAt(pos)) >= '0')
+                            && (c <= '9')) {
+                        if (c == '0') {
+                            zeroes++;
+                        } else {
+                            mantissa = Math.subtractExact(Math.multiplyExact(
+                                    mantissa, pow10(zeroes + 1)), c - '0');
+                            scale += zeroes + 1;
+                            zeroes = 0;
+                        }
+                        digits++;
+                        pos++;
+                    }
+                }
+                if (digits == 0) {
+                    throw new NumberFormatException();
+                }
+                c = (pos < len) ? input.charAt(pos) : 0;
+                if ((c == 'e') || (c == 'E')) {
+                    pos++;
+                    c = (pos < len) ? input.charAt(pos) : 0;
+                    boolean negativeExponent = (c == '-');
+                    if ((c == '-') || (c == '+')) {
+                        pos++;
+                    }
+                    int exponent = 0;
+                    int start = pos;
+                    while ((pos < len) && ((c = input.charAt(pos)) >= '0')
+                            && (c <= '9')) {
+                        exponent = Math.addExact(Math.multiplyExact(exponent,
+                                10), c - '0');
+                        pos++;
+                    }
+                    if (pos == start) {
+                        throw new NumberFormatException();
+                    }
+                    scale = Math.subtractExact(scale,
+                            negativeExponent ? -exponent : exponent);
+                }
+
+                long num = negative ? mantissa : Math.negateExact(mantissa);
+                long den = 1;
+                if (num != 0) {
+                    if (scale > 0) {
+                        den = pow10(scale);
+                    } else if (scale < 0) {
+                        num = Math.multiplyExact(num, pow10(-scale));
+                    }
+                }
+
+                if (part == 0) {
+                    n = num;
+                    d = den;
+                } else {
+                    // (n/d) / (num/den)
+                    n = Math.multiplyExact(n, den);
+                    d = Math.multiplyExact(d, num);
+                }
+
+                pos = skipWhitespace(input, pos, len);
+                if ((part == 1) || (pos == len) || (input.charAt(pos) != '/')) {
+                    break;
+                }
+                pos = skipWhitespace(input, pos + 1, len);
+            }
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("value out of range: \""
+                    + input + '"');
+        } catch (NumberFormatException e) {
+            pos = -1;
+        }
+
+        if (pos != len) {
             throw new IllegalArgumentException(
                     "Unable to parse rational from string \"" + input + '"');
         }
-        if (matcher.groupCount() == 3) {
-            if (matcher.group(3) == null) {
-                return new Rational(Long.parseLong(matcher.group(1)));
-            }
-            return new Rational(Long.parseLong(matcher.group(1)),
-                    Long.parseLong(matcher.group(3)));
+        try {
+            return valueOf(n, d);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("value out of range: \""
+                    + input + '"');
         }
-        throw new IllegalArgumentException("invalid format: \"" + input + '"');
+    }
+
+    static int skipWhitespace(CharSequence input, int pos, int len) {
+        while ((pos < len) && Character.isWhitespace(input.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * 10^exponent
+     * 
+     * @throws ArithmeticException
+     *             if the result does not fit in a long
+     */
+    private static long pow10(int exponent) {
+        if ((exponent < 0) || (exponent >= POWERS_OF_TEN.length)) {
+            throw new ArithmeticException("long overflow");
+        }
+        return POWERS_OF_TEN[exponent];
     }
 
     /**
@@ -169,22 +431,28 @@ public class Rational extends Number implements Serializable,
         if (p == null) {
             return NULL_POSITION;
         }
-        BigInteger l = BigInteger.valueOf(numerator).multiply(
-                BigInteger.valueOf(p.denominator));
-        BigInteger r = BigInteger.valueOf(p.numerator).multiply(
-                BigInteger.valueOf(denominator));
-        return l.compareTo(r);
+        return compare(numerator, denominator, p.numerator, p.denominator);
     }
 
     /**
-     * Compare a Rational number and a double.
+     * Compare a Rational number and a double. The comparison is exact. NaN is
+     * greater than every Rational, as in PostgreSQL, and -0.0 equals zero.
      * 
      * @param p
      * @return
      */
     public int compareTo(double p) {
-        double d = doubleValue();
-        return (d < p) ? -1 : ((d == p) ? 0 : 1);
+        return compare(numerator, denominator, p);
+    }
+
+    /**
+     * Compare a Rational number and a long.
+     * 
+     * @param p
+     * @return
+     */
+    public int compareTo(long p) {
+        return compare(numerator, denominator, p, 1);
     }
 
     /**
@@ -293,9 +561,16 @@ public class Rational extends Number implements Serializable,
      * Negate a rational number.
      * 
      * @return
+     * @throws ArithmeticException
+     *             if the numerator is Long.MIN_VALUE. The denominator is
+     *             then odd, so 2^63 can't be cancelled and doesn't fit.
      */
     public Rational negate() {
-        return new Rational(-numerator, denominator);
+        if (numerator == Long.MIN_VALUE) {
+            throw new ArithmeticException(
+                    "value is out of range for rational: -(" + this + ")");
+        }
+        return reduced(-numerator, denominator);
     }
 
     /**
@@ -303,22 +578,25 @@ public class Rational extends Number implements Serializable,
      * 
      * @param p
      * @return
+     * @throws ArithmeticException
+     *             if the result does not fit in a Rational
      */
     public Rational add(Rational p) {
         if (p == null) {
             throw new IllegalArgumentException();
         }
-        BigInteger n = BigInteger
-                .valueOf(numerator)
-                .multiply(BigInteger.valueOf(p.denominator))
-                .add(BigInteger.valueOf(p.numerator).multiply(
-                        BigInteger.valueOf(denominator)));
-        BigInteger d = BigInteger.valueOf(denominator).multiply(
-                BigInteger.valueOf(p.denominator));
-        BigInteger gcd = n.gcd(d);
-        n = n.divide(gcd);
-        d = d.divide(gcd);
-        return new Rational(n.longValue(), d.longValue());
+        try {
+            return add(numerator, denominator, p.numerator, p.denominator);
+        } catch (ArithmeticException e) {
+            BigInteger n = BigInteger
+                    .valueOf(numerator)
+                    .multiply(BigInteger.valueOf(p.denominator))
+                    .add(BigInteger.valueOf(p.numerator).multiply(
+                            BigInteger.valueOf(denominator)));
+            BigInteger d = BigInteger.valueOf(denominator).multiply(
+                    BigInteger.valueOf(p.denominator));
+            return valueOf(n, d);
+        }
     }
 
     /**
@@ -326,23 +604,27 @@ public class Rational extends Number implements Serializable,
      * 
      * @param p
      * @return
+     * @throws ArithmeticException
+     *             if the result does not fit in a Rational
      */
     public Rational subtract(Rational p) {
         if (p == null) {
             throw new IllegalArgumentException();
         }
-        BigInteger n = BigInteger
-                .valueOf(numerator)
-                .multiply(BigInteger.valueOf(p.denominator))
-                .subtract(
-                        BigInteger.valueOf(p.numerator).multiply(
-                                BigInteger.valueOf(denominator)));
-        BigInteger d = BigInteger.valueOf(denominator).multiply(
-                BigInteger.valueOf(p.denominator));
-        BigInteger gcd = n.gcd(d);
-        n = n.divide(gcd);
-        d = d.divide(gcd);
-        return new Rational(n.longValue(), d.longValue());
+        try {
+            return add(numerator, denominator, Math.negateExact(p.numerator),
+                    p.denominator);
+        } catch (ArithmeticException e) {
+            BigInteger n = BigInteger
+                    .valueOf(numerator)
+                    .multiply(BigInteger.valueOf(p.denominator))
+                    .subtract(
+                            BigInteger.valueOf(p.numerator).multiply(
+                                    BigInteger.valueOf(denominator)));
+            BigInteger d = BigInteger.valueOf(denominator).multiply(
+                    BigInteger.valueOf(p.denominator));
+            return valueOf(n, d);
+        }
     }
 
     /**
@@ -350,19 +632,22 @@ public class Rational extends Number implements Serializable,
      * 
      * @param p
      * @return
+     * @throws ArithmeticException
+     *             if the result does not fit in a Rational
      */
     public Rational multiply(Rational p) {
         if (p == null) {
             throw new IllegalArgumentException();
         }
-        BigInteger n = BigInteger.valueOf(numerator).multiply(
-                BigInteger.valueOf(p.numerator));
-        BigInteger d = BigInteger.valueOf(denominator).multiply(
-                BigInteger.valueOf(p.denominator));
-        BigInteger gcd = n.gcd(d);
-        n = n.divide(gcd);
-        d = d.divide(gcd);
-        return new Rational(n.longValue(), d.longValue());
+        try {
+            return multiply(numerator, denominator, p.numerator, p.denominator);
+        } catch (ArithmeticException e) {
+            BigInteger n = BigInteger.valueOf(numerator).multiply(
+                    BigInteger.valueOf(p.numerator));
+            BigInteger d = BigInteger.valueOf(denominator).multiply(
+                    BigInteger.valueOf(p.denominator));
+            return valueOf(n, d);
+        }
     }
 
     /**
@@ -370,18 +655,257 @@ public class Rational extends Number implements Serializable,
      * 
      * @param p
      * @return
+     * @throws ArithmeticException
+     *             if the result does not fit in a Rational
      */
     public Rational divide(Rational p) {
         if (p == null) {
             throw new IllegalArgumentException();
         }
-        BigInteger n = BigInteger.valueOf(numerator).multiply(
-                BigInteger.valueOf(p.denominator));
-        BigInteger d = BigInteger.valueOf(denominator).multiply(
-                BigInteger.valueOf(p.numerator));
+        if (p.numerator == 0) {
+            throw new IllegalArgumentException("attempt to divide by zero");
+        }
+        try {
+            if (p.numerator < 0) {
+                return multiply(numerator, denominator,
+                        Math.negateExact(p.denominator),
+                        Math.negateExact(p.numerator));
+            }
+            return multiply(numerator, denominator, p.denominator, p.numerator);
+        } catch (ArithmeticException e) {
+            BigInteger n = BigInteger.valueOf(numerator).multiply(
+                    BigInteger.valueOf(p.denominator));
+            BigInteger d = BigInteger.valueOf(denominator).multiply(
+                    BigInteger.valueOf(p.numerator));
+            return valueOf(n, d);
+        }
+    }
+
+    /**
+     * Add n1/d1 and n2/d2 using only long arithmetic. Both fractions must be
+     * in lowest terms with positive denominators. Common factors of the
+     * denominators are cancelled before multiplying (Knuth, TAOCP 4.5.1) so
+     * the result is already in lowest terms and no final gcd is required.
+     * 
+     * @throws ArithmeticException
+     *             if an intermediate value does not fit in a long
+     */
+    static Rational add(long n1, long d1, long n2, long d2) {
+        long g = gcd0(d1, d2);
+        if (g == 1) {
+            return reduced(
+                    Math.addExact(Math.multiplyExact(n1, d2),
+                            Math.multiplyExact(n2, d1)),
+                    Math.multiplyExact(d1, d2));
+        }
+        long t = Math.addExact(Math.multiplyExact(n1, d2 / g),
+                Math.multiplyExact(n2, d1 / g));
+        if (t == 0) {
+            return reduced(0, 1);
+        }
+        long g2 = gcd0(absExact(t), g);
+        return reduced(t / g2, Math.multiplyExact(d1 / g, d2 / g2));
+    }
+
+    /**
+     * Multiply n1/d1 and n2/d2 using only long arithmetic. Both fractions must
+     * be in lowest terms with positive denominators. Each numerator is
+     * cross-cancelled against the other denominator before multiplying so the
+     * result is already in lowest terms.
+     * 
+     * @throws ArithmeticException
+     *             if an intermediate value does not fit in a long
+     */
+    static Rational multiply(long n1, long d1, long n2, long d2) {
+        if ((n1 == 0) || (n2 == 0)) {
+            return reduced(0, 1);
+        }
+        long g1 = gcd0(absExact(n1), d2);
+        long g2 = gcd0(absExact(n2), d1);
+        return reduced(Math.multiplyExact(n1 / g1, n2 / g2),
+                Math.multiplyExact(d1 / g2, d2 / g1));
+    }
+
+    /**
+     * Reduce a BigInteger fraction. This is the slow path used when the long
+     * arithmetic overflows.
+     * 
+     * @throws ArithmeticException
+     *             if the reduced fraction does not fit in a Rational
+     */
+    private static Rational valueOf(BigInteger n, BigInteger d) {
         BigInteger gcd = n.gcd(d);
         n = n.divide(gcd);
         d = d.divide(gcd);
-        return new Rational(n.longValue(), d.longValue());
+        if (d.signum() < 0) {
+            n = n.negate();
+            d = d.negate();
+        }
+        if ((n.bitLength() > 63) || (d.bitLength() > 63)) {
+            throw new ArithmeticException(
+                    "value is out of range for rational: " + n + "/" + d);
+        }
+        return reduced(n.longValue(), d.longValue());
+    }
+
+    /**
+     * Create a Rational from values already known to be in lowest terms with a
+     * positive denominator. This skips the gcd in the public constructor and
+     * returns a cached instance when there is one.
+     */
+    static Rational reduced(long numerator, long denominator) {
+        if (denominator == 1) {
+            if ((numerator >= CACHE_LOW) && (numerator <= CACHE_HIGH)) {
+                return INTEGER_CACHE[(int) numerator - CACHE_LOW];
+            }
+        } else if ((denominator <= CACHE_DENOMINATOR)
+                && (-denominator < numerator) && (numerator < denominator)) {
+            return FRACTION_CACHE[(int) denominator][(int) (numerator
+                    + denominator - 1)];
+        }
+        Rational r = new Rational();
+        r.numerator = numerator;
+        r.denominator = denominator;
+        return r;
+    }
+
+    /**
+     * Absolute value that fails instead of silently returning
+     * Long.MIN_VALUE.
+     */
+    static long absExact(long value) {
+        if (value == Long.MIN_VALUE) {
+            throw new ArithmeticException("long overflow");
+        }
+        return (value < 0) ? -value : value;
+    }
+
+    /**
+     * Compare n1/d1 and n2/d2 without allocating. Both fractions must be in
+     * lowest terms with positive denominators.
+     */
+    static int compare(long n1, long d1, long n2, long d2) {
+        int ls = Long.signum(n1);
+        int rs = Long.signum(n2);
+        if (ls != rs) {
+            return (ls < rs) ? -1 : 1;
+        }
+        if (d1 == d2) {
+            return Long.compare(n1, n2);
+        }
+
+        // cross-multiply. If every value fits in 31 bits the products can't
+        // overflow, otherwise compare the full 128-bit products.
+        long bits = Math.abs(n1) | d1 | Math.abs(n2) | d2;
+        if ((bits >>> 31) == 0) {
+            return Long.compare(n1 * d2, n2 * d1);
+        }
+        long lhi = multiplyHigh(n1, d2);
+        long rhi = multiplyHigh(n2, d1);
+        if (lhi != rhi) {
+            return (lhi < rhi) ? -1 : 1;
+        }
+        return Long.compareUnsigned(n1 * d2, n2 * d1);
+    }
+
+    /**
+     * Exact comparison of n/d, d > 0, with a double. The double is decomposed
+     * into m * 2^e so that it can be compared as the rational m / 2^-e
+     * without rounding.
+     */
+    static int compare(long n, long d, double v) {
+        if (Double.isNaN(v)) {
+            return -1;
+        }
+        int ls = Long.signum(n);
+        int rs = (v < 0) ? -1 : ((v > 0) ? 1 : 0);
+        if ((ls != rs) || (rs == 0)) {
+            return Integer.compare(ls, rs);
+        }
+        if (Double.isInfinite(v)) {
+            return -rs;
+        }
+
+        long bits = Double.doubleToRawLongBits(v);
+        int exponent = (int) ((bits >>> 52) & 0x7FF);
+        long mantissa = bits & 0x000FFFFFFFFFFFFFL;
+        if (exponent == 0) {
+            exponent = 1; // subnormal
+        } else {
+            mantissa |= 0x0010000000000000L;
+        }
+        exponent -= 1075;
+        int shift = Long.numberOfTrailingZeros(mantissa);
+        mantissa >>>= shift;
+        exponent += shift;
+
+        // |v| = mantissa * 2^exponent
+        int magnitude = 64 - Long.numberOfLeadingZeros(mantissa) + exponent;
+        if (magnitude > 64) {
+            // |v| > 2^63 >= |n/d|
+            return -rs;
+        }
+        if (magnitude <= -64) {
+            // 0 < |v| < 2^-63 < 1/d <= |n/d|
+            return rs;
+        }
+        long m = (rs < 0) ? -mantissa : mantissa;
+        if ((exponent >= 0) && (magnitude < 64)) {
+            return compare(n, d, m << exponent, 1);
+        }
+        if ((exponent < 0) && (exponent > -63)) {
+            return compare(n, d, m, 1L << -exponent);
+        }
+
+        // rare: values near +/-2^63 or with very small exponents.
+        BigInteger l = BigInteger.valueOf(n);
+        BigInteger r = BigInteger.valueOf(m).multiply(BigInteger.valueOf(d));
+        if (exponent < 0) {
+            l = l.shiftLeft(-exponent);
+        } else {
+            r = r.shiftLeft(exponent);
+        }
+        return l.compareTo(r);
+    }
+
+    /**
+     * High 64 bits of the signed 128-bit product of two longs. This is
+     * Math.multiplyHigh() from Java 9.
+     */
+    private static long multiplyHigh(long x, long y) {
+        long x1 = x >> 32;
+        long x2 = x & 0xFFFFFFFFL;
+        long y1 = y >> 32;
+        long y2 = y & 0xFFFFFFFFL;
+        long z2 = x2 * y2;
+        long t = x1 * y2 + (z2 >>> 32);
+        long z1 = t & 0xFFFFFFFFL;
+        long z0 = t >> 32;
+        z1 += x2 * y1;
+        return x1 * y1 + z0 + (z1 >> 32);
+    }
+
+    /**
+     * Binary (Stein) GCD of two non-negative values.
+     */
+    static long gcd0(long p, long q) {
+        if (p == 0) {
+            return q;
+        }
+        if (q == 0) {
+            return p;
+        }
+        int shift = Long.numberOfTrailingZeros(p | q);
+        p >>>= Long.numberOfTrailingZeros(p);
+        do {
+            q >>>= Long.numberOfTrailingZeros(q);
+            if (p > q) {
+                long t = q;
+                q = p;
+                p = t;
+            }
+            q -= p;
+        } while (q != 0);
+        return p << shift;
     }
 }
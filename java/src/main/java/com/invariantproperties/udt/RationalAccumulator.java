@@ -0,0 +1,392 @@
+/*
+ * This code was written by Bear Giles <bgiles@coyotesong.com>and he
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Any contributions made by others are licensed to this project under
+ * one or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ * Copyright (c) 2012 Bear Giles <bgiles@coyotesong.com>
+ */
+package com.invariantproperties.udt;
+
+import java.io.Serializable;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Mutable accumulator for exact sums of rational numbers.
+ * 
+ * The running sum is kept as an unreduced numerator over a denominator that
+ * is the least common multiple of the denominators seen so far. Both are
+ * primitive longs until a value overflows, at which point the sum is reduced
+ * and, if that isn't enough, promoted to BigInteger. The sum is only reduced
+ * to lowest terms when it is read.
+ * 
+ * This class is not thread-safe.
+ * 
+ * @author bgiles@coyotesong.com
+ */
+public class RationalAccumulator implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final byte INLINE = 0;
+    private static final byte PROMOTED = 1;
+    private static final int INLINE_LENGTH = 25;
+
+    private long count;
+
+    // primitive state, used when bigNumerator is null.
+    private long numerator;
+    private long denominator = 1;
+
+    // promoted state.
+    private BigInteger bigNumerator;
+    private BigInteger bigDenominator;
+
+    /**
+     * Default constructor. The initial sum is zero.
+     */
+    public RationalAccumulator() {
+    }
+
+    /**
+     * Get the number of values added.
+     * 
+     * @return
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Has the sum been promoted to BigInteger?
+     * 
+     * @return
+     */
+    public boolean isPromoted() {
+        return bigNumerator != null;
+    }
+
+    /**
+     * Reset the accumulator to zero.
+     */
+    public void clear() {
+        count = 0;
+        numerator = 0;
+        denominator = 1;
+        bigNumerator = null;
+        bigDenominator = null;
+    }
+
+    /**
+     * Add a value.
+     * 
+     * @param p
+     */
+    public void add(Rational p) {
+        if (p == null) {
+            throw new IllegalArgumentException();
+        }
+        accumulate(p.getNumerator(), p.getDenominator());
+        count++;
+    }
+
+    /**
+     * Add a value.
+     * 
+     * @param p
+     */
+    public void add(BigRational p) {
+        if (p == null) {
+            throw new IllegalArgumentException();
+        }
+        if (p.isInline()) {
+            accumulate(p.numerator, p.denominator);
+        } else {
+            accumulate(p.bigNumerator, p.bigDenominator);
+        }
+        count++;
+    }
+
+    /**
+     * Add a value. The fraction does not need to be in lowest terms.
+     * 
+     * @param numerator
+     * @param denominator
+     */
+    public void add(long numerator, long denominator) {
+        if (denominator == 0) {
+            throw new IllegalArgumentException("demominator must be non-zero");
+        }
+        if ((numerator == Long.MIN_VALUE) || (denominator == Long.MIN_VALUE)) {
+            BigInteger n = BigInteger.valueOf(numerator);
+            BigInteger d = BigInteger.valueOf(denominator);
+            if (d.signum() < 0) {
+                n = n.negate();
+                d = d.negate();
+            }
+            accumulate(n, d);
+        } else if (denominator < 0) {
+            accumulate(-numerator, -denominator);
+        } else {
+            accumulate(numerator, denominator);
+        }
+        count++;
+    }
+
+    /**
+     * Remove a value that was previously added. This is the inverse of
+     * add(Rational) and is exact, so a sliding window never has to be
+     * recomputed. Promoted state is reduced afterwards so that it does not
+     * grow without bound as values enter and leave the window.
+     * 
+     * @param p
+     */
+    public void remove(Rational p) {
+        if (p == null) {
+            throw new IllegalArgumentException();
+        }
+        if (count == 0) {
+            throw new IllegalArgumentException("accumulator is empty");
+        }
+        if (p.getNumerator() == Long.MIN_VALUE) {
+            accumulate(BigInteger.valueOf(p.getNumerator()).negate(),
+                    BigInteger.valueOf(p.getDenominator()));
+        } else {
+            accumulate(-p.getNumerator(), p.getDenominator());
+        }
+        count--;
+        if (count == 0) {
+            clear();
+        } else if (bigNumerator != null) {
+            normalize();
+        }
+    }
+
+    /**
+     * Merge the contents of another accumulator into this one.
+     * 
+     * @param other
+     */
+    public void add(RationalAccumulator other) {
+        if (other == null) {
+            throw new IllegalArgumentException();
+        }
+        if (other.bigNumerator == null) {
+            accumulate(other.numerator, other.denominator);
+        } else {
+            accumulate(other.bigNumerator, other.bigDenominator);
+        }
+        count += other.count;
+    }
+
+    /**
+     * Get the exact sum, reduced to lowest terms.
+     * 
+     * @return
+     */
+    public BigRational getSum() {
+        if (bigNumerator == null) {
+            return new BigRational(numerator, denominator);
+        }
+        return new BigRational(bigNumerator, bigDenominator);
+    }
+
+    /**
+     * Get the exact mean, reduced to lowest terms.
+     * 
+     * @return the mean, or null if no values have been added
+     */
+    public BigRational getMean() {
+        if (count == 0) {
+            return null;
+        }
+        if (bigNumerator == null) {
+            try {
+                return new BigRational(numerator, Math.multiplyExact(
+                        denominator, count));
+            } catch (ArithmeticException e) {
+                // fall through to BigInteger arithmetic
+            }
+        }
+        return new BigRational(getNumerator(), getDenominator().multiply(
+                BigInteger.valueOf(count)));
+    }
+
+    /**
+     * Encode the state. Primitive state is a tag byte followed by the count,
+     * numerator and denominator as longs (25 bytes). Promoted state is a tag
+     * byte, the count, the length of the numerator and the two's-complement
+     * bytes of the numerator and denominator. The sum is not reduced.
+     * 
+     * @return
+     */
+    public byte[] toByteArray() {
+        if (bigNumerator == null) {
+            return ByteBuffer.allocate(INLINE_LENGTH).put(INLINE)
+                    .putLong(count).putLong(numerator).putLong(denominator)
+                    .array();
+        }
+        byte[] n = bigNumerator.toByteArray();
+        byte[] d = bigDenominator.toByteArray();
+        return ByteBuffer.allocate(13 + n.length + d.length).put(PROMOTED)
+                .putLong(count).putInt(n.length).put(n).put(d).array();
+    }
+
+    /**
+     * Decode state written by toByteArray().
+     * 
+     * @param bytes
+     * @return
+     */
+    public static RationalAccumulator fromByteArray(byte[] bytes) {
+        if (bytes == null) {
+            throw new IllegalArgumentException();
+        }
+        RationalAccumulator acc = new RationalAccumulator();
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            byte tag = buffer.get();
+            acc.count = buffer.getLong();
+            if ((tag == INLINE) && (bytes.length == INLINE_LENGTH)) {
+                acc.numerator = buffer.getLong();
+                acc.denominator = buffer.getLong();
+                if (acc.denominator > 0) {
+                    return acc;
+                }
+            } else if (tag == PROMOTED) {
+                int len = buffer.getInt();
+                if ((len > 0) && (len < buffer.remaining())) {
+                    byte[] n = new byte[len];
+                    byte[] d = new byte[buffer.remaining() - len];
+                    buffer.get(n).get(d);
+                    acc.bigNumerator = new BigInteger(n);
+                    acc.bigDenominator = new BigInteger(d);
+                    if (acc.bigDenominator.signum() > 0) {
+                        return acc;
+                    }
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            // fall through
+        }
+        throw new IllegalArgumentException("malformed rational accumulator");
+    }
+
+    /**
+     * Add n/d, d > 0, to the running sum.
+     */
+    private void accumulate(long n, long d) {
+        if (bigNumerator == null) {
+            if (accumulateExact(n, d)) {
+                return;
+            }
+            reduce();
+            if (accumulateExact(n, d)) {
+                return;
+            }
+            bigNumerator = BigInteger.valueOf(numerator);
+            bigDenominator = BigInteger.valueOf(denominator);
+        }
+        accumulate(BigInteger.valueOf(n), BigInteger.valueOf(d));
+    }
+
+    /**
+     * Add n/d, d > 0, to the running sum using long arithmetic.
+     * 
+     * @return false, with the sum unchanged, if the result overflows
+     */
+    private boolean accumulateExact(long n, long d) {
+        try {
+            if (d == denominator) {
+                numerator = Math.addExact(numerator, n);
+                return true;
+            }
+            long g = Rational.gcd0(denominator, d);
+            long a = denominator / g;
+            long b = d / g;
+            long sum = Math.addExact(Math.multiplyExact(numerator, b),
+                    Math.multiplyExact(n, a));
+            denominator = Math.multiplyExact(denominator, b);
+            numerator = sum;
+            return true;
+        } catch (ArithmeticException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Add n/d, d > 0, to the running sum using BigInteger arithmetic.
+     */
+    private void accumulate(BigInteger n, BigInteger d) {
+        if (bigNumerator == null) {
+            bigNumerator = BigInteger.valueOf(numerator);
+            bigDenominator = BigInteger.valueOf(denominator);
+        }
+        if (d.equals(bigDenominator)) {
+            bigNumerator = bigNumerator.add(n);
+            return;
+        }
+        BigInteger g = bigDenominator.gcd(d);
+        BigInteger a = bigDenominator.divide(g);
+        BigInteger b = d.divide(g);
+        bigNumerator = bigNumerator.multiply(b).add(n.multiply(a));
+        bigDenominator = bigDenominator.multiply(b);
+    }
+
+    /**
+     * Reduce the primitive state to lowest terms.
+     */
+    private void reduce() {
+        if (numerator == Long.MIN_VALUE) {
+            return;
+        }
+        long g = Rational.gcd0(Math.abs(numerator), denominator);
+        if (g > 1) {
+            numerator /= g;
+            denominator /= g;
+        }
+    }
+
+    /**
+     * Reduce the promoted state to lowest terms, demoting it to primitive
+     * state if it fits.
+     */
+    private void normalize() {
+        BigInteger g = bigNumerator.gcd(bigDenominator);
+        if (!g.equals(BigInteger.ONE)) {
+            bigNumerator = bigNumerator.divide(g);
+            bigDenominator = bigDenominator.divide(g);
+        }
+        if ((bigNumerator.bitLength() < 64)
+                && (bigDenominator.bitLength() < 64)) {
+            numerator = bigNumerator.longValue();
+            denominator = bigDenominator.longValue();
+            bigNumerator = null;
+            bigDenominator = null;
+        }
+    }
+
+    private BigInteger getNumerator() {
+        return (bigNumerator == null) ? BigInteger.valueOf(numerator)
+                : bigNumerator;
+    }
+
+    private BigInteger getDenominator() {
+        return (bigDenominator == null) ? BigInteger.valueOf(denominator)
+                : bigDenominator;
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * This code was written by Bear Giles <bgiles@coyotesong.com>and he
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Any contributions made by others are licensed to this project under
+ * one or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ * Copyright (c) 2012 Bear Giles <bgiles@coyotesong.com>
+ */
+package com.invariantproperties.udt;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Order-preserving binary encoding of Rational numbers. The unsigned
+ * lexicographic (memcmp) order of two keys matches Rational.compareTo() so a
+ * key can be indexed or sorted as a bytea without calling back into the JVM.
+ * 
+ * A value x is written as its continued fraction [a0; a1, a2, ..., an]. a0 =
+ * floor(x) is written as a sign byte followed by its magnitude and each
+ * following term is a positive integer. Since a larger a(i) makes x larger
+ * for even i and smaller for odd i the terms at odd positions are written
+ * with their bits inverted. The expansion is closed by a terminator that
+ * stands for an infinite next term, i.e., 0xFF at even positions and 0x00 at
+ * odd positions.
+ * 
+ * Terms are written as a single byte if they are less than 0xF0, otherwise
+ * as 0xF0 + (n - 1) followed by the n big-endian bytes of the value. The
+ * continued fraction of a rational is unique if the last term is greater
+ * than one, which Euclid's algorithm guarantees, so equal values have equal
+ * keys.
+ * 
+ * @author bgiles@coyotesong.com
+ */
+public final class RationalSortKey {
+    private static final int SMALL_LIMIT = 0xF0;
+    private static final int NEGATIVE = 0x01;
+    private static final int NON_NEGATIVE = 0x02;
+    private static final int TERMINATOR = 0xFF;
+
+    // sign + a0 + ~92 terms for the worst case (Fibonacci) denominator.
+    private static final int MAX_LENGTH = 256;
+
+    private RationalSortKey() {
+    }
+
+    /**
+     * Encode a value.
+     * 
+     * @param value
+     * @return
+     */
+    public static byte[] encode(Rational value) {
+        if (value == null) {
+            throw new IllegalArgumentException();
+        }
+        long n = value.getNumerator();
+        long d = value.getDenominator();
+
+        byte[] buffer = new byte[MAX_LENGTH];
+        long a0 = Math.floorDiv(n, d);
+        long r = Math.floorMod(n, d);
+        int pos;
+        if (a0 < 0) {
+            buffer[0] = NEGATIVE;
+            // -a0 is 2^63 if a0 is Long.MIN_VALUE, which is fine as unsigned
+            pos = writeTerm(buffer, 1, -a0, true);
+        } else {
+            buffer[0] = NON_NEGATIVE;
+            pos = writeTerm(buffer, 1, a0, false);
+        }
+
+        // the fraction part is r/d = 1/(d/r).
+        long p = d;
+        long q = r;
+        boolean invert = true;
+        while (q != 0) {
+            pos = writeTerm(buffer, pos, p / q, invert);
+            long t = p % q;
+            p = q;
+            q = t;
+            invert = !invert;
+        }
+        buffer[pos++] = (byte) (invert ? ~TERMINATOR : TERMINATOR);
+        return Arrays.copyOf(buffer, pos);
+    }
+
+    /**
+     * Decode a value.
+     * 
+     * @param key
+     * @return
+     * @throws IllegalArgumentException
+     *             if the key is malformed
+     */
+    public static Rational decode(byte[] key) {
+        if ((key == null) || (key.length < 3)) {
+            throw malformed();
+        }
+
+        int[] pos = new int[] { 1 };
+        long a0;
+        if (key[0] == NEGATIVE) {
+            a0 = -readTerm(key, pos, true);
+            if (a0 >= 0) {
+                throw malformed();
+            }
+        } else if (key[0] == NON_NEGATIVE) {
+            a0 = readTerm(key, pos, false);
+            if (a0 < 0) {
+                throw malformed();
+            }
+        } else {
+            throw malformed();
+        }
+
+        // collect the terms, then evaluate them from the back.
+        long[] terms = new long[MAX_LENGTH];
+        int count = 0;
+        boolean invert = true;
+        while (true) {
+            if (pos[0] >= key.length) {
+                throw malformed();
+            }
+            int b = key[pos[0]] & 0xFF;
+            if (b == (invert ? (~TERMINATOR & 0xFF) : TERMINATOR)) {
+                pos[0]++;
+                break;
+            }
+            long a = readTerm(key, pos, invert);
+            if ((a <= 0) || (count == terms.length)) {
+                throw malformed();
+            }
+            terms[count++] = a;
+            invert = !invert;
+        }
+        if (pos[0] != key.length) {
+            throw malformed();
+        }
+        if ((count > 0) && (terms[count - 1] == 1)) {
+            // not canonical
+            throw malformed();
+        }
+
+        if (count == 0) {
+            return Rational.valueOf(a0);
+        }
+
+        // p/q = [a1; a2, ..., an], p > q > 0
+        long p = terms[count - 1];
+        long q = 1;
+        try {
+            for (int i = count - 2; i >= 0; i--) {
+                long t = Math.addExact(Math.multiplyExact(terms[i], p), q);
+                q = p;
+                p = t;
+            }
+        } catch (ArithmeticException e) {
+            throw malformed();
+        }
+
+        // x = a0 + q/p
+        try {
+            return Rational.valueOf(
+                    Math.addExact(Math.multiplyExact(a0, p), q), p);
+        } catch (ArithmeticException e) {
+            // a0 * p can overflow even though a0 * p + q does not.
+            BigInteger n = BigInteger.valueOf(a0)
+                    .multiply(BigInteger.valueOf(p))
+                    .add(BigInteger.valueOf(q));
+            if (n.bitLength() > 63) {
+                throw malformed();
+            }
+            return Rational.valueOf(n.longValue(), p);
+        }
+    }
+
+    /**
+     * Write an unsigned term.
+     */
+    private static int writeTerm(byte[] buffer, int pos, long value,
+            boolean invert) {
+        int mask = invert ? 0xFF : 0;
+        if ((value >= 0) && (value < SMALL_LIMIT)) {
+            buffer[pos++] = (byte) (value ^ mask);
+            return pos;
+        }
+        int len = (71 - Long.numberOfLeadingZeros(value)) / 8;
+        buffer[pos++] = (byte) ((SMALL_LIMIT + len - 1) ^ mask);
+        for (int shift = 8 * (len - 1); shift >= 0; shift -= 8) {
+            buffer[pos++] = (byte) ((value >>> shift) ^ mask);
+        }
+        return pos;
+    }
+
+    /**
+     * Read an unsigned term. pos is updated.
+     */
+    private static long readTerm(byte[] key, int[] pos, boolean invert) {
+        int mask = invert ? 0xFF : 0;
+        int i = pos[0];
+        if (i >= key.length) {
+            throw malformed();
+        }
+        int b = (key[i++] ^ mask) & 0xFF;
+        if (b < SMALL_LIMIT) {
+            pos[0] = i;
+            return b;
+        }
+        int len = b - SMALL_LIMIT + 1;
+        if ((len > 8) || (i + len > key.length)) {
+            throw malformed();
+        }
+        long value = 0;
+        for (int j = 0; j < len; j++) {
+            value = (value << 8) | ((key[i++] ^ mask) & 0xFF);
+        }
+        pos[0] = i;
+        return value;
+    }
+
+    private static IllegalArgumentException malformed() {
+        return new IllegalArgumentException("malformed rational sort key");
+    }
+}
@@ -0,0 +1,556 @@
+/*
+ * This code was written by Bear Giles <bgiles@coyotesong.com>and he
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Any contributions made by others are licensed to this project under
+ * one or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ * Copyright (c) 2012 Bear Giles <bgiles@coyotesong.com>
+ */
+package com.invariantproperties.udt;
+
+import java.io.Serializable;
+
+/**
+ * Fixed-size vector of Rational numbers stored as parallel arrays of
+ * numerators and denominators. The batch operations work directly on the
+ * arrays so there is no per-element allocation unless a value overflows, in
+ * which case that element falls back to the Rational implementation.
+ * 
+ * Every element is kept in lowest terms with a positive denominator, the same
+ * invariant as Rational.
+ * 
+ * @author bgiles@coyotesong.com
+ */
+public class RationalVector implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final long[] numerators;
+    private final long[] denominators;
+
+    /**
+     * Constructor. Every element is zero.
+     * 
+     * @param size
+     */
+    public RationalVector(int size) {
+        numerators = new long[size];
+        denominators = new long[size];
+        for (int i = 0; i < size; i++) {
+            denominators[i] = 1;
+        }
+    }
+
+    /**
+     * Constructor taking an array of values. The array must not contain
+     * nulls.
+     * 
+     * @param values
+     */
+    public RationalVector(Rational[] values) {
+        this(values.length);
+        for (int i = 0; i < values.length; i++) {
+            set(i, values[i]);
+        }
+    }
+
+    /**
+     * Copy constructor.
+     * 
+     * @param p
+     */
+    public RationalVector(RationalVector p) {
+        numerators = p.numerators.clone();
+        denominators = p.denominators.clone();
+    }
+
+    /**
+     * Get the number of elements.
+     * 
+     * @return
+     */
+    public int size() {
+        return numerators.length;
+    }
+
+    /**
+     * Get an element.
+     * 
+     * @param i
+     * @return
+     */
+    public Rational get(int i) {
+        return Rational.reduced(numerators[i], denominators[i]);
+    }
+
+    /**
+     * Get the numerator of an element.
+     * 
+     * @param i
+     * @return
+     */
+    public long getNumerator(int i) {
+        return numerators[i];
+    }
+
+    /**
+     * Get the denominator of an element.
+     * 
+     * @param i
+     * @return
+     */
+    public long getDenominator(int i) {
+        return denominators[i];
+    }
+
+    /**
+     * Set an element.
+     * 
+     * @param i
+     * @param value
+     */
+    public void set(int i, Rational value) {
+        if (value == null) {
+            throw new IllegalArgumentException();
+        }
+        numerators[i] = value.numerator;
+        denominators[i] = value.denominator;
+    }
+
+    /**
+     * Get the elements as Rational values.
+     * 
+     * @return
+     */
+    public Rational[] toArray() {
+        Rational[] values = new Rational[size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = get(i);
+        }
+        return values;
+    }
+
+    /**
+     * Element-wise sum.
+     * 
+     * @param p
+     * @return
+     * @throws ArithmeticException
+     *             if an element does not fit in a Rational
+     */
+    public RationalVector add(RationalVector p) {
+        checkSize(p);
+        RationalVector result = new RationalVector(size());
+        long[] rn = result.numerators;
+        long[] rd = result.denominators;
+        long[] pn = p.numerators;
+        long[] pd = p.denominators;
+        for (int i = 0; i < rn.length; i++) {
+            long n1 = numerators[i];
+            long d1 = denominators[i];
+            long n2 = pn[i];
+            long d2 = pd[i];
+            try {
+                // see Rational.add(long, long, long, long)
+                long g = Rational.gcd0(d1, d2);
+                if (g == 1) {
+                    rn[i] = Math.addExact(Math.multiplyExact(n1, d2),
+                            Math.multiplyExact(n2, d1));
+                    rd[i] = Math.multiplyExact(d1, d2);
+                } else {
+                    long t = Math.addExact(Math.multiplyExact(n1, d2 / g),
+                            Math.multiplyExact(n2, d1 / g));
+                    if (t == 0) {
+                        rn[i] = 0;
+                        rd[i] = 1;
+                    } else {
+                        long g2 = Rational.gcd0(Rational.absExact(t), g);
+                        rn[i] = t / g2;
+                        rd[i] = Math.multiplyExact(d1 / g, d2 / g2);
+                    }
+                }
+            } catch (ArithmeticException e) {
+                result.set(i, get(i).add(p.get(i)));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Element-wise product.
+     * 
+     * @param p
+     * @return
+     * @throws ArithmeticException
+     *             if an element does not fit in a Rational
+     */
+    public RationalVector multiply(RationalVector p) {
+        checkSize(p);
+        RationalVector result = new RationalVector(size());
+        long[] rn = result.numerators;
+        long[] rd = result.denominators;
+        long[] pn = p.numerators;
+        long[] pd = p.denominators;
+        for (int i = 0; i < rn.length; i++) {
+            long n1 = numerators[i];
+            long d1 = denominators[i];
+            long n2 = pn[i];
+            long d2 = pd[i];
+            if ((n1 == 0) || (n2 == 0)) {
+                continue;
+            }
+            try {
+                // see Rational.multiply(long, long, long, long)
+                long g1 = Rational.gcd0(Rational.absExact(n1), d2);
+                long g2 = Rational.gcd0(Rational.absExact(n2), d1);
+                rn[i] = Math.multiplyExact(n1 / g1, n2 / g2);
+                rd[i] = Math.multiplyExact(d1 / g2, d2 / g1);
+            } catch (ArithmeticException e) {
+                result.set(i, get(i).multiply(p.get(i)));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Exact dot product.
+     * 
+     * @param p
+     * @return
+     */
+    public BigRational dot(RationalVector p) {
+        checkSize(p);
+        RationalAccumulator acc = new RationalAccumulator();
+        long[] pn = p.numerators;
+        long[] pd = p.denominators;
+        for (int i = 0; i < numerators.length; i++) {
+            long n1 = numerators[i];
+            long d1 = denominators[i];
+            long n2 = pn[i];
+            long d2 = pd[i];
+            if ((n1 == 0) || (n2 == 0)) {
+                continue;
+            }
+            try {
+                long g1 = Rational.gcd0(Rational.absExact(n1), d2);
+                long g2 = Rational.gcd0(Rational.absExact(n2), d1);
+                acc.add(Math.multiplyExact(n1 / g1, n2 / g2),
+                        Math.multiplyExact(d1 / g2, d2 / g1));
+            } catch (ArithmeticException e) {
+                acc.add(new BigRational(n1, d1).multiply(new BigRational(n2,
+                        d2)));
+            }
+        }
+        return acc.getSum();
+    }
+
+    /**
+     * Exact sum of the elements.
+     * 
+     * @return
+     */
+    public BigRational sum() {
+        RationalAccumulator acc = new RationalAccumulator();
+        for (int i = 0; i < numerators.length; i++) {
+            acc.add(numerators[i], denominators[i]);
+        }
+        return acc.getSum();
+    }
+
+    /**
+     * Element-wise comparison. Each element of the result is -1, 0 or 1.
+     * 
+     * @param p
+     * @return
+     */
+    public int[] compare(RationalVector p) {
+        checkSize(p);
+        int[] result = new int[size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = Integer.signum(Rational.compare(numerators[i],
+                    denominators[i], p.numerators[i], p.denominators[i]));
+        }
+        return result;
+    }
+
+    /**
+     * Get the smallest element.
+     * 
+     * @return the smallest element, or null if the vector is empty
+     */
+    public Rational min() {
+        if (numerators.length == 0) {
+            return null;
+        }
+        int best = 0;
+        for (int i = 1; i < numerators.length; i++) {
+            if (Rational.compare(numerators[i], denominators[i],
+                    numerators[best], denominators[best]) < 0) {
+                best = i;
+            }
+        }
+        return get(best);
+    }
+
+    /**
+     * Get the largest element.
+     * 
+     * @return the largest element, or null if the vector is empty
+     */
+    public Rational max() {
+        if (numerators.length == 0) {
+            return null;
+        }
+        int best = 0;
+        for (int i = 1; i < numerators.length; i++) {
+            if (Rational.compare(numerators[i], denominators[i],
+                    numerators[best], denominators[best]) > 0) {
+                best = i;
+            }
+        }
+        return get(best);
+    }
+
+    /**
+     * Sort the elements in place into ascending order. This is a stable merge
+     * sort on the parallel arrays.
+     */
+    public void sort() {
+        int len = numerators.length;
+        long[] tn = new long[len];
+        long[] td = new long[len];
+        long[] sn = numerators;
+        long[] sd = denominators;
+
+        // insertion sort runs of 16, then merge them.
+        int run = 16;
+        for (int lo = 0; lo < len; lo += run) {
+            int hi = Math.min(lo + run, len);
+            for (int i = lo + 1; i < hi; i++) {
+                long n = sn[i];
+                long d = sd[i];
+                int j = i - 1;
+                while ((j >= lo) && (Rational.compare(sn[j], sd[j], n, d) > 0)) {
+                    sn[j + 1] = sn[j];
+                    sd[j + 1] = sd[j];
+                    j--;
+                }
+                sn[j + 1] = n;
+                sd[j + 1] = d;
+            }
+        }
+
+        for (int width = run; width < len; width *= 2) {
+            for (int lo = 0; lo < len; lo += 2 * width) {
+                int mid = Math.min(lo + width, len);
+                int hi = Math.min(lo + 2 * width, len);
+                int i = lo;
+                int j = mid;
+                for (int k = lo; k < hi; k++) {
+                    if ((j >= hi)
+                            || ((i < mid) && (Rational.compare(sn[i], sd[i],
+                                    sn[j], sd[j]) <= 0))) {
+                        tn[k] = sn[i];
+                        td[k] = sd[i];
+                        i++;
+                    } else {
+                        tn[k] = sn[j];
+                        td[k] = sd[j];
+                        j++;
+                    }
+                }
+            }
+            long[] t = sn;
+            sn = tn;
+            tn = t;
+            t = sd;
+            sd = td;
+            td = t;
+        }
+
+        if (sn != numerators) {
+            System.arraycopy(sn, 0, numerators, 0, len);
+            System.arraycopy(sd, 0, denominators, 0, len);
+        }
+    }
+
+    /**
+     * Get the k-th smallest element, counting from zero. This is a
+     * quickselect with a median-of-three pivot and a three-way partition, so
+     * it takes expected linear time even with many duplicates. The elements
+     * are reordered in place: afterwards no element before k is larger and
+     * no element after k is smaller.
+     * 
+     * @param k
+     * @return
+     */
+    public Rational select(int k) {
+        if ((k < 0) || (k >= numerators.length)) {
+            throw new IllegalArgumentException("index out of range: " + k);
+        }
+        long[] n = numerators;
+        long[] d = denominators;
+        int lo = 0;
+        int hi = n.length - 1;
+        while (lo < hi) {
+            int p = median(lo, (lo + hi) >>> 1, hi);
+            long pn = n[p];
+            long pd = d[p];
+
+            // [lo, lt) < pivot, [lt, i) == pivot, (gt, hi] > pivot
+            int lt = lo;
+            int i = lo;
+            int gt = hi;
+            while (i <= gt) {
+                int c = Rational.compare(n[i], d[i], pn, pd);
+                if (c < 0) {
+                    swap(lt++, i++);
+                } else if (c > 0) {
+                    swap(i, gt--);
+                } else {
+                    i++;
+                }
+            }
+
+            if (k < lt) {
+                hi = lt - 1;
+            } else if (k > gt) {
+                lo = gt + 1;
+            } else {
+                break;
+            }
+        }
+        return get(k);
+    }
+
+    /**
+     * Get the discrete percentile: the first element whose position in
+     * ascending order is at least the fraction of the size. The elements are
+     * reordered as by select().
+     * 
+     * @param fraction
+     *            a value between 0 and 1
+     * @return the percentile, or null if the vector is empty
+     */
+    public Rational percentile(double fraction) {
+        if (!((fraction >= 0) && (fraction <= 1))) {
+            throw new IllegalArgumentException("percentile value " + fraction
+                    + " is not between 0 and 1");
+        }
+        if (numerators.length == 0) {
+            return null;
+        }
+        int k = (int) Math.ceil(fraction * numerators.length) - 1;
+        return select(Math.max(k, 0));
+    }
+
+    /**
+     * Get the median. If the size is even this is the mean of the two
+     * middle elements, so it is exact but may not fit in a Rational. The
+     * elements are reordered as by select().
+     * 
+     * @return the median, or null if the vector is empty
+     */
+    public BigRational median() {
+        int len = numerators.length;
+        if (len == 0) {
+            return null;
+        }
+        int k = (len - 1) / 2;
+        BigRational lower = new BigRational(select(k));
+        if ((len % 2) == 1) {
+            return lower;
+        }
+
+        // the upper middle element is the smallest one after k.
+        int best = k + 1;
+        for (int i = k + 2; i < len; i++) {
+            if (Rational.compare(numerators[i], denominators[i],
+                    numerators[best], denominators[best]) < 0) {
+                best = i;
+            }
+        }
+        return lower.add(new BigRational(get(best))).divide(
+                new BigRational(2));
+    }
+
+    /**
+     * Get the most frequent element. Ties go to the smallest element. The
+     * elements are sorted in place.
+     * 
+     * @return the mode, or null if the vector is empty
+     */
+    public Rational mode() {
+        if (numerators.length == 0) {
+            return null;
+        }
+        sort();
+        int best = 0;
+        int bestCount = 0;
+        int start = 0;
+        for (int i = 1; i <= numerators.length; i++) {
+            if ((i == numerators.length) || (numerators[i] != numerators[start])
+                    || (denominators[i] != denominators[start])) {
+                if (i - start > bestCount) {
+                    best = start;
+                    bestCount = i - start;
+                }
+                start = i;
+            }
+        }
+        return get(best);
+    }
+
+    /**
+     * Get the index of the median of three elements.
+     */
+    private int median(int a, int b, int c) {
+        if (compare(a, b) < 0) {
+            if (compare(b, c) < 0) {
+                return b;
+            }
+            return (compare(a, c) < 0) ? c : a;
+        }
+        if (compare(a, c) < 0) {
+            return a;
+        }
+        return (compare(b, c) < 0) ? c : b;
+    }
+
+    private int compare(int i, int j) {
+        return Rational.compare(numerators[i], denominators[i], numerators[j],
+                denominators[j]);
+    }
+
+    private void swap(int i, int j) {
+        long t = numerators[i];
+        numerators[i] = numerators[j];
+        numerators[j] = t;
+        t = denominators[i];
+        denominators[i] = denominators[j];
+        denominators[j] = t;
+    }
+
+    private void checkSize(RationalVector p) {
+        if (p == null) {
+            throw new IllegalArgumentException();
+        }
+        if (p.size() != size()) {
+            throw new IllegalArgumentException("vector sizes differ: "
+                    + size() + " and " + p.size());
+        }
+    }
+}
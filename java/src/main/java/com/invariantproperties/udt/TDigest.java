@@ -0,0 +1,459 @@
+/*
+ * This code was written by Bear Giles <bgiles@coyotesong.com>and he
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Any contributions made by others are licensed to this project under
+ * one or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ * Copyright (c) 2012 Bear Giles <bgiles@coyotesong.com>
+ */
+package com.invariantproperties.udt;
+
+import java.io.Serializable;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Mergeable sketch for approximate quantiles (Dunning's merging t-digest).
+ * 
+ * The distribution is summarized by at most a few times the compression
+ * parameter centroids, each a mean and a weight, kept in ascending order of
+ * mean. The k1 scale function limits the size of the centroids near the
+ * tails, so extreme quantiles are much more accurate than the median. New
+ * values are buffered and merged into the centroids in batches. Two
+ * digests are merged the same way, so partial digests can be combined in
+ * any order.
+ * 
+ * Memory is bounded by the compression parameter, not by the number of
+ * values. This class is not thread-safe.
+ * 
+ * @author bgiles@coyotesong.com
+ */
+public class TDigest implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final int HEADER_LENGTH = 32;
+
+    /**
+     * Default compression parameter. The quantile error is about 1% of a
+     * centroid near the median and much less near the tails.
+     */
+    public static final double DEFAULT_COMPRESSION = 100;
+
+    private final double compression;
+    private double[] means;
+    private double[] weights;
+    private int centroids;
+    private double totalWeight;
+    private final double[] buffer;
+    private int buffered;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Default constructor.
+     */
+    public TDigest() {
+        this(DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Constructor taking the compression parameter.
+     * 
+     * @param compression
+     */
+    public TDigest(double compression) {
+        if (!(compression >= 10) || (compression > 10000)) {
+            throw new IllegalArgumentException(
+                    "compression must be between 10 and 10000");
+        }
+        this.compression = compression;
+        int capacity = (int) Math.ceil(compression);
+        this.means = new double[capacity];
+        this.weights = new double[capacity];
+        this.buffer = new double[capacity];
+    }
+
+    /**
+     * Get the compression parameter.
+     * 
+     * @return
+     */
+    public double getCompression() {
+        return compression;
+    }
+
+    /**
+     * Get the number of values added.
+     * 
+     * @return
+     */
+    public long getCount() {
+        return (long) totalWeight + buffered;
+    }
+
+    /**
+     * Get the number of centroids after the buffered values are merged.
+     * 
+     * @return
+     */
+    public int getCentroidCount() {
+        compress();
+        return centroids;
+    }
+
+    /**
+     * Get the smallest value added.
+     * 
+     * @return the smallest value, or NaN if no values have been added
+     */
+    public double getMin() {
+        return (getCount() == 0) ? Double.NaN : min;
+    }
+
+    /**
+     * Get the largest value added.
+     * 
+     * @return the largest value, or NaN if no values have been added
+     */
+    public double getMax() {
+        return (getCount() == 0) ? Double.NaN : max;
+    }
+
+    /**
+     * Add a value.
+     * 
+     * @param x
+     *            a finite value
+     */
+    public void add(double x) {
+        if (!Double.isFinite(x)) {
+            throw new IllegalArgumentException("value must be finite");
+        }
+        if (buffered == buffer.length) {
+            compress();
+        }
+        buffer[buffered++] = x;
+        if (x < min) {
+            min = x;
+        }
+        if (x > max) {
+            max = x;
+        }
+    }
+
+    /**
+     * Merge another digest into this one. The other digest is not modified
+     * and may have a different compression parameter.
+     * 
+     * @param other
+     */
+    public void add(TDigest other) {
+        if (other == null) {
+            throw new IllegalArgumentException();
+        }
+        if (other.getCount() == 0) {
+            return;
+        }
+        double[] otherMeans = new double[other.centroids + other.buffered];
+        double[] otherWeights = new double[otherMeans.length];
+        System.arraycopy(other.means, 0, otherMeans, 0, other.centroids);
+        System.arraycopy(other.weights, 0, otherWeights, 0, other.centroids);
+        double[] values = Arrays.copyOf(other.buffer, other.buffered);
+        Arrays.sort(values);
+        int len = merge(otherMeans, otherWeights, 0, other.centroids,
+                values, null, values.length);
+        compress(otherMeans, otherWeights, len);
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Get the approximate quantile. Values are interpolated between the
+     * centroid means and the minimum and maximum.
+     * 
+     * @param q
+     *            a value between 0 and 1
+     * @return the quantile, or NaN if no values have been added
+     */
+    public double quantile(double q) {
+        if (!((q >= 0) && (q <= 1))) {
+            throw new IllegalArgumentException("quantile " + q
+                    + " is not between 0 and 1");
+        }
+        compress();
+        if (centroids == 0) {
+            return Double.NaN;
+        }
+        if (centroids == 1) {
+            return (q == 0) ? min : (q == 1) ? max : means[0];
+        }
+
+        double index = q * totalWeight;
+        double half = weights[0] / 2;
+        if (index < half) {
+            return min + (means[0] - min) * index / half;
+        }
+
+        // walk the centroid centers, where the cumulative weight is known.
+        double cumulative = half;
+        for (int i = 0; i < centroids - 1; i++) {
+            double dw = (weights[i] + weights[i + 1]) / 2;
+            if (cumulative + dw > index) {
+                double t = (index - cumulative) / dw;
+                return means[i] + t * (means[i + 1] - means[i]);
+            }
+            cumulative += dw;
+        }
+
+        half = weights[centroids - 1] / 2;
+        double t = Math.min(1, (index - cumulative) / half);
+        return means[centroids - 1] + t * (max - means[centroids - 1]);
+    }
+
+    /**
+     * Encode the digest. The buffered values are encoded as they are and
+     * room is reserved for a full buffer, so add(byte[], double) can append
+     * a value in place. The header is the compression, minimum and maximum
+     * as doubles, the number of centroids and the number of buffered values,
+     * followed by the centroid means and weights and then the buffer.
+     * 
+     * @return
+     */
+    public byte[] toByteArray() {
+        return toByteArray(buffer.length);
+    }
+
+    /**
+     * Encode the digest without the unused part of the buffer. This is the
+     * smallest encoding, for sketches that are stored rather than updated.
+     * 
+     * @return
+     */
+    public byte[] toCompactByteArray() {
+        return toByteArray(buffered);
+    }
+
+    private byte[] toByteArray(int slots) {
+        ByteBuffer bb = ByteBuffer.allocate(HEADER_LENGTH + 16 * centroids
+                + 8 * slots);
+        bb.putDouble(compression).putDouble(min).putDouble(max)
+                .putInt(centroids).putInt(buffered);
+        for (int i = 0; i < centroids; i++) {
+            bb.putDouble(means[i]).putDouble(weights[i]);
+        }
+        for (int i = 0; i < buffered; i++) {
+            bb.putDouble(buffer[i]);
+        }
+        return bb.array();
+    }
+
+    /**
+     * Add a value to an encoded digest. If the encoding has room in its
+     * buffer the value is appended in place, touching only the buffer slot,
+     * the count and the minimum and maximum, so an aggregate's transition
+     * function doesn't pay to decode and encode every centroid on each row.
+     * Otherwise the digest is decoded, the full buffer is merged into the
+     * centroids and the digest is encoded again.
+     * 
+     * @param bytes
+     *            a digest written by toByteArray() or toCompactByteArray()
+     * @param x
+     *            a finite value
+     * @return the updated digest, which may be the same array
+     */
+    public static byte[] add(byte[] bytes, double x) {
+        if (!Double.isFinite(x)) {
+            throw new IllegalArgumentException("value must be finite");
+        }
+        if ((bytes != null) && (bytes.length >= HEADER_LENGTH)) {
+            ByteBuffer bb = ByteBuffer.wrap(bytes);
+            double compression = bb.getDouble(0);
+            int n = bb.getInt(24);
+            int m = bb.getInt(28);
+            if ((compression >= 10) && (compression <= 10000) && (n >= 0)
+                    && (m >= 0)) {
+                int capacity = (int) Math.ceil(compression);
+                long start = HEADER_LENGTH + 16L * n;
+                if ((m < capacity)
+                        && (bytes.length == start + 8L * capacity)) {
+                    bb.putDouble((int) start + 8 * m, x).putInt(28, m + 1);
+                    if (x < bb.getDouble(8)) {
+                        bb.putDouble(8, x);
+                    }
+                    if (x > bb.getDouble(16)) {
+                        bb.putDouble(16, x);
+                    }
+                    return bytes;
+                }
+            }
+        }
+        TDigest digest = fromByteArray(bytes);
+        digest.add(x);
+        return digest.toByteArray();
+    }
+
+    /**
+     * Decode a digest written by toByteArray() or toCompactByteArray().
+     * 
+     * @param bytes
+     * @return
+     */
+    public static TDigest fromByteArray(byte[] bytes) {
+        if (bytes == null) {
+            throw new IllegalArgumentException();
+        }
+        try {
+            ByteBuffer bb = ByteBuffer.wrap(bytes);
+            TDigest digest = new TDigest(bb.getDouble());
+            digest.min = bb.getDouble();
+            digest.max = bb.getDouble();
+            int n = bb.getInt();
+            int m = bb.getInt();
+            long start = HEADER_LENGTH + 16L * n;
+            if ((n < 0) || (m < 0) || (m > digest.buffer.length)
+                    || ((bytes.length != start + 8L * m) && (bytes.length
+                            != start + 8L * digest.buffer.length))) {
+                throw new IllegalArgumentException("malformed t-digest");
+            }
+            digest.ensureCapacity(n);
+            double previous = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < n; i++) {
+                double mean = bb.getDouble();
+                double weight = bb.getDouble();
+                if (!(mean >= previous) || !(weight > 0)) {
+                    throw new IllegalArgumentException("malformed t-digest");
+                }
+                digest.means[i] = mean;
+                digest.weights[i] = weight;
+                digest.totalWeight += weight;
+                previous = mean;
+            }
+            digest.centroids = n;
+            for (int i = 0; i < m; i++) {
+                digest.buffer[i] = bb.getDouble();
+            }
+            digest.buffered = m;
+            return digest;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("malformed t-digest");
+        }
+    }
+
+    /**
+     * Merge the buffered values into the centroids.
+     */
+    public void compress() {
+        if (buffered == 0) {
+            return;
+        }
+        Arrays.sort(buffer, 0, buffered);
+        compress(buffer, null, buffered);
+        buffered = 0;
+    }
+
+    /**
+     * Merge sorted values into the centroids and recompute them. Null
+     * weights mean every value has unit weight.
+     */
+    private void compress(double[] values, double[] valueWeights, int len) {
+        double[] m = new double[centroids + len];
+        double[] w = new double[m.length];
+        System.arraycopy(means, 0, m, 0, centroids);
+        System.arraycopy(weights, 0, w, 0, centroids);
+        int total = merge(m, w, 0, centroids, values, valueWeights, len);
+
+        double sum = 0;
+        for (int i = 0; i < total; i++) {
+            sum += w[i];
+        }
+
+        // greedy pass: a centroid grows while its upper quantile stays
+        // within one unit of the scale function.
+        int n = 0;
+        double soFar = 0;
+        double limit = qLimit(0, sum);
+        double mean = m[0];
+        double weight = w[0];
+        for (int i = 1; i < total; i++) {
+            if (soFar + weight + w[i] <= limit) {
+                weight += w[i];
+                mean += (m[i] - mean) * w[i] / weight;
+            } else {
+                ensureCapacity(n + 1);
+                means[n] = mean;
+                weights[n] = weight;
+                n++;
+                soFar += weight;
+                limit = qLimit(soFar, sum);
+                mean = m[i];
+                weight = w[i];
+            }
+        }
+        ensureCapacity(n + 1);
+        means[n] = mean;
+        weights[n] = weight;
+        centroids = n + 1;
+        totalWeight = sum;
+    }
+
+    /**
+     * Get the largest cumulative weight that the centroid starting at soFar
+     * may reach: k1(q) = compression / (2 pi) * asin(2q - 1), one unit on.
+     */
+    private double qLimit(double soFar, double sum) {
+        double k = compression / (2 * Math.PI)
+                * Math.asin(2 * soFar / sum - 1) + 1;
+        if (k >= compression / 4) {
+            return sum;
+        }
+        return sum * (Math.sin(2 * Math.PI * k / compression) + 1) / 2;
+    }
+
+    /**
+     * Merge sorted (values, valueWeights) into sorted (m, w)[0, len) in
+     * place, working backwards. The arrays must have room for both.
+     * 
+     * @return the merged length
+     */
+    private static int merge(double[] m, double[] w, int start, int len,
+            double[] values, double[] valueWeights, int count) {
+        int i = start + len - 1;
+        int j = count - 1;
+        int k = start + len + count - 1;
+        while (j >= 0) {
+            if ((i >= start) && (m[i] > values[j])) {
+                m[k] = m[i];
+                w[k] = w[i];
+                i--;
+            } else {
+                m[k] = values[j];
+                w[k] = (valueWeights == null) ? 1 : valueWeights[j];
+                j--;
+            }
+            k--;
+        }
+        return len + count;
+    }
+
+    private void ensureCapacity(int n) {
+        if (n > means.length) {
+            int capacity = Math.max(n, 2 * means.length);
+            means = Arrays.copyOf(means, capacity);
+            weights = Arrays.copyOf(weights, capacity);
+        }
+    }
+}
@@ -0,0 +1,493 @@
+/*
+ * This code was written by Bear Giles <bgiles@coyotesong.com>and he
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Any contributions made by others are licensed to this project under
+ * one or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ * Copyright (c) 2012 Bear Giles <bgiles@coyotesong.com>
+ */
+package com.invariantproperties.udt.sql;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.SQLData;
+import java.sql.SQLException;
+import java.sql.SQLInput;
+import java.sql.SQLOutput;
+import java.util.ResourceBundle;
+
+import com.invariantproperties.udt.BigRational;
+
+/**
+ * Glue that allows BigRational numbers to be stored as user-defined types in
+ * database.
+ * 
+ * The type is stored as a varlena. The first byte is a tag. Inline values are
+ * followed by the numerator and denominator as longs, promoted values by the
+ * two's-complement bytes of the numerator and denominator.
+ * 
+ * @author bgiles@coyotesong.com
+ */
+public class BigRationalUDT implements SQLData {
+    private static final ResourceBundle bundle = ResourceBundle
+            .getBundle(BigRationalUDT.class.getName());
+    private static final String TYPE_NAME = bundle.getString("typeName");
+    private static final int NULL_POSITION = 1;
+    private static final byte INLINE = 0;
+    private static final byte PROMOTED = 1;
+    private BigRational value;
+    private String typeName;
+
+    /**
+     * Parse input string.
+     */
+    public static BigRationalUDT parse(String input, String typeName)
+            throws SQLException {
+        // TODO: verify recognized typename.
+        BigRational value = null;
+        try {
+            value = BigRational.parse(input);
+        } catch (IllegalArgumentException e) {
+            throw new SQLException(e);
+        }
+        return new BigRationalUDT(value);
+    }
+
+    /**
+     * Constructor taking only numerator.
+     * 
+     * @param numerator
+     * @throws SQLException
+     */
+    public BigRationalUDT(long numerator) throws SQLException {
+        this(new BigRational(numerator));
+    }
+
+    /**
+     * Constructor taking numerator and denominator.
+     * 
+     * @param numerator
+     * @param denominator
+     * @throws SQLException
+     */
+    public BigRationalUDT(long numerator, long denominator)
+            throws SQLException {
+        this(new BigRational(numerator, denominator));
+    }
+
+    /**
+     * Constructor
+     * 
+     * @param p
+     * @throws SQLException
+     */
+    protected BigRationalUDT(BigRational p) throws SQLException {
+        this(p, TYPE_NAME);
+    }
+
+    /**
+     * Constructor
+     * 
+     * @param p
+     * @throws SQLException
+     */
+    protected BigRationalUDT(BigRational p, String typeName)
+            throws SQLException {
+        this.value = p;
+        this.typeName = typeName;
+    }
+
+    /**
+     * Get wrapped value.
+     */
+    BigRational getValue() {
+        return value;
+    }
+
+    /**
+     * Get SQL Type Name.
+     */
+    public String getSQLTypeName() {
+        return typeName;
+    }
+
+    /**
+     * Read object from SQLInput stream.
+     */
+    public void readSQL(SQLInput stream, String typeName) throws SQLException {
+        byte tag = stream.readByte();
+        if (tag == INLINE) {
+            long n = stream.readLong();
+            long d = stream.readLong();
+            this.value = new BigRational(n, d);
+        } else if (tag == PROMOTED) {
+            BigInteger n = new BigInteger(stream.readBytes());
+            BigInteger d = new BigInteger(stream.readBytes());
+            this.value = new BigRational(n, d);
+        } else {
+            throw new SQLException("unrecognized bigrational format: " + tag);
+        }
+        this.typeName = typeName;
+    }
+
+    /**
+     * Write object to SQLOutput stream.
+     */
+    public void writeSQL(SQLOutput stream) throws SQLException {
+        if (value.isInline()) {
+            stream.writeByte(INLINE);
+            stream.writeLong(value.getNumerator().longValue());
+            stream.writeLong(value.getDenominator().longValue());
+        } else {
+            stream.writeByte(PROMOTED);
+            stream.writeBytes(value.getNumerator().toByteArray());
+            stream.writeBytes(value.getDenominator().toByteArray());
+        }
+    }
+
+    /**
+     * @see java.lang.Object#hashCode()
+     */
+    public int hashCode() {
+        return (value == null) ? 0 : value.hashCode();
+    }
+
+    /**
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    public boolean equals(Object o) {
+        if ((value == null) || (o == null)) {
+            return false;
+        }
+
+        if (this == o) {
+            return true;
+        }
+
+        if (!(o instanceof BigRationalUDT)) {
+            return false;
+        }
+
+        BigRationalUDT r = (BigRationalUDT) o;
+        if (r.value == null) {
+            return false;
+        }
+
+        return value.equals(r.value);
+    }
+
+    /**
+     * Return string representing value. See RationalUDT.toString() for a
+     * discussion of the SQL contract.
+     * 
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return (value == null) ? null : value.toString();
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     */
+    public static int compare(BigRationalUDT p, BigRationalUDT q) {
+        if ((p == null) || (p.value == null) || (q == null)
+                || (q.value == null)) {
+            return -NULL_POSITION;
+        }
+        return p.value.compareTo(q.value);
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     */
+    public static boolean lessThan(BigRationalUDT p, BigRationalUDT q) {
+        return compare(p, q) < 0;
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     */
+    public static boolean lessThanOrEquals(BigRationalUDT p, BigRationalUDT q) {
+        return compare(p, q) <= 0;
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     */
+    public static boolean equals(BigRationalUDT p, BigRationalUDT q) {
+        return compare(p, q) == 0;
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     */
+    public static boolean notEquals(BigRationalUDT p, BigRationalUDT q) {
+        return !equals(p, q);
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     */
+    public static boolean greaterThanOrEquals(BigRationalUDT p,
+            BigRationalUDT q) {
+        return lessThanOrEquals(q, p);
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     */
+    public static boolean greaterThan(BigRationalUDT p, BigRationalUDT q) {
+        return lessThan(q, p);
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param input
+     * @return
+     * @throws SQLException
+     */
+    public static BigRationalUDT newInstance(String input) throws SQLException {
+        if (input == null) {
+            return null;
+        }
+        return parse(input, TYPE_NAME);
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param value
+     * @return
+     * @throws SQLException
+     */
+    public static BigRationalUDT newInstance(int value) throws SQLException {
+        return new BigRationalUDT(value);
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param value
+     * @return
+     * @throws SQLException
+     */
+    public static BigRationalUDT newInstance(long value) throws SQLException {
+        return new BigRationalUDT(value);
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param value
+     * @return
+     * @throws SQLException
+     */
+    public static BigRationalUDT newInstance(RationalUDT value)
+            throws SQLException {
+        if ((value == null) || (value.getValue() == null)) {
+            return null;
+        }
+        return new BigRationalUDT(new BigRational(value.getValue()));
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param p
+     * @return
+     * @throws SQLException
+     */
+    public static BigDecimal numerator(BigRationalUDT p) throws SQLException {
+        if ((p == null) || (p.value == null)) {
+            return null;
+        }
+        return new BigDecimal(p.value.getNumerator());
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param p
+     * @return
+     * @throws SQLException
+     */
+    public static BigDecimal denominator(BigRationalUDT p) throws SQLException {
+        if ((p == null) || (p.value == null)) {
+            return null;
+        }
+        return new BigDecimal(p.value.getDenominator());
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param p
+     * @return
+     * @throws SQLException
+     */
+    public static Double value(BigRationalUDT p) throws SQLException {
+        if ((p == null) || (p.value == null)) {
+            return null;
+        }
+        return p.value.doubleValue();
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     */
+    public static BigRationalUDT min(BigRationalUDT p, BigRationalUDT q) {
+        if ((p == null) || (p.value == null) || (q == null)
+                || (q.value == null)) {
+            return null;
+        }
+        return BigRationalUDT.lessThanOrEquals(p, q) ? p : q;
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     */
+    public static BigRationalUDT max(BigRationalUDT p, BigRationalUDT q) {
+        if ((p == null) || (p.value == null) || (q == null)
+                || (q.value == null)) {
+            return null;
+        }
+        return BigRationalUDT.greaterThanOrEquals(p, q) ? p : q;
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param p
+     * @return
+     * @throws SQLException
+     */
+    public static BigRationalUDT negate(BigRationalUDT p) throws SQLException {
+        if ((p == null) || (p.value == null)) {
+            return null;
+        }
+        return new BigRationalUDT(p.value.negate());
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     * @throws SQLException
+     */
+    public static BigRationalUDT add(BigRationalUDT p, BigRationalUDT q)
+            throws SQLException {
+        if ((p == null) || (p.value == null) || (q == null)
+                || (q.value == null)) {
+            return null;
+        }
+        return new BigRationalUDT(p.value.add(q.value));
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     * @throws SQLException
+     */
+    public static BigRationalUDT subtract(BigRationalUDT p, BigRationalUDT q)
+            throws SQLException {
+        if ((p == null) || (p.value == null) || (q == null)
+                || (q.value == null)) {
+            return null;
+        }
+        return new BigRationalUDT(p.value.subtract(q.value));
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     * @throws SQLException
+     */
+    public static BigRationalUDT multiply(BigRationalUDT p, BigRationalUDT q)
+            throws SQLException {
+        if ((p == null) || (p.value == null) || (q == null)
+                || (q.value == null)) {
+            return null;
+        }
+        return new BigRationalUDT(p.value.multiply(q.value));
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     * @throws SQLException
+     */
+    public static BigRationalUDT divide(BigRationalUDT p, BigRationalUDT q)
+            throws SQLException {
+        if ((p == null) || (p.value == null) || (q == null)
+                || (q.value == null)) {
+            return null;
+        }
+        if (q.value.signum() == 0) {
+            throw new SQLException("attempt to divide by zero.");
+        }
+        return new BigRationalUDT(p.value.divide(q.value));
+    }
+}
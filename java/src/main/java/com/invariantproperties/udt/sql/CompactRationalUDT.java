@@ -0,0 +1,413 @@
+/*
+ * This code was written by Bear Giles <bgiles@coyotesong.com>and he
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Any contributions made by others are licensed to this project under
+ * one or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ * Copyright (c) 2012 Bear Giles <bgiles@coyotesong.com>
+ */
+package com.invariantproperties.udt.sql;
+
+import java.sql.SQLData;
+import java.sql.SQLException;
+import java.sql.SQLInput;
+import java.sql.SQLOutput;
+import java.util.ResourceBundle;
+
+import com.invariantproperties.udt.Rational;
+
+/**
+ * Glue that allows Rational numbers to be stored in a compact variable-length
+ * format. This is an alternative to RationalUDT, which always uses 16 bytes,
+ * for large tables where most values have small numerators and denominators.
+ * 
+ * The value is stored as a varlena. The first byte holds a flag that is set
+ * if a denominator follows, six bits of the zig-zag encoded numerator and a
+ * continuation bit. The rest of the numerator and then the denominator, if it
+ * is not 1, follow as unsigned LEB128 varints. 3/4 takes two bytes and 12
+ * takes one, plus the one byte varlena header.
+ * 
+ * @author bgiles@coyotesong.com
+ */
+public class CompactRationalUDT implements SQLData {
+    private static final ResourceBundle bundle = ResourceBundle
+            .getBundle(CompactRationalUDT.class.getName());
+    private static final String TYPE_NAME = bundle.getString("typeName");
+    private static final int NULL_POSITION = 1;
+
+    /**
+     * Maximum encoded length: 10 bytes for the numerator (64 bits plus the
+     * flag) and 9 for the denominator (63 bits).
+     */
+    public static final int MAX_LENGTH = 19;
+
+    private Rational value;
+    private String typeName;
+
+    /**
+     * Parse input string.
+     */
+    public static CompactRationalUDT parse(String input, String typeName)
+            throws SQLException {
+        // TODO: verify recognized typename.
+        Rational value = null;
+        try {
+            value = Rational.parse(input);
+        } catch (IllegalArgumentException e) {
+            throw new SQLException(e);
+        }
+        return new CompactRationalUDT(value);
+    }
+
+    /**
+     * Constructor
+     * 
+     * @param p
+     * @throws SQLException
+     */
+    protected CompactRationalUDT(Rational p) throws SQLException {
+        this(p, TYPE_NAME);
+    }
+
+    /**
+     * Constructor
+     * 
+     * @param p
+     * @throws SQLException
+     */
+    protected CompactRationalUDT(Rational p, String typeName)
+            throws SQLException {
+        this.value = p;
+        this.typeName = typeName;
+    }
+
+    /**
+     * Get wrapped value.
+     */
+    Rational getValue() {
+        return value;
+    }
+
+    /**
+     * Get SQL Type Name.
+     */
+    public String getSQLTypeName() {
+        return typeName;
+    }
+
+    /**
+     * Encode a value into the buffer, which must have at least MAX_LENGTH
+     * bytes available.
+     * 
+     * @param p
+     * @param buffer
+     * @param offset
+     * @return the offset following the encoded value
+     */
+    public static int encode(Rational p, byte[] buffer, int offset) {
+        long n = p.getNumerator();
+        long d = p.getDenominator();
+        long zigzag = (n << 1) ^ (n >> 63);
+        int flag = (d == 1) ? 0 : 1;
+        long rest = zigzag >>> 6;
+        int b = flag | (((int) zigzag & 0x3F) << 1);
+        if (rest == 0) {
+            buffer[offset++] = (byte) b;
+        } else {
+            buffer[offset++] = (byte) (b | 0x80);
+            offset = writeVarLong(buffer, offset, rest);
+        }
+        if (flag != 0) {
+            offset = writeVarLong(buffer, offset, d);
+        }
+        return offset;
+    }
+
+    /**
+     * Decode a value.
+     * 
+     * @param buffer
+     * @param offset
+     * @param length
+     * @return
+     * @throws IllegalArgumentException
+     *             if the encoding is malformed
+     */
+    public static Rational decode(byte[] buffer, int offset, int length) {
+        int end = offset + length;
+        int[] pos = new int[] { offset };
+        if (offset >= end) {
+            throw malformed();
+        }
+        int b = buffer[pos[0]++];
+        long zigzag = (b >>> 1) & 0x3F;
+        if ((b & 0x80) != 0) {
+            long rest = readVarLong(buffer, pos, end);
+            if ((rest >>> 58) != 0) {
+                throw malformed();
+            }
+            zigzag |= rest << 6;
+        }
+        long n = (zigzag >>> 1) ^ -(zigzag & 1);
+        long d = 1;
+        if ((b & 1) != 0) {
+            d = readVarLong(buffer, pos, end);
+            if (d <= 1) {
+                throw malformed();
+            }
+        }
+        if (pos[0] != end) {
+            throw malformed();
+        }
+        return Rational.valueOf(n, d);
+    }
+
+    private static int writeVarLong(byte[] buffer, int offset, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[offset++] = (byte) value;
+        return offset;
+    }
+
+    private static long readVarLong(byte[] buffer, int[] pos, int end) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (pos[0] >= end) {
+                throw malformed();
+            }
+            int b = buffer[pos[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw malformed();
+    }
+
+    private static IllegalArgumentException malformed() {
+        return new IllegalArgumentException("malformed compact rational");
+    }
+
+    /**
+     * Read object from SQLInput stream. The stream is read up to the last
+     * byte of the final varint since the varlena length isn't visible here.
+     */
+    public void readSQL(SQLInput stream, String typeName) throws SQLException {
+        byte[] buffer = new byte[MAX_LENGTH];
+        int len = 0;
+        byte first = stream.readByte();
+        buffer[len++] = first;
+        int varints = (((first & 0x80) != 0) ? 1 : 0) + (first & 1);
+        while (varints > 0) {
+            if (len == MAX_LENGTH) {
+                throw new SQLException("malformed compact rational");
+            }
+            byte b = stream.readByte();
+            buffer[len++] = b;
+            if ((b & 0x80) == 0) {
+                varints--;
+            }
+        }
+        try {
+            this.value = decode(buffer, 0, len);
+        } catch (IllegalArgumentException e) {
+            throw new SQLException(e);
+        }
+        this.typeName = typeName;
+    }
+
+    /**
+     * Write object to SQLOutput stream.
+     */
+    public void writeSQL(SQLOutput stream) throws SQLException {
+        byte[] buffer = new byte[MAX_LENGTH];
+        int len = encode(value, buffer, 0);
+        for (int i = 0; i < len; i++) {
+            stream.writeByte(buffer[i]);
+        }
+    }
+
+    /**
+     * @see java.lang.Object#hashCode()
+     */
+    public int hashCode() {
+        return (value == null) ? 0 : value.hashCode();
+    }
+
+    /**
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    public boolean equals(Object o) {
+        if ((value == null) || (o == null)) {
+            return false;
+        }
+
+        if (this == o) {
+            return true;
+        }
+
+        if (!(o instanceof CompactRationalUDT)) {
+            return false;
+        }
+
+        CompactRationalUDT r = (CompactRationalUDT) o;
+        if (r.value == null) {
+            return false;
+        }
+
+        return value.equals(r.value);
+    }
+
+    /**
+     * Return string representing value. See RationalUDT.toString() for a
+     * discussion of the SQL contract.
+     * 
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return (value == null) ? null : value.toString();
+    }
+
+    /**
+     * Static hash method that will be published as user-defined function.
+     * 
+     * @param p
+     * @return
+     */
+    public static int hash(CompactRationalUDT p) {
+        if ((p == null) || (p.value == null)) {
+            return 0;
+        }
+        return p.value.hashCode();
+    }
+
+    /**
+     * Static hash method that will be published as user-defined function.
+     * 
+     * @param p
+     * @param seed
+     * @return
+     */
+    public static long hashExtended(CompactRationalUDT p, long seed) {
+        if ((p == null) || (p.value == null)) {
+            return seed;
+        }
+        return p.value.hash64(seed);
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     */
+    public static int compare(CompactRationalUDT p, CompactRationalUDT q) {
+        if ((p == null) || (p.value == null) || (q == null)
+                || (q.value == null)) {
+            return -NULL_POSITION;
+        }
+        return p.value.compareTo(q.value);
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     */
+    public static boolean lessThan(CompactRationalUDT p, CompactRationalUDT q) {
+        return compare(p, q) < 0;
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     */
+    public static boolean lessThanOrEquals(CompactRationalUDT p,
+            CompactRationalUDT q) {
+        return compare(p, q) <= 0;
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     */
+    public static boolean equals(CompactRationalUDT p, CompactRationalUDT q) {
+        return compare(p, q) == 0;
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     */
+    public static boolean notEquals(CompactRationalUDT p, CompactRationalUDT q) {
+        return !equals(p, q);
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     */
+    public static boolean greaterThanOrEquals(CompactRationalUDT p,
+            CompactRationalUDT q) {
+        return lessThanOrEquals(q, p);
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     */
+    public static boolean greaterThan(CompactRationalUDT p,
+            CompactRationalUDT q) {
+        return lessThan(q, p);
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param value
+     * @return
+     * @throws SQLException
+     */
+    public static CompactRationalUDT newInstance(RationalUDT value)
+            throws SQLException {
+        if ((value == null) || (value.getValue() == null)) {
+            return null;
+        }
+        return new CompactRationalUDT(value.getValue());
+    }
+}
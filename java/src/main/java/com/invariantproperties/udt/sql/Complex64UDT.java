@@ -0,0 +1,399 @@
+/*
+ * This code was written by Bear Giles <bgiles@coyotesong.com>and he
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Any contributions made by others are licensed to this project under
+ * one or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ * Copyright (c) 2012 Bear Giles <bgiles@coyotesong.com>
+ */
+package com.invariantproperties.udt.sql;
+
+import java.sql.SQLData;
+import java.sql.SQLException;
+import java.sql.SQLInput;
+import java.sql.SQLOutput;
+import java.util.ResourceBundle;
+
+import com.invariantproperties.udt.Complex32;
+
+/**
+ * Glue that allows single-precision Complex32 numbers to be stored as
+ * user-defined types in database. The value is stored as two float4 values,
+ * half the size of the complex type.
+ * 
+ * @author bgiles@coyotesong.com
+ */
+public class Complex64UDT implements SQLData {
+    private static final ResourceBundle bundle = ResourceBundle
+            .getBundle(Complex64UDT.class.getName());
+    private static final String TYPE_NAME = bundle.getString("typeName");
+    private static final ThreadLocal<StringBuilder> BUFFER = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(36);
+        }
+    };
+    private Complex32 value;
+    private String typeName;
+
+    /**
+     * Parse input string.
+     */
+    public static Complex64UDT parse(String input, String typeName)
+            throws SQLException {
+        // TODO: verify recognized typename.
+        Complex32 value = null;
+        try {
+            value = Complex32.parse(input);
+        } catch (IllegalArgumentException e) {
+            throw new SQLException(e);
+        }
+        return new Complex64UDT(value);
+    }
+
+    /**
+     * Constructor taking real and imaginary values.
+     * 
+     * @param real
+     * @param imaginary
+     * @throws SQLException
+     */
+    public Complex64UDT(float real, float imaginary) throws SQLException {
+        this(new Complex32(real, imaginary));
+    }
+
+    /**
+     * Copy constructor (convenience)
+     * 
+     * @param p
+     * @throws SQLException
+     */
+    protected Complex64UDT(Complex32 p) throws SQLException {
+        this.value = p;
+        this.typeName = TYPE_NAME;
+    }
+
+    /**
+     * Get wrapped value.
+     */
+    Complex32 getValue() {
+        return value;
+    }
+
+    /**
+     * Get SQL Type Name.
+     */
+    public String getSQLTypeName() {
+        return typeName;
+    }
+
+    /**
+     * Read object from SQLInput stream.
+     */
+    public void readSQL(SQLInput stream, String typeName) throws SQLException {
+        float re = stream.readFloat();
+        float im = stream.readFloat();
+        this.value = new Complex32(re, im);
+        this.typeName = typeName;
+    }
+
+    /**
+     * Write object to SQLOutput stream.
+     */
+    public void writeSQL(SQLOutput stream) throws SQLException {
+        stream.writeFloat(value.Re());
+        stream.writeFloat(value.Im());
+    }
+
+    /**
+     * @see java.lang.Object#hashCode()
+     */
+    public int hashCode() {
+        return (value == null) ? 0 : value.hashCode();
+    }
+
+    /**
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    public boolean equals(Object o) {
+        if ((value == null) || (o == null)) {
+            return false;
+        }
+
+        if (this == o) {
+            return true;
+        }
+
+        if (!(o instanceof Complex64UDT)) {
+            return false;
+        }
+
+        Complex64UDT c = (Complex64UDT) o;
+        if (c.value == null) {
+            return false;
+        }
+
+        return value.equals(c.value);
+    }
+
+    /**
+     * Return string representing value. See ComplexUDT.toString() for a
+     * discussion of the SQL contract.
+     * 
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        if (value == null) {
+            return null;
+        }
+        StringBuilder sb = BUFFER.get();
+        sb.setLength(0);
+        return value.appendTo(sb).toString();
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param input
+     * @return
+     * @throws SQLException
+     */
+    public static Complex64UDT newInstance(String input) throws SQLException {
+        if (input == null) {
+            return null;
+        }
+        return parse(input, TYPE_NAME);
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * rounds the components to float.
+     * 
+     * @param value
+     * @return
+     * @throws SQLException
+     */
+    public static Complex64UDT newInstance(ComplexUDT value)
+            throws SQLException {
+        if ((value == null) || (value.getValue() == null)) {
+            return null;
+        }
+        return new Complex64UDT(new Complex32(value.getValue()));
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param p
+     * @return
+     * @throws SQLException
+     */
+    public static Float re(Complex64UDT p) throws SQLException {
+        if ((p == null) || (p.value == null)) {
+            return null;
+        }
+        return p.value.Re();
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param p
+     * @return
+     * @throws SQLException
+     */
+    public static Float im(Complex64UDT p) throws SQLException {
+        if ((p == null) || (p.value == null)) {
+            return null;
+        }
+        return p.value.Im();
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     */
+    public static boolean equals(Complex64UDT p, Complex64UDT q) {
+        if ((p == null) || (p.value == null) || (q == null)
+                || (q.value == null)) {
+            return false;
+        }
+        return p.value.equals(q.value);
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     */
+    public static boolean notEquals(Complex64UDT p, Complex64UDT q) {
+        if ((p == null) || (p.value == null) || (q == null)
+                || (q.value == null)) {
+            return false;
+        }
+        return !p.value.equals(q.value);
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param p
+     * @return
+     * @throws SQLException
+     */
+    public static Complex64UDT negate(Complex64UDT p) throws SQLException {
+        if ((p == null) || (p.value == null)) {
+            return null;
+        }
+        return new Complex64UDT(p.value.negate());
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     * @throws SQLException
+     */
+    public static Complex64UDT add(Complex64UDT p, Complex64UDT q)
+            throws SQLException {
+        if ((p == null) || (p.value == null) || (q == null)
+                || (q.value == null)) {
+            return null;
+        }
+        return new Complex64UDT(p.value.add(q.value));
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     * @throws SQLException
+     */
+    public static Complex64UDT subtract(Complex64UDT p, Complex64UDT q)
+            throws SQLException {
+        if ((p == null) || (p.value == null) || (q == null)
+                || (q.value == null)) {
+            return null;
+        }
+        return new Complex64UDT(p.value.subtract(q.value));
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     * @throws SQLException
+     */
+    public static Complex64UDT multiply(Complex64UDT p, Complex64UDT q)
+            throws SQLException {
+        if ((p == null) || (p.value == null) || (q == null)
+                || (q.value == null)) {
+            return null;
+        }
+        return new Complex64UDT(p.value.multiply(q.value));
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     * @throws SQLException
+     */
+    public static Complex64UDT multiply(Complex64UDT p, double q)
+            throws SQLException {
+        if ((p == null) || (p.value == null)) {
+            return null;
+        }
+        return new Complex64UDT(p.value.multiply(q));
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param q
+     * @param p
+     * @return
+     * @throws SQLException
+     */
+    public static Complex64UDT multiply(double q, Complex64UDT p)
+            throws SQLException {
+        return multiply(p, q);
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     * @throws SQLException
+     */
+    public static Complex64UDT divide(Complex64UDT p, Complex64UDT q)
+            throws SQLException {
+        if ((p == null) || (p.value == null) || (q == null)
+                || (q.value == null)) {
+            return null;
+        }
+        try {
+            return new Complex64UDT(p.value.divide(q.value));
+        } catch (IllegalArgumentException e) {
+            throw new SQLException(e);
+        }
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param p
+     * @return
+     * @throws SQLException
+     */
+    public static Complex64UDT conjugate(Complex64UDT p) throws SQLException {
+        if ((p == null) || (p.value == null)) {
+            return null;
+        }
+        return new Complex64UDT(p.value.getConjugate());
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param p
+     * @return
+     * @throws SQLException
+     */
+    public static Double magnitude(Complex64UDT p) throws SQLException {
+        if ((p == null) || (p.value == null)) {
+            return null;
+        }
+        return p.value.getMagnitude();
+    }
+}
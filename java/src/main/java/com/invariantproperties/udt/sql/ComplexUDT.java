@@ -30,6 +30,11 @@ import java.sql.SQLOutput;
 import java.util.ResourceBundle;
 
 import com.invariantproperties.udt.Complex;
+import com.invariantproperties.udt.ComplexAccumulator;
+import com.invariantproperties.udt.ComplexFFT;
+import com.invariantproperties.udt.ComplexStatistics;
+import com.invariantproperties.udt.HyperLogLog;
+import com.invariantproperties.udt.ComplexVector;
 
 /**
  * Glue that allows Complex numbers to be stored as user-defined types in
@@ -44,6 +49,13 @@ public class ComplexUDT implements SQLData {
     private static final ResourceBundle bundle = ResourceBundle
             .getBundle(ComplexUDT.class.getName());
     private static final String TYPE_NAME = bundle.getString("typeName");
+    private static final int NULL_POSITION = 1;
+    private static final ThreadLocal<StringBuilder> BUFFER = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(56);
+        }
+    };
     private Complex value;
     private String typeName;
 
@@ -118,6 +130,13 @@ public class ComplexUDT implements SQLData {
         this.typeName = TYPE_NAME;
     }
 
+    /**
+     * Get wrapped value.
+     */
+    Complex getValue() {
+        return value;
+    }
+
     /**
      * Get SQL Type Name.
      */
@@ -182,11 +201,132 @@ public class ComplexUDT implements SQLData {
      * Therefore this method breaks the standard java contract and follows
      * the SQL contract.
      * 
+     * This is the type's output function so the text is built in a reused
+     * buffer.
+     * 
      * @see java.lang.Object#toString()
      */
     @Override
     public String toString() {
-        return (value == null) ? null : value.toString();
+        if (value == null) {
+            return null;
+        }
+        StringBuilder sb = BUFFER.get();
+        sb.setLength(0);
+        return value.appendTo(sb).toString();
+    }
+
+    /**
+     * Static hash method that will be published as user-defined function. This
+     * is the support function for the hash operator class.
+     * 
+     * @param p
+     * @return
+     */
+    public static int hash(ComplexUDT p) {
+        if ((p == null) || (p.value == null)) {
+            return 0;
+        }
+        return p.value.hashCode();
+    }
+
+    /**
+     * Static hash method that will be published as user-defined function. This
+     * is the extended support function for the hash operator class and is
+     * required for hash partitioning. The low 32 bits match hash() when the
+     * seed is zero.
+     * 
+     * @param p
+     * @param seed
+     * @return
+     */
+    public static long hashExtended(ComplexUDT p, long seed) {
+        if ((p == null) || (p.value == null)) {
+            return seed;
+        }
+        return p.value.hash64(seed);
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * This is the lexicographic order on (re, im) described in Complex.
+     * 
+     * @param p
+     * @param q
+     * @return
+     */
+    public static int compare(ComplexUDT p, ComplexUDT q) {
+        if ((p == null) || (p.value == null) || (q == null)
+                || (q.value == null)) {
+            return -NULL_POSITION;
+        }
+        return p.value.compareTo(q.value);
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     */
+    public static boolean lessThan(ComplexUDT p, ComplexUDT q) {
+        return compare(p, q) < 0;
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     */
+    public static boolean lessThanOrEquals(ComplexUDT p, ComplexUDT q) {
+        return compare(p, q) <= 0;
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     */
+    public static boolean equals(ComplexUDT p, ComplexUDT q) {
+        return compare(p, q) == 0;
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     */
+    public static boolean notEquals(ComplexUDT p, ComplexUDT q) {
+        return compare(p, q) != 0;
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     */
+    public static boolean greaterThanOrEquals(ComplexUDT p, ComplexUDT q) {
+        return compare(p, q) >= 0;
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     */
+    public static boolean greaterThan(ComplexUDT p, ComplexUDT q) {
+        return compare(p, q) > 0;
     }
 
     /**
@@ -259,6 +399,63 @@ public class ComplexUDT implements SQLData {
         return new ComplexUDT(value);
     }
 
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param real
+     * @param imaginary
+     * @return
+     * @throws SQLException
+     */
+    public static ComplexUDT newInstance(double real, double imaginary)
+            throws SQLException {
+        return new ComplexUDT(real, imaginary);
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * conversion is exact.
+     * 
+     * @param value
+     * @return
+     * @throws SQLException
+     */
+    public static ComplexUDT newInstance(Complex64UDT value)
+            throws SQLException {
+        if ((value == null) || (value.getValue() == null)) {
+            return null;
+        }
+        return new ComplexUDT(value.getValue().toComplex());
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param p
+     * @return
+     * @throws SQLException
+     */
+    public static Double re(ComplexUDT p) throws SQLException {
+        if ((p == null) || (p.value == null)) {
+            return null;
+        }
+        return p.value.Re();
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param p
+     * @return
+     * @throws SQLException
+     */
+    public static Double im(ComplexUDT p) throws SQLException {
+        if ((p == null) || (p.value == null)) {
+            return null;
+        }
+        return p.value.Im();
+    }
+
     /**
      * Static methods that will be published as user-defined function.
      * 
@@ -578,6 +775,26 @@ public class ComplexUDT implements SQLData {
         return multiply(p, q.doubleValue());
     }
 
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     * @throws SQLException
+     */
+    public static ComplexUDT divide(ComplexUDT p, ComplexUDT q)
+            throws SQLException {
+        if ((p == null) || (p.value == null) || (q == null)
+                || (q.value == null)) {
+            return null;
+        }
+        if ((q.value.Re() == 0) && (q.value.Im() == 0)) {
+            throw new SQLException("attempt to divide by zero.");
+        }
+        return new ComplexUDT(p.value.divide(q.value));
+    }
+
     /**
      * Static methods that will be published as user-defined function.
      * 
@@ -619,4 +836,818 @@ public class ComplexUDT implements SQLData {
         }
         return p.value.getMagnitude();
     }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the phase angle in the range [-pi, pi].
+     * 
+     * @param p
+     * @return
+     * @throws SQLException
+     */
+    public static Double arg(ComplexUDT p) throws SQLException {
+        if ((p == null) || (p.value == null)) {
+            return null;
+        }
+        return p.value.getArgument();
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param p
+     * @return
+     * @throws SQLException
+     */
+    public static ComplexUDT exp(ComplexUDT p) throws SQLException {
+        if ((p == null) || (p.value == null)) {
+            return null;
+        }
+        return new ComplexUDT(p.value.exp());
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the principal natural logarithm.
+     * 
+     * @param p
+     * @return
+     * @throws SQLException
+     */
+    public static ComplexUDT log(ComplexUDT p) throws SQLException {
+        if ((p == null) || (p.value == null)) {
+            return null;
+        }
+        return new ComplexUDT(p.value.log());
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the principal square root.
+     * 
+     * @param p
+     * @return
+     * @throws SQLException
+     */
+    public static ComplexUDT sqrt(ComplexUDT p) throws SQLException {
+        if ((p == null) || (p.value == null)) {
+            return null;
+        }
+        return new ComplexUDT(p.value.sqrt());
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the principal power.
+     * 
+     * @param p
+     * @param q
+     * @return
+     * @throws SQLException
+     */
+    public static ComplexUDT pow(ComplexUDT p, ComplexUDT q)
+            throws SQLException {
+        if ((p == null) || (p.value == null) || (q == null)
+                || (q.value == null)) {
+            return null;
+        }
+        try {
+            return new ComplexUDT(p.value.pow(q.value));
+        } catch (IllegalArgumentException e) {
+            throw new SQLException(e);
+        }
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the principal power.
+     * 
+     * @param p
+     * @param q
+     * @return
+     * @throws SQLException
+     */
+    public static ComplexUDT pow(ComplexUDT p, double q) throws SQLException {
+        if ((p == null) || (p.value == null)) {
+            return null;
+        }
+        try {
+            return new ComplexUDT(p.value.pow(q));
+        } catch (IllegalArgumentException e) {
+            throw new SQLException(e);
+        }
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param p
+     * @return
+     * @throws SQLException
+     */
+    public static ComplexUDT sin(ComplexUDT p) throws SQLException {
+        if ((p == null) || (p.value == null)) {
+            return null;
+        }
+        return new ComplexUDT(p.value.sin());
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param p
+     * @return
+     * @throws SQLException
+     */
+    public static ComplexUDT cos(ComplexUDT p) throws SQLException {
+        if ((p == null) || (p.value == null)) {
+            return null;
+        }
+        return new ComplexUDT(p.value.cos());
+    }
+
+    /**
+     * Copy an array into a vector, with nulls replaced by zero.
+     */
+    private static ComplexVector toVector(ComplexUDT[] values) {
+        ComplexVector vector = new ComplexVector(values.length);
+        for (int i = 0; i < values.length; i++) {
+            if (!isNull(values, i)) {
+                vector.set(i, values[i].value);
+            }
+        }
+        return vector;
+    }
+
+    /**
+     * Copy a vector into an array. An element is null if the corresponding
+     * element of either input array is null.
+     */
+    private static ComplexUDT[] toArray(ComplexVector v, ComplexUDT[] p,
+            ComplexUDT[] q) throws SQLException {
+        ComplexUDT[] results = new ComplexUDT[v.size()];
+        for (int i = 0; i < results.length; i++) {
+            if (!isNull(p, i) && ((q == null) || !isNull(q, i))) {
+                results[i] = new ComplexUDT(v.getReal(i), v.getImaginary(i));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Copy a vector into an array.
+     */
+    private static ComplexUDT[] toArray(ComplexVector v) throws SQLException {
+        ComplexUDT[] results = new ComplexUDT[v.size()];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = new ComplexUDT(v.getReal(i), v.getImaginary(i));
+        }
+        return results;
+    }
+
+    private static boolean isNull(ComplexUDT[] values, int i) {
+        return (values[i] == null) || (values[i].value == null);
+    }
+
+    private static void checkLength(int p, int q) throws SQLException {
+        if (p != q) {
+            throw new SQLException("array lengths differ: " + p + " and " + q);
+        }
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * builds an array from separate arrays of real and imaginary parts.
+     * 
+     * @param re
+     * @param im
+     * @return
+     * @throws SQLException
+     */
+    public static ComplexUDT[] newArray(double[] re, double[] im)
+            throws SQLException {
+        if ((re == null) || (im == null)) {
+            return null;
+        }
+        checkLength(re.length, im.length);
+        ComplexUDT[] results = new ComplexUDT[re.length];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = new ComplexUDT(re[i], im[i]);
+        }
+        return results;
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the real part of each element. Null elements are treated as zero.
+     * 
+     * @param p
+     * @return
+     * @throws SQLException
+     */
+    public static double[] arrayRe(ComplexUDT[] p) throws SQLException {
+        if (p == null) {
+            return null;
+        }
+        return toVector(p).getReal();
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the imaginary part of each element. Null elements are treated as
+     * zero.
+     * 
+     * @param p
+     * @return
+     * @throws SQLException
+     */
+    public static double[] arrayIm(ComplexUDT[] p) throws SQLException {
+        if (p == null) {
+            return null;
+        }
+        return toVector(p).getImaginary();
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the element-wise sum. An element is null if either input element is
+     * null.
+     * 
+     * @param p
+     * @param q
+     * @return
+     * @throws SQLException
+     */
+    public static ComplexUDT[] arrayAdd(ComplexUDT[] p, ComplexUDT[] q)
+            throws SQLException {
+        if ((p == null) || (q == null)) {
+            return null;
+        }
+        checkLength(p.length, q.length);
+        return toArray(toVector(p).add(toVector(q)), p, q);
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the element-wise difference. An element is null if either input
+     * element is null.
+     * 
+     * @param p
+     * @param q
+     * @return
+     * @throws SQLException
+     */
+    public static ComplexUDT[] arraySubtract(ComplexUDT[] p, ComplexUDT[] q)
+            throws SQLException {
+        if ((p == null) || (q == null)) {
+            return null;
+        }
+        checkLength(p.length, q.length);
+        return toArray(toVector(p).subtract(toVector(q)), p, q);
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the element-wise product. An element is null if either input element
+     * is null.
+     * 
+     * @param p
+     * @param q
+     * @return
+     * @throws SQLException
+     */
+    public static ComplexUDT[] arrayMultiply(ComplexUDT[] p, ComplexUDT[] q)
+            throws SQLException {
+        if ((p == null) || (q == null)) {
+            return null;
+        }
+        checkLength(p.length, q.length);
+        return toArray(toVector(p).multiply(toVector(q)), p, q);
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the element-wise product p[i] * conj(q[i]). An element is null if
+     * either input element is null.
+     * 
+     * @param p
+     * @param q
+     * @return
+     * @throws SQLException
+     */
+    public static ComplexUDT[] arrayMultiplyConjugate(ComplexUDT[] p,
+            ComplexUDT[] q) throws SQLException {
+        if ((p == null) || (q == null)) {
+            return null;
+        }
+        checkLength(p.length, q.length);
+        return toArray(toVector(p).multiplyConjugate(toVector(q)), p, q);
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * multiplies each element by a real scalar.
+     * 
+     * @param p
+     * @param s
+     * @return
+     * @throws SQLException
+     */
+    public static ComplexUDT[] arrayScale(ComplexUDT[] p, double s)
+            throws SQLException {
+        if (p == null) {
+            return null;
+        }
+        return toArray(toVector(p).scale(s), p, null);
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the element-wise conjugate.
+     * 
+     * @param p
+     * @return
+     * @throws SQLException
+     */
+    public static ComplexUDT[] arrayConjugate(ComplexUDT[] p)
+            throws SQLException {
+        if (p == null) {
+            return null;
+        }
+        return toArray(toVector(p).conjugate(), p, null);
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the element-wise magnitude. An element is null if the input element
+     * is null.
+     * 
+     * @param p
+     * @return
+     * @throws SQLException
+     */
+    public static Double[] arrayMagnitude(ComplexUDT[] p) throws SQLException {
+        if (p == null) {
+            return null;
+        }
+        double[] v = toVector(p).magnitude();
+        Double[] results = new Double[p.length];
+        for (int i = 0; i < results.length; i++) {
+            if (!isNull(p, i)) {
+                results[i] = v[i];
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the dot product sum(p[i] * q[i]). Null elements are treated as zero.
+     * 
+     * @param p
+     * @param q
+     * @return
+     * @throws SQLException
+     */
+    public static ComplexUDT arrayDot(ComplexUDT[] p, ComplexUDT[] q)
+            throws SQLException {
+        if ((p == null) || (q == null)) {
+            return null;
+        }
+        checkLength(p.length, q.length);
+        return new ComplexUDT(toVector(p).dot(toVector(q)));
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the Hermitian inner product sum(p[i] * conj(q[i])). Null elements are
+     * treated as zero.
+     * 
+     * @param p
+     * @param q
+     * @return
+     * @throws SQLException
+     */
+    public static ComplexUDT arrayDotConjugate(ComplexUDT[] p, ComplexUDT[] q)
+            throws SQLException {
+        if ((p == null) || (q == null)) {
+            return null;
+        }
+        checkLength(p.length, q.length);
+        return new ComplexUDT(toVector(p).dotConjugate(toVector(q)));
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the dot product of two vectors given as separate arrays of real and
+     * imaginary parts, so no complex values are materialized.
+     * 
+     * @param pre
+     * @param pim
+     * @param qre
+     * @param qim
+     * @return
+     * @throws SQLException
+     */
+    public static ComplexUDT arrayDot(double[] pre, double[] pim,
+            double[] qre, double[] qim) throws SQLException {
+        if ((pre == null) || (pim == null) || (qre == null) || (qim == null)) {
+            return null;
+        }
+        checkLength(pre.length, pim.length);
+        checkLength(qre.length, qim.length);
+        checkLength(pre.length, qre.length);
+        return new ComplexUDT(new ComplexVector(pre, pim)
+                .dot(new ComplexVector(qre, qim)));
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the Euclidean norm. Null elements are treated as zero.
+     * 
+     * @param p
+     * @return
+     * @throws SQLException
+     */
+    public static Double arrayNorm(ComplexUDT[] p) throws SQLException {
+        if (p == null) {
+            return null;
+        }
+        return toVector(p).norm();
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the discrete Fourier transform. Null elements are treated as zero.
+     * 
+     * @param p
+     * @return
+     * @throws SQLException
+     */
+    public static ComplexUDT[] fft(ComplexUDT[] p) throws SQLException {
+        if (p == null) {
+            return null;
+        }
+        return toArray(ComplexFFT.fft(toVector(p)));
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the inverse discrete Fourier transform, scaled by 1/n. Null elements
+     * are treated as zero.
+     * 
+     * @param p
+     * @return
+     * @throws SQLException
+     */
+    public static ComplexUDT[] ifft(ComplexUDT[] p) throws SQLException {
+        if (p == null) {
+            return null;
+        }
+        return toArray(ComplexFFT.ifft(toVector(p)));
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the linear convolution, computed by FFT. Null elements are treated
+     * as zero.
+     * 
+     * @param p
+     * @param q
+     * @return
+     * @throws SQLException
+     */
+    public static ComplexUDT[] convolve(ComplexUDT[] p, ComplexUDT[] q)
+            throws SQLException {
+        if ((p == null) || (q == null)) {
+            return null;
+        }
+        return toArray(ComplexFFT.convolve(toVector(p), toVector(q)));
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the cross-correlation for lags -(length(q) - 1) through length(p) -
+     * 1, computed by FFT. Null elements are treated as zero.
+     * 
+     * @param p
+     * @param q
+     * @return
+     * @throws SQLException
+     */
+    public static ComplexUDT[] xcorr(ComplexUDT[] p, ComplexUDT[] q)
+            throws SQLException {
+        if ((p == null) || (q == null)) {
+            return null;
+        }
+        return toArray(ComplexFFT.xcorr(toVector(p), toVector(q)));
+    }
+
+    /**
+     * Decode aggregate state.
+     */
+    private static ComplexAccumulator toAccumulator(byte[] state)
+            throws SQLException {
+        try {
+            return ComplexAccumulator.fromByteArray(state);
+        } catch (IllegalArgumentException e) {
+            throw new SQLException(e);
+        }
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the transition function of the sum aggregate. The state is an
+     * encoded ComplexAccumulator, or null before the first non-null value.
+     * 
+     * @param state
+     * @param p
+     * @return
+     * @throws SQLException
+     */
+    public static byte[] accumulate(byte[] state, ComplexUDT p)
+            throws SQLException {
+        if ((p == null) || (p.value == null)) {
+            return state;
+        }
+        ComplexAccumulator acc = (state == null) ? new ComplexAccumulator()
+                : toAccumulator(state);
+        acc.add(p.value);
+        return acc.toByteArray();
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the inverse transition function of the sum aggregate when it is
+     * used as a window function. It returns null, which tells the database
+     * to recompute the window frame, if the sum is not finite.
+     * 
+     * @param state
+     * @param p
+     * @return
+     * @throws SQLException
+     */
+    public static byte[] deaccumulate(byte[] state, ComplexUDT p)
+            throws SQLException {
+        if ((p == null) || (p.value == null)) {
+            return state;
+        }
+        ComplexAccumulator acc = toAccumulator(state);
+        if ((acc.getCount() == 0) || !acc.isFinite()
+                || !Double.isFinite(p.value.getReal())
+                || !Double.isFinite(p.value.getImaginary())) {
+            return null;
+        }
+        acc.remove(p.value);
+        return acc.toByteArray();
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the final function of the sum aggregate.
+     * 
+     * @param state
+     * @return
+     * @throws SQLException
+     */
+    public static ComplexUDT accumulatorSum(byte[] state) throws SQLException {
+        if (state == null) {
+            return null;
+        }
+        ComplexAccumulator acc = toAccumulator(state);
+        return (acc.getCount() == 0) ? null : new ComplexUDT(acc.getSum());
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the combine function of the sum and avg aggregates.
+     * 
+     * @param state
+     * @param other
+     * @return
+     * @throws SQLException
+     */
+    public static byte[] combineAccumulators(byte[] state, byte[] other)
+            throws SQLException {
+        if (other == null) {
+            return state;
+        }
+        if (state == null) {
+            return other;
+        }
+        ComplexAccumulator acc = toAccumulator(state);
+        acc.add(toAccumulator(other));
+        return acc.toByteArray();
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the final function of the avg aggregate.
+     * 
+     * @param state
+     * @return
+     * @throws SQLException
+     */
+    public static ComplexUDT accumulatorMean(byte[] state) throws SQLException {
+        if (state == null) {
+            return null;
+        }
+        Complex mean = toAccumulator(state).getMean();
+        return (mean == null) ? null : new ComplexUDT(mean);
+    }
+
+    /**
+     * Decode aggregate state.
+     */
+    private static ComplexStatistics toStatistics(byte[] state)
+            throws SQLException {
+        try {
+            return ComplexStatistics.fromByteArray(state);
+        } catch (IllegalArgumentException e) {
+            throw new SQLException(e);
+        }
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the transition function of the var_pop and var_samp aggregates.
+     * The state is an encoded ComplexStatistics.
+     * 
+     * @param state
+     * @param p
+     * @return
+     * @throws SQLException
+     */
+    public static byte[] accumulateStatistics(byte[] state, ComplexUDT p)
+            throws SQLException {
+        if ((p == null) || (p.value == null)) {
+            return state;
+        }
+        ComplexStatistics stats = (state == null) ? new ComplexStatistics()
+                : toStatistics(state);
+        stats.add(p.value);
+        return stats.toByteArray();
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the transition function of the covar_pop and covar_samp aggregates.
+     * Pairs with a null value are skipped.
+     * 
+     * @param state
+     * @param p
+     * @param q
+     * @return
+     * @throws SQLException
+     */
+    public static byte[] accumulateStatistics(byte[] state, ComplexUDT p,
+            ComplexUDT q) throws SQLException {
+        if ((p == null) || (p.value == null) || (q == null)
+                || (q.value == null)) {
+            return state;
+        }
+        ComplexStatistics stats = (state == null) ? new ComplexStatistics()
+                : toStatistics(state);
+        stats.add(p.value, q.value);
+        return stats.toByteArray();
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the combine function of the variance and covariance aggregates.
+     * 
+     * @param state
+     * @param other
+     * @return
+     * @throws SQLException
+     */
+    public static byte[] combineStatistics(byte[] state, byte[] other)
+            throws SQLException {
+        if (other == null) {
+            return state;
+        }
+        if (state == null) {
+            return other;
+        }
+        ComplexStatistics stats = toStatistics(state);
+        stats.add(toStatistics(other));
+        return stats.toByteArray();
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the final function of the var_pop aggregate.
+     * 
+     * @param state
+     * @return
+     * @throws SQLException
+     */
+    public static Double populationVariance(byte[] state) throws SQLException {
+        return (state == null) ? null : toStatistics(state)
+                .getPopulationVariance();
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the final function of the var_samp aggregate.
+     * 
+     * @param state
+     * @return
+     * @throws SQLException
+     */
+    public static Double sampleVariance(byte[] state) throws SQLException {
+        return (state == null) ? null : toStatistics(state)
+                .getSampleVariance();
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the final function of the covar_pop aggregate.
+     * 
+     * @param state
+     * @return
+     * @throws SQLException
+     */
+    public static ComplexUDT populationCovariance(byte[] state)
+            throws SQLException {
+        if (state == null) {
+            return null;
+        }
+        Complex covar = toStatistics(state).getPopulationCovariance();
+        return (covar == null) ? null : new ComplexUDT(covar);
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the final function of the covar_samp aggregate.
+     * 
+     * @param state
+     * @return
+     * @throws SQLException
+     */
+    public static ComplexUDT sampleCovariance(byte[] state)
+            throws SQLException {
+        if (state == null) {
+            return null;
+        }
+        Complex covar = toStatistics(state).getSampleCovariance();
+        return (covar == null) ? null : new ComplexUDT(covar);
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the transition function of the tdigest aggregate. The state is an
+     * encoded TDigest of the magnitudes. Values with an infinite or NaN
+     * magnitude are skipped.
+     * 
+     * @param state
+     * @param p
+     * @return
+     * @throws SQLException
+     */
+    public static byte[] tdigestAdd(byte[] state, ComplexUDT p)
+            throws SQLException {
+        if ((p == null) || (p.value == null)) {
+            return state;
+        }
+        double magnitude = p.value.getMagnitude();
+        if (!Double.isFinite(magnitude)) {
+            return state;
+        }
+        return SketchFunctions.tdigestAdd(state, magnitude);
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the transition function of the approx_count_distinct aggregate.
+     * The state is an encoded HyperLogLog of the values' 64-bit hashes.
+     * 
+     * @param state
+     * @param p
+     * @return
+     * @throws SQLException
+     */
+    public static byte[] hllAdd(byte[] state, ComplexUDT p) throws SQLException {
+        return hllAdd(state, p, HyperLogLog.DEFAULT_PRECISION);
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the transition function of the approx_count_distinct aggregate
+     * with an explicit precision, from 4 to 18. The precision is only used
+     * when the first value is added.
+     * 
+     * @param state
+     * @param p
+     * @param precision
+     * @return
+     * @throws SQLException
+     */
+    public static byte[] hllAdd(byte[] state, ComplexUDT p, int precision)
+            throws SQLException {
+        if ((p == null) || (p.value == null)) {
+            return state;
+        }
+        return SketchFunctions.hllAdd(state, p.value.hash64(0), precision);
+    }
 }
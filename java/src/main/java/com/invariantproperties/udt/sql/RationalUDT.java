@@ -28,7 +28,12 @@ import java.sql.SQLInput;
 import java.sql.SQLOutput;
 import java.util.ResourceBundle;
 
+import com.invariantproperties.udt.BigRational;
 import com.invariantproperties.udt.Rational;
+import com.invariantproperties.udt.RationalAccumulator;
+import com.invariantproperties.udt.HyperLogLog;
+import com.invariantproperties.udt.RationalSortKey;
+import com.invariantproperties.udt.RationalVector;
 
 /**
  * Glue that allows Rational numbers to be stored as user-defined types in
@@ -41,9 +46,15 @@ import com.invariantproperties.udt.Rational;
  */
 public class RationalUDT implements SQLData {
     private static final ResourceBundle bundle = ResourceBundle
-            .getBundle(ComplexUDT.class.getName());
+            .getBundle(RationalUDT.class.getName());
     private static final String TYPE_NAME = bundle.getString("typeName");
     private static final int NULL_POSITION = 1;
+    private static final ThreadLocal<StringBuilder> BUFFER = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(41);
+        }
+    };
     private Rational value;
     private String typeName;
 
@@ -80,7 +91,7 @@ public class RationalUDT implements SQLData {
      * @throws SQLException
      */
     public RationalUDT(long numerator, long denominator) throws SQLException {
-        this(new Rational(numerator, denominator));
+        this(Rational.valueOf(numerator, denominator));
     }
 
     /**
@@ -93,7 +104,7 @@ public class RationalUDT implements SQLData {
      */
     public RationalUDT(long numerator, long denominator, String typeName)
             throws SQLException {
-        this(new Rational(numerator, denominator));
+        this(Rational.valueOf(numerator, denominator));
     }
 
     /**
@@ -117,6 +128,13 @@ public class RationalUDT implements SQLData {
         this.typeName = typeName;
     }
 
+    /**
+     * Get wrapped value.
+     */
+    Rational getValue() {
+        return value;
+    }
+
     /**
      * Get SQL Type Name.
      */
@@ -130,7 +148,7 @@ public class RationalUDT implements SQLData {
     public void readSQL(SQLInput stream, String typeName) throws SQLException {
         long n = stream.readLong();
         long d = stream.readLong();
-        this.value = new Rational(n, d);
+        this.value = Rational.valueOf(n, d);
         this.typeName = typeName;
     }
 
@@ -181,11 +199,50 @@ public class RationalUDT implements SQLData {
      * Therefore this method breaks the standard java contract and follows
      * the SQL contract.
      * 
+     * This is the type's output function so the text is built in a reused
+     * buffer.
+     * 
      * @see java.lang.Object#toString()
      */
     @Override
     public String toString() {
-        return (value == null) ? null : value.toString();
+        if (value == null) {
+            return null;
+        }
+        StringBuilder sb = BUFFER.get();
+        sb.setLength(0);
+        return value.appendTo(sb).toString();
+    }
+
+    /**
+     * Static hash method that will be published as user-defined function. This
+     * is the support function for the hash operator class.
+     * 
+     * @param p
+     * @return
+     */
+    public static int hash(RationalUDT p) {
+        if ((p == null) || (p.value == null)) {
+            return 0;
+        }
+        return p.value.hashCode();
+    }
+
+    /**
+     * Static hash method that will be published as user-defined function. This
+     * is the extended support function for the hash operator class and is
+     * required for hash partitioning. The low 32 bits match hash() when the
+     * seed is zero.
+     * 
+     * @param p
+     * @param seed
+     * @return
+     */
+    public static long hashExtended(RationalUDT p, long seed) {
+        if ((p == null) || (p.value == null)) {
+            return seed;
+        }
+        return p.value.hash64(seed);
     }
 
     /**
@@ -276,11 +333,33 @@ public class RationalUDT implements SQLData {
      * @param q
      * @return
      */
-    public static boolean lessThan(RationalUDT p, double q) {
+    public static int compare(RationalUDT p, double q) {
         if ((p == null) || (p.value == null)) {
-            return false;
+            return -NULL_POSITION;
         }
-        return p.value.compareTo(q) < 0;
+        return p.value.compareTo(q);
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param q
+     * @param p
+     * @return
+     */
+    public static int compare(double q, RationalUDT p) {
+        return -compare(p, q);
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     */
+    public static boolean lessThan(RationalUDT p, double q) {
+        return compare(p, q) < 0;
     }
 
     /**
@@ -291,10 +370,7 @@ public class RationalUDT implements SQLData {
      * @return
      */
     public static boolean lessThanOrEquals(RationalUDT p, double q) {
-        if ((p == null) || (p.value == null)) {
-            return false;
-        }
-        return p.value.compareTo(q) <= 0;
+        return compare(p, q) <= 0;
     }
 
     /**
@@ -305,10 +381,18 @@ public class RationalUDT implements SQLData {
      * @return
      */
     public static boolean equals(RationalUDT p, double q) {
-        if ((p == null) || (p.value == null)) {
-            return false;
-        }
-        return p.value.compareTo(q) == 0;
+        return compare(p, q) == 0;
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     */
+    public static boolean notEquals(RationalUDT p, double q) {
+        return compare(p, q) != 0;
     }
 
     /**
@@ -319,10 +403,7 @@ public class RationalUDT implements SQLData {
      * @return
      */
     public static boolean greaterThanOrEquals(RationalUDT p, double q) {
-        if ((p == null) || (p.value == null)) {
-            return true;
-        }
-        return p.value.compareTo(q) >= 0;
+        return compare(p, q) >= 0;
     }
 
     /**
@@ -333,205 +414,1130 @@ public class RationalUDT implements SQLData {
      * @return
      */
     public static boolean greaterThan(RationalUDT p, double q) {
-        if ((p == null) || (p.value == null)) {
-            return true;
-        }
-        return p.value.compareTo(q) > 0;
+        return compare(p, q) > 0;
     }
 
     /**
-     * Static methods that will be published as user-defined function.
+     * Static comparison method that will be published as user-defined function.
      * 
-     * @param input
+     * @param q
+     * @param p
      * @return
-     * @throws SQLException
      */
-    public static RationalUDT newInstance(String input) throws SQLException {
-        if (input == null) {
-            return null;
-        }
-        return parse(input, TYPE_NAME);
+    public static boolean lessThan(double q, RationalUDT p) {
+        return compare(q, p) < 0;
     }
 
     /**
-     * Static methods that will be published as user-defined function.
+     * Static comparison method that will be published as user-defined function.
      * 
-     * @param value
+     * @param q
+     * @param p
      * @return
-     * @throws SQLException
      */
-    public static RationalUDT newInstance(int value) throws SQLException {
-        return new RationalUDT(value);
+    public static boolean lessThanOrEquals(double q, RationalUDT p) {
+        return compare(q, p) <= 0;
     }
 
     /**
-     * Static methods that will be published as user-defined function.
+     * Static comparison method that will be published as user-defined function.
      * 
-     * @param value
+     * @param q
+     * @param p
      * @return
-     * @throws SQLException
      */
-    public static RationalUDT newInstance(Integer value) throws SQLException {
-        if (value == null) {
-            return null;
-        }
-        return new RationalUDT(value.longValue());
+    public static boolean equals(double q, RationalUDT p) {
+        return compare(q, p) == 0;
     }
 
     /**
-     * Static methods that will be published as user-defined function.
+     * Static comparison method that will be published as user-defined function.
      * 
-     * @param value
+     * @param q
+     * @param p
      * @return
-     * @throws SQLException
      */
-    public static RationalUDT newInstance(long value) throws SQLException {
-        return new RationalUDT(value);
+    public static boolean notEquals(double q, RationalUDT p) {
+        return compare(q, p) != 0;
     }
 
     /**
-     * Static methods that will be published as user-defined function.
+     * Static comparison method that will be published as user-defined function.
      * 
-     * @param value
+     * @param q
+     * @param p
      * @return
-     * @throws SQLException
      */
-    public static RationalUDT newInstance(Long value) throws SQLException {
-        if (value == null) {
-            return null;
-        }
-        return new RationalUDT(value.longValue());
+    public static boolean greaterThanOrEquals(double q, RationalUDT p) {
+        return compare(q, p) >= 0;
     }
 
     /**
-     * Static methods that will be published as user-defined function.
+     * Static comparison method that will be published as user-defined function.
      * 
-     * @param value
+     * @param q
+     * @param p
      * @return
-     * @throws SQLException
      */
+    public static boolean greaterThan(double q, RationalUDT p) {
+        return compare(q, p) > 0;
+    }
 
-    public static Double value(RationalUDT p) throws SQLException {
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     */
+    public static int compare(RationalUDT p, long q) {
         if ((p == null) || (p.value == null)) {
-            return null;
+            return -NULL_POSITION;
         }
-        return p.value.doubleValue();
+        return p.value.compareTo(q);
     }
 
     /**
-     * Static methods that will be published as user-defined function.
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param q
+     * @param p
+     * @return
+     */
+    public static int compare(long q, RationalUDT p) {
+        return -compare(p, q);
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
      * 
      * @param p
      * @param q
      * @return
-     * @throws SQLException
      */
-    public static RationalUDT min(RationalUDT p, RationalUDT q) {
-        if ((p == null) || (p.value == null) || (q == null)
-                || (q.value == null)) {
-            return null;
-        }
-        return RationalUDT.lessThanOrEquals(p, q) ? p : q;
+    public static boolean lessThan(RationalUDT p, long q) {
+        return compare(p, q) < 0;
     }
 
     /**
-     * Static methods that will be published as user-defined function.
+     * Static comparison method that will be published as user-defined function.
      * 
      * @param p
      * @param q
      * @return
-     * @throws SQLException
      */
-    public static RationalUDT max(RationalUDT p, RationalUDT q) {
-        if ((p == null) || (p.value == null) || (q == null)
-                || (q.value == null)) {
-            return null;
-        }
-        return RationalUDT.greaterThanOrEquals(p, q) ? p : q;
+    public static boolean lessThanOrEquals(RationalUDT p, long q) {
+        return compare(p, q) <= 0;
     }
 
     /**
-     * Static methods that will be published as user-defined function.
+     * Static comparison method that will be published as user-defined function.
      * 
      * @param p
+     * @param q
      * @return
-     * @throws SQLException
      */
-    public static RationalUDT negate(RationalUDT p) throws SQLException {
-        if ((p == null) || (p.value == null)) {
-            return null;
-        }
-        return new RationalUDT(p.value.negate());
+    public static boolean equals(RationalUDT p, long q) {
+        return compare(p, q) == 0;
     }
 
     /**
-     * Static methods that will be published as user-defined function.
+     * Static comparison method that will be published as user-defined function.
      * 
      * @param p
      * @param q
      * @return
-     * @throws SQLException
      */
-    public static RationalUDT add(RationalUDT p, RationalUDT q)
-            throws SQLException {
-        if ((p == null) || (p.value == null) || (q == null)
-                || (q.value == null)) {
-            return null;
-        }
-        return new RationalUDT(p.value.add(q.value));
+    public static boolean notEquals(RationalUDT p, long q) {
+        return compare(p, q) != 0;
     }
 
     /**
-     * Static methods that will be published as user-defined function.
+     * Static comparison method that will be published as user-defined function.
      * 
      * @param p
      * @param q
      * @return
-     * @throws SQLException
      */
-    public static RationalUDT subtract(RationalUDT p, RationalUDT q)
-            throws SQLException {
-        if ((p == null) || (p.value == null) || (q == null)
-                || (q.value == null)) {
-            return null;
-        }
-        return new RationalUDT(p.value.subtract(q.value));
+    public static boolean greaterThanOrEquals(RationalUDT p, long q) {
+        return compare(p, q) >= 0;
     }
 
     /**
-     * Static methods that will be published as user-defined function.
+     * Static comparison method that will be published as user-defined function.
      * 
      * @param p
      * @param q
      * @return
-     * @throws SQLException
      */
-    public static RationalUDT multiply(RationalUDT p, RationalUDT q)
-            throws SQLException {
-        if ((p == null) || (p.value == null) || (q == null)
-                || (q.value == null)) {
-            return null;
-        }
-        return new RationalUDT(p.value.multiply(q.value));
+    public static boolean greaterThan(RationalUDT p, long q) {
+        return compare(p, q) > 0;
     }
 
     /**
-     * Static methods that will be published as user-defined function.
+     * Static comparison method that will be published as user-defined function.
      * 
+     * @param q
      * @param p
+     * @return
+     */
+    public static boolean lessThan(long q, RationalUDT p) {
+        return compare(q, p) < 0;
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
      * @param q
+     * @param p
      * @return
-     * @throws SQLException
      */
-    public static RationalUDT divide(RationalUDT p, RationalUDT q)
-            throws SQLException {
-        if ((p == null) || (p.value == null) || (q == null)
-                || (q.value == null)) {
-            return null;
-        }
-        if (q.value.getNumerator() == 0 && q.value.getDenominator() == 0) {
-            throw new SQLException("attempt to divide by zero.");
+    public static boolean lessThanOrEquals(long q, RationalUDT p) {
+        return compare(q, p) <= 0;
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param q
+     * @param p
+     * @return
+     */
+    public static boolean equals(long q, RationalUDT p) {
+        return compare(q, p) == 0;
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param q
+     * @param p
+     * @return
+     */
+    public static boolean notEquals(long q, RationalUDT p) {
+        return compare(q, p) != 0;
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param q
+     * @param p
+     * @return
+     */
+    public static boolean greaterThanOrEquals(long q, RationalUDT p) {
+        return compare(q, p) >= 0;
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param q
+     * @param p
+     * @return
+     */
+    public static boolean greaterThan(long q, RationalUDT p) {
+        return compare(q, p) > 0;
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     */
+    public static int compare(RationalUDT p, int q) {
+        if ((p == null) || (p.value == null)) {
+            return -NULL_POSITION;
+        }
+        return p.value.compareTo((long) q);
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param q
+     * @param p
+     * @return
+     */
+    public static int compare(int q, RationalUDT p) {
+        return -compare(p, q);
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     */
+    public static boolean lessThan(RationalUDT p, int q) {
+        return compare(p, q) < 0;
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     */
+    public static boolean lessThanOrEquals(RationalUDT p, int q) {
+        return compare(p, q) <= 0;
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     */
+    public static boolean equals(RationalUDT p, int q) {
+        return compare(p, q) == 0;
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     */
+    public static boolean notEquals(RationalUDT p, int q) {
+        return compare(p, q) != 0;
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     */
+    public static boolean greaterThanOrEquals(RationalUDT p, int q) {
+        return compare(p, q) >= 0;
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     */
+    public static boolean greaterThan(RationalUDT p, int q) {
+        return compare(p, q) > 0;
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param q
+     * @param p
+     * @return
+     */
+    public static boolean lessThan(int q, RationalUDT p) {
+        return compare(q, p) < 0;
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param q
+     * @param p
+     * @return
+     */
+    public static boolean lessThanOrEquals(int q, RationalUDT p) {
+        return compare(q, p) <= 0;
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param q
+     * @param p
+     * @return
+     */
+    public static boolean equals(int q, RationalUDT p) {
+        return compare(q, p) == 0;
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param q
+     * @param p
+     * @return
+     */
+    public static boolean notEquals(int q, RationalUDT p) {
+        return compare(q, p) != 0;
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param q
+     * @param p
+     * @return
+     */
+    public static boolean greaterThanOrEquals(int q, RationalUDT p) {
+        return compare(q, p) >= 0;
+    }
+
+    /**
+     * Static comparison method that will be published as user-defined function.
+     * 
+     * @param q
+     * @param p
+     * @return
+     */
+    public static boolean greaterThan(int q, RationalUDT p) {
+        return compare(q, p) > 0;
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param input
+     * @return
+     * @throws SQLException
+     */
+    public static RationalUDT newInstance(String input) throws SQLException {
+        if (input == null) {
+            return null;
+        }
+        return parse(input, TYPE_NAME);
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param value
+     * @return
+     * @throws SQLException
+     */
+    public static RationalUDT newInstance(int value) throws SQLException {
+        return new RationalUDT(value);
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param value
+     * @return
+     * @throws SQLException
+     */
+    public static RationalUDT newInstance(Integer value) throws SQLException {
+        if (value == null) {
+            return null;
+        }
+        return new RationalUDT(value.longValue());
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param value
+     * @return
+     * @throws SQLException
+     */
+    public static RationalUDT newInstance(long value) throws SQLException {
+        return new RationalUDT(value);
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param value
+     * @return
+     * @throws SQLException
+     */
+    public static RationalUDT newInstance(Long value) throws SQLException {
+        if (value == null) {
+            return null;
+        }
+        return new RationalUDT(value.longValue());
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param value
+     * @return
+     * @throws SQLException
+     */
+    public static RationalUDT newInstance(CompactRationalUDT value)
+            throws SQLException {
+        if ((value == null) || (value.getValue() == null)) {
+            return null;
+        }
+        return new RationalUDT(value.getValue());
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param value
+     * @return
+     * @throws SQLException
+     *             if the value is too large for a rational
+     */
+    public static RationalUDT newInstance(BigRationalUDT value)
+            throws SQLException {
+        if ((value == null) || (value.getValue() == null)) {
+            return null;
+        }
+        try {
+            return new RationalUDT(value.getValue().toRational());
+        } catch (ArithmeticException e) {
+            throw new SQLException(e);
+        }
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param value
+     * @return
+     * @throws SQLException
+     */
+
+    public static Double value(RationalUDT p) throws SQLException {
+        if ((p == null) || (p.value == null)) {
+            return null;
+        }
+        return p.value.doubleValue();
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. The
+     * result sorts as a bytea in the same order as the rational values.
+     * 
+     * @param p
+     * @return
+     * @throws SQLException
+     */
+    public static byte[] sortKey(RationalUDT p) throws SQLException {
+        if ((p == null) || (p.value == null)) {
+            return null;
+        }
+        return RationalSortKey.encode(p.value);
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This is
+     * the inverse of sortKey().
+     * 
+     * @param key
+     * @return
+     * @throws SQLException
+     */
+    public static RationalUDT fromSortKey(byte[] key) throws SQLException {
+        if (key == null) {
+            return null;
+        }
+        try {
+            return new RationalUDT(RationalSortKey.decode(key));
+        } catch (IllegalArgumentException e) {
+            throw new SQLException(e);
+        }
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     * @throws SQLException
+     */
+    public static RationalUDT min(RationalUDT p, RationalUDT q) {
+        if ((p == null) || (p.value == null) || (q == null)
+                || (q.value == null)) {
+            return null;
+        }
+        return RationalUDT.lessThanOrEquals(p, q) ? p : q;
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     * @throws SQLException
+     */
+    public static RationalUDT max(RationalUDT p, RationalUDT q) {
+        if ((p == null) || (p.value == null) || (q == null)
+                || (q.value == null)) {
+            return null;
+        }
+        return RationalUDT.greaterThanOrEquals(p, q) ? p : q;
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param p
+     * @return
+     * @throws SQLException
+     */
+    public static RationalUDT negate(RationalUDT p) throws SQLException {
+        if ((p == null) || (p.value == null)) {
+            return null;
+        }
+        try {
+            return new RationalUDT(p.value.negate());
+        } catch (ArithmeticException e) {
+            throw outOfRange(e);
+        }
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     * @throws SQLException
+     */
+    public static RationalUDT add(RationalUDT p, RationalUDT q)
+            throws SQLException {
+        if ((p == null) || (p.value == null) || (q == null)
+                || (q.value == null)) {
+            return null;
+        }
+        try {
+            return new RationalUDT(p.value.add(q.value));
+        } catch (ArithmeticException e) {
+            throw outOfRange(e);
+        }
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     * @throws SQLException
+     */
+    public static RationalUDT subtract(RationalUDT p, RationalUDT q)
+            throws SQLException {
+        if ((p == null) || (p.value == null) || (q == null)
+                || (q.value == null)) {
+            return null;
+        }
+        try {
+            return new RationalUDT(p.value.subtract(q.value));
+        } catch (ArithmeticException e) {
+            throw outOfRange(e);
+        }
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     * @throws SQLException
+     */
+    public static RationalUDT multiply(RationalUDT p, RationalUDT q)
+            throws SQLException {
+        if ((p == null) || (p.value == null) || (q == null)
+                || (q.value == null)) {
+            return null;
+        }
+        try {
+            return new RationalUDT(p.value.multiply(q.value));
+        } catch (ArithmeticException e) {
+            throw outOfRange(e);
+        }
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param p
+     * @param q
+     * @return
+     * @throws SQLException
+     */
+    public static RationalUDT divide(RationalUDT p, RationalUDT q)
+            throws SQLException {
+        if ((p == null) || (p.value == null) || (q == null)
+                || (q.value == null)) {
+            return null;
+        }
+        if (q.value.getNumerator() == 0) {
+            throw new SQLException("attempt to divide by zero.");
+        }
+        try {
+            return new RationalUDT(p.value.divide(q.value));
+        } catch (ArithmeticException e) {
+            throw outOfRange(e);
+        }
+    }
+
+    /**
+     * Report a result that does not fit in a rational. The SQLSTATE is
+     * numeric_value_out_of_range.
+     */
+    private static SQLException outOfRange(ArithmeticException e) {
+        return new SQLException(e.getMessage(), "22003", e);
+    }
+
+    /**
+     * Copy the non-null elements of an array into a vector.
+     */
+    private static RationalVector toVector(RationalUDT[] values) {
+        int count = 0;
+        for (RationalUDT value : values) {
+            if ((value != null) && (value.value != null)) {
+                count++;
+            }
+        }
+        RationalVector vector = new RationalVector(count);
+        int i = 0;
+        for (RationalUDT value : values) {
+            if ((value != null) && (value.value != null)) {
+                vector.set(i++, value.value);
+            }
+        }
+        return vector;
+    }
+
+    /**
+     * Copy an array into a vector, with nulls replaced by zero.
+     */
+    private static RationalVector toVector(RationalUDT[] values, int length) {
+        RationalVector vector = new RationalVector(length);
+        for (int i = 0; i < length; i++) {
+            if ((values[i] != null) && (values[i].value != null)) {
+                vector.set(i, values[i].value);
+            }
+        }
+        return vector;
+    }
+
+    private static boolean isNull(RationalUDT[] values, int i) {
+        return (values[i] == null) || (values[i].value == null);
+    }
+
+    private static void checkLength(RationalUDT[] p, RationalUDT[] q)
+            throws SQLException {
+        if (p.length != q.length) {
+            throw new SQLException("array lengths differ: " + p.length
+                    + " and " + q.length);
+        }
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the element-wise sum. An element is null if either input element is
+     * null.
+     * 
+     * @param p
+     * @param q
+     * @return
+     * @throws SQLException
+     */
+    public static RationalUDT[] arrayAdd(RationalUDT[] p, RationalUDT[] q)
+            throws SQLException {
+        if ((p == null) || (q == null)) {
+            return null;
+        }
+        checkLength(p, q);
+        RationalVector v;
+        try {
+            v = toVector(p, p.length).add(toVector(q, q.length));
+        } catch (ArithmeticException e) {
+            throw outOfRange(e);
+        }
+        RationalUDT[] results = new RationalUDT[p.length];
+        for (int i = 0; i < results.length; i++) {
+            if (!isNull(p, i) && !isNull(q, i)) {
+                results[i] = new RationalUDT(v.get(i));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the element-wise product. An element is null if either input element
+     * is null.
+     * 
+     * @param p
+     * @param q
+     * @return
+     * @throws SQLException
+     */
+    public static RationalUDT[] arrayMultiply(RationalUDT[] p, RationalUDT[] q)
+            throws SQLException {
+        if ((p == null) || (q == null)) {
+            return null;
+        }
+        checkLength(p, q);
+        RationalVector v;
+        try {
+            v = toVector(p, p.length).multiply(toVector(q, q.length));
+        } catch (ArithmeticException e) {
+            throw outOfRange(e);
+        }
+        RationalUDT[] results = new RationalUDT[p.length];
+        for (int i = 0; i < results.length; i++) {
+            if (!isNull(p, i) && !isNull(q, i)) {
+                results[i] = new RationalUDT(v.get(i));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the exact dot product. Null elements are treated as zero.
+     * 
+     * @param p
+     * @param q
+     * @return
+     * @throws SQLException
+     */
+    public static BigRationalUDT arrayDot(RationalUDT[] p, RationalUDT[] q)
+            throws SQLException {
+        if ((p == null) || (q == null)) {
+            return null;
+        }
+        checkLength(p, q);
+        return new BigRationalUDT(toVector(p, p.length).dot(
+                toVector(q, q.length)));
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the exact sum of the non-null elements.
+     * 
+     * @param p
+     * @return
+     * @throws SQLException
+     */
+    public static BigRationalUDT arraySum(RationalUDT[] p)
+            throws SQLException {
+        if (p == null) {
+            return null;
+        }
+        return new BigRationalUDT(toVector(p).sum());
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the element-wise comparison. An element is null if either input
+     * element is null.
+     * 
+     * @param p
+     * @param q
+     * @return
+     * @throws SQLException
+     */
+    public static Integer[] arrayCompare(RationalUDT[] p, RationalUDT[] q)
+            throws SQLException {
+        if ((p == null) || (q == null)) {
+            return null;
+        }
+        checkLength(p, q);
+        int[] v = toVector(p, p.length).compare(toVector(q, q.length));
+        Integer[] results = new Integer[p.length];
+        for (int i = 0; i < results.length; i++) {
+            if (!isNull(p, i) && !isNull(q, i)) {
+                results[i] = v[i];
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * sorts the array into ascending order with nulls last.
+     * 
+     * @param p
+     * @return
+     * @throws SQLException
+     */
+    public static RationalUDT[] arraySort(RationalUDT[] p)
+            throws SQLException {
+        if (p == null) {
+            return null;
+        }
+        RationalVector v = toVector(p);
+        v.sort();
+        RationalUDT[] results = new RationalUDT[p.length];
+        for (int i = 0; i < v.size(); i++) {
+            results[i] = new RationalUDT(v.get(i));
+        }
+        return results;
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the smallest non-null element.
+     * 
+     * @param p
+     * @return
+     * @throws SQLException
+     */
+    public static RationalUDT arrayMin(RationalUDT[] p) throws SQLException {
+        if (p == null) {
+            return null;
+        }
+        Rational min = toVector(p).min();
+        return (min == null) ? null : new RationalUDT(min);
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the largest non-null element.
+     * 
+     * @param p
+     * @return
+     * @throws SQLException
+     */
+    public static RationalUDT arrayMax(RationalUDT[] p) throws SQLException {
+        if (p == null) {
+            return null;
+        }
+        Rational max = toVector(p).max();
+        return (max == null) ? null : new RationalUDT(max);
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the discrete percentile of the non-null elements, and the final
+     * function of the percentile_disc ordered-set aggregate. It uses
+     * quickselect instead of sorting.
+     * 
+     * @param p
+     * @param fraction
+     * @return
+     * @throws SQLException
+     */
+    public static RationalUDT arrayPercentile(RationalUDT[] p, double fraction)
+            throws SQLException {
+        if (p == null) {
+            return null;
+        }
+        Rational percentile = null;
+        try {
+            percentile = toVector(p).percentile(fraction);
+        } catch (IllegalArgumentException e) {
+            throw new SQLException(e);
+        }
+        return (percentile == null) ? null : new RationalUDT(percentile);
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the median of the non-null elements, and the final function of the
+     * median aggregate. With an even number of elements it is the mean of
+     * the two middle elements.
+     * 
+     * @param p
+     * @return
+     * @throws SQLException
+     */
+    public static BigRationalUDT arrayMedian(RationalUDT[] p)
+            throws SQLException {
+        if (p == null) {
+            return null;
+        }
+        BigRational median = toVector(p).median();
+        return (median == null) ? null : new BigRationalUDT(median);
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the most frequent non-null element, and the final function of the
+     * mode ordered-set aggregate. Ties go to the smallest element.
+     * 
+     * @param p
+     * @return
+     * @throws SQLException
+     */
+    public static RationalUDT arrayMode(RationalUDT[] p) throws SQLException {
+        if (p == null) {
+            return null;
+        }
+        Rational mode = toVector(p).mode();
+        return (mode == null) ? null : new RationalUDT(mode);
+    }
+
+    /**
+     * Decode aggregate state.
+     */
+    private static RationalAccumulator toAccumulator(byte[] state)
+            throws SQLException {
+        try {
+            return RationalAccumulator.fromByteArray(state);
+        } catch (IllegalArgumentException e) {
+            throw new SQLException(e);
+        }
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the transition function of the sum and avg aggregates. The state is
+     * an encoded RationalAccumulator, or null before the first non-null
+     * value, so the running sum is never reduced or wrapped in a RationalUDT.
+     * 
+     * @param state
+     * @param p
+     * @return
+     * @throws SQLException
+     */
+    public static byte[] accumulate(byte[] state, RationalUDT p)
+            throws SQLException {
+        if ((p == null) || (p.value == null)) {
+            return state;
+        }
+        RationalAccumulator acc = (state == null) ? new RationalAccumulator()
+                : toAccumulator(state);
+        acc.add(p.value);
+        return acc.toByteArray();
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the inverse transition function of the sum and avg aggregates when
+     * they are used as window functions. It removes a value that has left
+     * the window frame so the frame does not have to be recomputed.
+     * 
+     * @param state
+     * @param p
+     * @return
+     * @throws SQLException
+     */
+    public static byte[] deaccumulate(byte[] state, RationalUDT p)
+            throws SQLException {
+        if ((p == null) || (p.value == null)) {
+            return state;
+        }
+        RationalAccumulator acc = toAccumulator(state);
+        try {
+            acc.remove(p.value);
+        } catch (IllegalArgumentException e) {
+            throw new SQLException(e);
+        }
+        return acc.toByteArray();
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the combine function of the sum and avg aggregates. It merges the
+     * partial states computed by parallel workers.
+     * 
+     * @param state
+     * @param other
+     * @return
+     * @throws SQLException
+     */
+    public static byte[] combineAccumulators(byte[] state, byte[] other)
+            throws SQLException {
+        if (other == null) {
+            return state;
+        }
+        if (state == null) {
+            return other;
+        }
+        RationalAccumulator acc = toAccumulator(state);
+        acc.add(toAccumulator(other));
+        return acc.toByteArray();
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the final function of the sum aggregate.
+     * 
+     * @param state
+     * @return
+     * @throws SQLException
+     */
+    public static BigRationalUDT accumulatorSum(byte[] state)
+            throws SQLException {
+        if (state == null) {
+            return null;
+        }
+        RationalAccumulator acc = toAccumulator(state);
+        return (acc.getCount() == 0) ? null : new BigRationalUDT(acc.getSum());
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the final function of the avg aggregate.
+     * 
+     * @param state
+     * @return
+     * @throws SQLException
+     */
+    public static BigRationalUDT accumulatorMean(byte[] state)
+            throws SQLException {
+        if (state == null) {
+            return null;
+        }
+        BigRational mean = toAccumulator(state).getMean();
+        return (mean == null) ? null : new BigRationalUDT(mean);
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the transition function of the tdigest aggregate. The state is an
+     * encoded TDigest of the values converted to double.
+     * 
+     * @param state
+     * @param p
+     * @return
+     * @throws SQLException
+     */
+    public static byte[] tdigestAdd(byte[] state, RationalUDT p)
+            throws SQLException {
+        if ((p == null) || (p.value == null)) {
+            return state;
+        }
+        return SketchFunctions.tdigestAdd(state, p.value.doubleValue());
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the transition function of the approx_count_distinct aggregate.
+     * The state is an encoded HyperLogLog of the values' 64-bit hashes.
+     * 
+     * @param state
+     * @param p
+     * @return
+     * @throws SQLException
+     */
+    public static byte[] hllAdd(byte[] state, RationalUDT p) throws SQLException {
+        return hllAdd(state, p, HyperLogLog.DEFAULT_PRECISION);
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the transition function of the approx_count_distinct aggregate
+     * with an explicit precision, from 4 to 18. The precision is only used
+     * when the first value is added.
+     * 
+     * @param state
+     * @param p
+     * @param precision
+     * @return
+     * @throws SQLException
+     */
+    public static byte[] hllAdd(byte[] state, RationalUDT p, int precision)
+            throws SQLException {
+        if ((p == null) || (p.value == null)) {
+            return state;
         }
-        return new RationalUDT(p.value.divide(q.value));
+        return SketchFunctions.hllAdd(state, p.value.hash64(0), precision);
     }
 }
@@ -0,0 +1,236 @@
+/*
+ * This code was written by Bear Giles <bgiles@coyotesong.com>and he
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Any contributions made by others are licensed to this project under
+ * one or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ * Copyright (c) 2012 Bear Giles <bgiles@coyotesong.com>
+ */
+package com.invariantproperties.udt.sql;
+
+import java.sql.SQLException;
+
+import com.invariantproperties.udt.HyperLogLog;
+import com.invariantproperties.udt.TDigest;
+
+/**
+ * Static methods that operate on sketches stored as bytea, independent of
+ * the type of the values that were summarized. The transition functions that
+ * add values live with the user-defined types.
+ * 
+ * @author bgiles@coyotesong.com
+ */
+public final class SketchFunctions {
+
+    private SketchFunctions() {
+    }
+
+    /**
+     * Decode a t-digest.
+     */
+    static TDigest toTDigest(byte[] sketch) throws SQLException {
+        try {
+            return TDigest.fromByteArray(sketch);
+        } catch (IllegalArgumentException e) {
+            throw new SQLException(e);
+        }
+    }
+
+    /**
+     * Add a value to a t-digest. This is the body of the tdigest transition
+     * functions.
+     */
+    static byte[] tdigestAdd(byte[] sketch, double value) throws SQLException {
+        try {
+            if (sketch == null) {
+                TDigest digest = new TDigest();
+                digest.add(value);
+                return digest.toByteArray();
+            }
+            return TDigest.add(sketch, value);
+        } catch (IllegalArgumentException e) {
+            throw new SQLException(e);
+        }
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * merges two t-digests. It is the combine function of the tdigest
+     * aggregates and the transition function of the tdigest_merge
+     * aggregate.
+     * 
+     * @param sketch
+     * @param other
+     * @return
+     * @throws SQLException
+     */
+    public static byte[] tdigestCombine(byte[] sketch, byte[] other)
+            throws SQLException {
+        if (other == null) {
+            return sketch;
+        }
+        if (sketch == null) {
+            return other;
+        }
+        TDigest digest = toTDigest(sketch);
+        digest.add(toTDigest(other));
+        return digest.toByteArray();
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the final function of the tdigest aggregates. It merges the
+     * buffered values so the stored sketch is as small as possible.
+     * 
+     * @param sketch
+     * @return
+     * @throws SQLException
+     */
+    public static byte[] tdigestFinal(byte[] sketch) throws SQLException {
+        if (sketch == null) {
+            return null;
+        }
+        TDigest digest = toTDigest(sketch);
+        digest.compress();
+        return digest.toCompactByteArray();
+    }
+
+    /**
+     * Static methods that will be published as user-defined function.
+     * 
+     * @param sketch
+     * @param q
+     * @return the approximate quantile, or null if the sketch is empty
+     * @throws SQLException
+     */
+    public static Double quantile(byte[] sketch, double q)
+            throws SQLException {
+        if (sketch == null) {
+            return null;
+        }
+        TDigest digest = toTDigest(sketch);
+        if (digest.getCount() == 0) {
+            return null;
+        }
+        try {
+            return digest.quantile(q);
+        } catch (IllegalArgumentException e) {
+            throw new SQLException(e);
+        }
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. The
+     * sketch is decoded once for all of the quantiles.
+     * 
+     * @param sketch
+     * @param q
+     * @return the approximate quantiles, or null if the sketch is empty
+     * @throws SQLException
+     */
+    public static Double[] quantile(byte[] sketch, double[] q)
+            throws SQLException {
+        if ((sketch == null) || (q == null)) {
+            return null;
+        }
+        TDigest digest = toTDigest(sketch);
+        if (digest.getCount() == 0) {
+            return null;
+        }
+        Double[] results = new Double[q.length];
+        try {
+            for (int i = 0; i < q.length; i++) {
+                results[i] = digest.quantile(q[i]);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new SQLException(e);
+        }
+        return results;
+    }
+
+    /**
+     * Add a hash to a HyperLogLog sketch. This is the body of the
+     * approx_count_distinct transition functions.
+     */
+    static byte[] hllAdd(byte[] sketch, long hash, int precision)
+            throws SQLException {
+        try {
+            if (sketch == null) {
+                HyperLogLog hll = new HyperLogLog(precision);
+                hll.add(hash);
+                return hll.toByteArray();
+            }
+            return HyperLogLog.add(sketch, hash);
+        } catch (IllegalArgumentException e) {
+            throw new SQLException(e);
+        }
+    }
+
+    /**
+     * Decode a HyperLogLog sketch.
+     */
+    static HyperLogLog toHyperLogLog(byte[] sketch) throws SQLException {
+        try {
+            return HyperLogLog.fromByteArray(sketch);
+        } catch (IllegalArgumentException e) {
+            throw new SQLException(e);
+        }
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * merges two HyperLogLog sketches. It is the combine function of the
+     * approx_count_distinct aggregates.
+     * 
+     * @param sketch
+     * @param other
+     * @return
+     * @throws SQLException
+     */
+    public static byte[] hllCombine(byte[] sketch, byte[] other)
+            throws SQLException {
+        if (other == null) {
+            return sketch;
+        }
+        if (sketch == null) {
+            return other;
+        }
+        HyperLogLog hll = toHyperLogLog(sketch);
+        try {
+            hll.add(toHyperLogLog(other));
+        } catch (IllegalArgumentException e) {
+            throw new SQLException(e);
+        }
+        return hll.toByteArray();
+    }
+
+    /**
+     * Static methods that will be published as user-defined function. This
+     * is the final function of the approx_count_distinct aggregates.
+     * 
+     * @param sketch
+     * @return the estimated number of distinct values, 0 if the sketch is
+     *         null
+     * @throws SQLException
+     */
+    public static long hllCardinality(byte[] sketch) throws SQLException {
+        if (sketch == null) {
+            return 0;
+        }
+        return toHyperLogLog(sketch).cardinality();
+    }
+}
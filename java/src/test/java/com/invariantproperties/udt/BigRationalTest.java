@@ -0,0 +1,206 @@
+/*
+ * This code was written by Bear Giles <bgiles@coyotesong.com>and he
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Any contributions made by others are licensed to this project under
+ * one or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ * Copyright (c) 2012 Bear Giles <bgiles@coyotesong.com>
+ */
+package com.invariantproperties.udt;
+
+import java.math.BigInteger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for bigrational type.
+ * 
+ * @author bgiles@coyotesong.com
+ */
+public class BigRationalTest {
+    private static final BigInteger MAX = BigInteger.valueOf(Long.MAX_VALUE);
+
+    /**
+     * Test constructors.
+     */
+    @Test
+    public void testConstructors() {
+        BigRational c1 = new BigRational(1);
+        assertEquals(BigInteger.ONE, c1.getNumerator());
+        assertEquals(BigInteger.ONE, c1.getDenominator());
+        assertTrue(c1.isInline());
+
+        BigRational c2 = new BigRational(4, -2);
+        assertEquals(BigInteger.valueOf(-2), c2.getNumerator());
+        assertEquals(BigInteger.ONE, c2.getDenominator());
+
+        BigRational c3 = new BigRational(Long.MIN_VALUE, -1);
+        assertEquals(MAX.add(BigInteger.ONE), c3.getNumerator());
+        assertFalse(c3.isInline());
+
+        // big values that reduce to small values are demoted.
+        BigRational c4 = new BigRational(MAX.multiply(MAX), MAX.multiply(MAX)
+                .shiftLeft(1));
+        assertTrue(c4.isInline());
+        assertEquals(new BigRational(1, 2), c4);
+
+        assertEquals(new BigRational(3, 4), new BigRational(new Rational(3, 4)));
+    }
+
+    /**
+     * Test that arithmetic promotes instead of overflowing.
+     */
+    @Test
+    public void testPromotion() {
+        BigRational half = new BigRational(1, 2);
+        BigRational c0 = new BigRational(Long.MAX_VALUE);
+        BigRational c = c0.add(half);
+        assertFalse(c.isInline());
+        assertEquals(MAX.shiftLeft(1).add(BigInteger.ONE), c.getNumerator());
+        assertEquals(BigInteger.valueOf(2), c.getDenominator());
+
+        c = c0.multiply(c0);
+        assertEquals(MAX.multiply(MAX), c.getNumerator());
+
+        // and demotes again when the result fits
+        c = c.divide(c0);
+        assertTrue(c.isInline());
+        assertEquals(c0, c);
+
+        c = c0.add(half).subtract(half);
+        assertTrue(c.isInline());
+        assertEquals(c0, c);
+
+        assertEquals(c0, c0.negate().negate());
+    }
+
+    /**
+     * Test comparisons between inline and promoted values.
+     */
+    @Test
+    public void testCompareTo() {
+        BigRational small = new BigRational(Long.MAX_VALUE);
+        BigRational big = small.add(new BigRational(1));
+
+        assertTrue(small.compareTo(big) < 0);
+        assertTrue(big.compareTo(small) > 0);
+        assertTrue(big.negate().compareTo(small.negate()) < 0);
+        assertEquals(0, big.compareTo(small.add(new BigRational(1))));
+        assertTrue(big.compareTo(null) > 0);
+    }
+
+    /**
+     * Test conversion to Rational.
+     */
+    @Test(expected = ArithmeticException.class)
+    public void testToRational() {
+        assertEquals(new Rational(1, 3), new BigRational(1, 3).toRational());
+        new BigRational(Long.MAX_VALUE).add(new BigRational(1)).toRational();
+    }
+
+    /**
+     * Test conversion of a Long.MIN_VALUE numerator with a small
+     * denominator.
+     */
+    @Test
+    public void testToRationalMinValue() {
+        Rational r = new BigRational(Long.MIN_VALUE, 3).toRational();
+        assertEquals(Long.MIN_VALUE, r.getNumerator());
+        assertEquals(3, r.getDenominator());
+    }
+
+    /**
+     * Test toString()/parse().
+     */
+    @Test
+    public void testParse() {
+        BigRational c0 = new BigRational(1, 2);
+        assertEquals("1/2", c0.toString());
+        assertEquals(c0, BigRational.parse("1/2"));
+        assertEquals(c0, BigRational.parse(" 2 / 4 "));
+        assertEquals(new BigRational(-3), BigRational.parse("-3"));
+
+        BigRational c1 = new BigRational(MAX.multiply(MAX), BigInteger.ONE
+                .shiftLeft(80).add(BigInteger.ONE));
+        assertEquals(c1, BigRational.parse(c1.toString()));
+    }
+
+    /**
+     * Test that BigRational accepts the same forms as Rational, without the
+     * limit on the number of digits.
+     */
+    @Test
+    public void testParseForms() {
+        String[] good = { "12", "+12", "-3/4", "3/-4", " 6 / 8 ", "0.125",
+                "-.125", "1.5e-3", "1.5E3", "0.50000000000000000000000",
+                "0.5/1.5", "0e99", String.valueOf(Long.MIN_VALUE) };
+        for (String s : good) {
+            assertEquals(s, new BigRational(Rational.parse(s)),
+                    BigRational.parse(s));
+        }
+
+        assertEquals(new BigRational(MAX.multiply(BigInteger.TEN),
+                BigInteger.ONE), BigRational.parse("92233720368547758070"));
+        assertEquals(new BigRational(BigInteger.ONE, BigInteger.TEN.pow(30)),
+                BigRational.parse("1e-30"));
+        assertEquals(new BigRational(BigInteger.ONE, BigInteger.valueOf(3)
+                .multiply(BigInteger.TEN.pow(25))), BigRational
+                .parse("1e-25/3"));
+
+        String[] bad = { "", "-", "1/", "/2", "1.2.3", "1e", "1/2/3", "x",
+                "1 2", "1/0", "1e999999999", "1e99999999999" };
+        for (String s : bad) {
+            try {
+                BigRational.parse(s);
+                fail("parsed \"" + s + '"');
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    /**
+     * Test the hash. Inline values hash like the equal Rational, and the
+     * old 31 * n + d hash collided for 1/32 and 2.
+     */
+    @Test
+    public void testHash() {
+        assertEquals(new Rational(1, 32).hashCode(),
+                new BigRational(1, 32).hashCode());
+        assertTrue(new BigRational(1, 32).hashCode() != new BigRational(2)
+                .hashCode());
+
+        BigRational p = new BigRational(MAX.multiply(MAX), BigInteger.ONE);
+        BigRational q = BigRational.parse(p.toString());
+        assertEquals(p.hashCode(), q.hashCode());
+        assertTrue(p.hashCode() != new BigRational(MAX.multiply(MAX)
+                .add(BigInteger.ONE), BigInteger.ONE).hashCode());
+    }
+
+    /**
+     * Test parse failures.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseFailure() {
+        BigRational.parse("1/x");
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * This code was written by Bear Giles <bgiles@coyotesong.com>and he
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Any contributions made by others are licensed to this project under
+ * one or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ * Copyright (c) 2012 Bear Giles <bgiles@coyotesong.com>
+ */
+package com.invariantproperties.udt;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.invariantproperties.udt.sql.CompactRationalUDT;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the compact rational storage format.
+ * 
+ * @author bgiles@coyotesong.com
+ */
+public class CompactRationalTest {
+
+    /**
+     * Test encoded lengths of typical values.
+     */
+    @Test
+    public void testLength() {
+        assertEquals(1, length(new Rational(0)));
+        assertEquals(1, length(new Rational(12)));
+        assertEquals(1, length(new Rational(-32)));
+        assertEquals(2, length(new Rational(3, 4)));
+        assertEquals(2, length(new Rational(1, 127)));
+        assertEquals(3, length(new Rational(1999, 100)));
+        assertEquals(10, length(new Rational(Long.MIN_VALUE)));
+        assertEquals(CompactRationalUDT.MAX_LENGTH, length(new Rational(
+                Long.MIN_VALUE, Long.MAX_VALUE)));
+    }
+
+    /**
+     * Test that decode() is the inverse of encode().
+     */
+    @Test
+    public void testRoundTrip() {
+        long[] extremes = { Long.MIN_VALUE, Long.MIN_VALUE + 1, -1, 0, 1, 31,
+                32, 63, 64, 8191, 8192, Long.MAX_VALUE - 1, Long.MAX_VALUE };
+        for (long n : extremes) {
+            for (long d : extremes) {
+                if (d > 0) {
+                    assertRoundTrip(new Rational(n, d));
+                }
+            }
+        }
+
+        Random random = new Random(12345);
+        for (int i = 0; i < 10000; i++) {
+            long n = random.nextLong() >> random.nextInt(64);
+            long d = 1 + ((random.nextLong() >>> 1) >> random.nextInt(64));
+            assertRoundTrip(new Rational(n, d));
+        }
+    }
+
+    /**
+     * Test malformed encodings.
+     */
+    @Test
+    public void testMalformed() {
+        byte[][] values = { {}, { (byte) 0x80 }, { 0x01 }, { 0x01, 0x01 },
+                { 0x00, 0x00 }, { (byte) 0x81, (byte) 0x80 } };
+        for (byte[] value : values) {
+            try {
+                CompactRationalUDT.decode(value, 0, value.length);
+                fail("decoded malformed value");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    private static int length(Rational r) {
+        return CompactRationalUDT.encode(r,
+                new byte[CompactRationalUDT.MAX_LENGTH], 0);
+    }
+
+    private static void assertRoundTrip(Rational r) {
+        byte[] buffer = new byte[CompactRationalUDT.MAX_LENGTH + 3];
+        int len = CompactRationalUDT.encode(r, buffer, 3) - 3;
+        assertEquals(r, CompactRationalUDT.decode(buffer, 3, len));
+    }
+}
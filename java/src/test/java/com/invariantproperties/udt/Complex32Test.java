@@ -0,0 +1,144 @@
+/*
+ * This code was written by Bear Giles <bgiles@coyotesong.com>and he
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Any contributions made by others are licensed to this project under
+ * one or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ * Copyright (c) 2012 Bear Giles <bgiles@coyotesong.com>
+ */
+package com.invariantproperties.udt;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for single-precision complex type.
+ * 
+ * @author bgiles@coyotesong.com
+ */
+public class Complex32Test {
+    private static final double EPSILON = 1e-6;
+
+    /**
+     * Test conversions to and from Complex.
+     */
+    @Test
+    public void testConversion() {
+        Complex32 c = new Complex32(new Complex(0.1, -1e-50));
+        assertEquals(0.1f, c.Re(), 0);
+        assertEquals(-0.0f, c.Im(), 0);
+
+        Complex32 c1 = new Complex32(1.5f, -2.25f);
+        assertEquals(new Complex(1.5, -2.25), c1.toComplex());
+        assertEquals(c1, new Complex32(c1.toComplex()));
+    }
+
+    /**
+     * Test equality.
+     */
+    @Test
+    public void testEquality() {
+        Complex32 c1 = new Complex32(1, 2);
+        Complex32 c2 = new Complex32(1, 2);
+        Complex32 c3 = new Complex32(2, 1);
+        assertTrue(c1.equals(c2));
+        assertEquals(c1.hashCode(), c2.hashCode());
+        assertFalse(c1.equals(c3));
+        assertFalse(c1.equals(null));
+    }
+
+    /**
+     * Test that values equal() considers equal have equal hashes, including
+     * signed zeros.
+     */
+    @Test
+    public void testHash() {
+        Complex32 p = new Complex32(0.0f, -0.0f);
+        Complex32 q = new Complex32(-0.0f, 0.0f);
+        assertEquals(p, q);
+        assertEquals(p.hashCode(), q.hashCode());
+        assertEquals(new Complex32(1.5f, -0.0f).hashCode(), new Complex32(
+                1.5f, 0.0f).hashCode());
+
+        // hashes like the exact double-precision value
+        Complex32 c = new Complex32(0.1f, -2.25f);
+        assertEquals(c.toComplex().hashCode(), c.hashCode());
+
+        // the old 31 * bits(re) + bits(im) hash collided for neighbors
+        float im = Float.intBitsToFloat(Float.floatToIntBits(2.0f) - 31);
+        assertTrue(new Complex32(1.0f, 2.0f).hashCode() != new Complex32(
+                Math.nextUp(1.0f), im).hashCode());
+    }
+
+    /**
+     * Test arithmetic.
+     */
+    @Test
+    public void testArithmetic() {
+        Complex32 p = new Complex32(1, 2);
+        Complex32 q = new Complex32(3, -4);
+
+        assertEquals(new Complex32(-1, -2), p.negate());
+        assertEquals(new Complex32(1, -2), p.getConjugate());
+        assertEquals(new Complex32(4, -2), p.add(q));
+        assertEquals(new Complex32(-2, 6), p.subtract(q));
+        assertEquals(new Complex32(11, 2), p.multiply(q));
+        assertEquals(new Complex32(2, 4), p.multiply(2));
+        assertEquals(5, q.getMagnitude(), EPSILON);
+
+        Complex32 r = p.divide(q);
+        assertEquals(-0.2f, r.Re(), EPSILON);
+        assertEquals(0.4f, r.Im(), EPSILON);
+        assertEquals(p, r.multiply(q));
+
+        // the squares would overflow in float
+        assertEquals(5e30, new Complex32(3e30f, 4e30f).getMagnitude(), 1e24);
+    }
+
+    /**
+     * Test divide by zero.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testDivideByZero() {
+        new Complex32(1, 2).divide(Complex32.ZERO);
+    }
+
+    /**
+     * Test that toString() and parse() round-trip exactly.
+     */
+    @Test
+    public void testRoundTrip() {
+        assertEquals("(1.0, 2.0)", new Complex32(1, 2).toString());
+        assertEquals(new Complex32(0.1f, 0.3f), Complex32.parse("(0.1, 0.3)"));
+
+        Random random = new Random(12345);
+        for (int i = 0; i < 100000; i++) {
+            float re = Float.intBitsToFloat(random.nextInt());
+            float im = Float.intBitsToFloat(random.nextInt());
+            Complex32 c = Complex32.parse(new Complex32(re, im).toString());
+            assertEquals(Float.floatToIntBits(re),
+                    Float.floatToIntBits(c.Re()));
+            assertEquals(Float.floatToIntBits(im),
+                    Float.floatToIntBits(c.Im()));
+        }
+    }
+}
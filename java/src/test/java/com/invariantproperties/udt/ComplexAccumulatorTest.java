@@ -0,0 +1,166 @@
+/*
+ * This code was written by Bear Giles <bgiles@coyotesong.com>and he
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Any contributions made by others are licensed to this project under
+ * one or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ * Copyright (c) 2012 Bear Giles <bgiles@coyotesong.com>
+ */
+package com.invariantproperties.udt;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for complex accumulator.
+ * 
+ * @author bgiles@coyotesong.com
+ */
+public class ComplexAccumulatorTest {
+
+    /**
+     * Test simple sums.
+     */
+    @Test
+    public void testSum() {
+        ComplexAccumulator acc = new ComplexAccumulator();
+        assertEquals(Complex.ZERO, acc.getSum());
+
+        acc.add(new Complex(1, 2));
+        acc.add(new Complex(3, -4));
+        acc.add(0.5, 0.25);
+        assertEquals(3, acc.getCount());
+        assertEquals(new Complex(4.5, -1.75), acc.getSum());
+
+        acc.clear();
+        assertEquals(0, acc.getCount());
+        assertEquals(Complex.ZERO, acc.getSum());
+    }
+
+    /**
+     * Test that the compensation recovers the bits lost by a naive sum.
+     */
+    @Test
+    public void testCompensation() {
+        ComplexAccumulator acc = new ComplexAccumulator();
+        double naive = 0;
+        double[] values = { 1e100, 1, -1e100, 1e-3, 1e16, -1e16 };
+        for (double x : values) {
+            acc.add(x, -x);
+            naive += x;
+        }
+        assertEquals(0, naive, 0);
+        assertEquals(new Complex(1.001, -1.001), acc.getSum());
+    }
+
+    /**
+     * Test a sliding window against sums recomputed from scratch.
+     */
+    @Test
+    public void testRemove() {
+        Random random = new Random(12345);
+        Complex[] values = new Complex[1000];
+        for (int i = 0; i < values.length; i++) {
+            double scale = Math.pow(10, random.nextInt(20) - 10);
+            values[i] = new Complex(scale * random.nextGaussian(), scale
+                    * random.nextGaussian());
+        }
+
+        int window = 50;
+        ComplexAccumulator moving = new ComplexAccumulator();
+        for (int i = 0; i < values.length; i++) {
+            moving.add(values[i]);
+            if (i >= window) {
+                moving.remove(values[i - window]);
+            }
+            ComplexAccumulator frame = new ComplexAccumulator();
+            for (int j = Math.max(0, i - window + 1); j <= i; j++) {
+                frame.add(values[j]);
+            }
+            assertEquals(frame.getCount(), moving.getCount());
+            assertTrue(frame.getSum().equals(moving.getSum(), 1e-15));
+        }
+
+        for (int i = values.length - window; i < values.length; i++) {
+            moving.remove(values[i]);
+        }
+        assertEquals(0, moving.getCount());
+        assertEquals(Complex.ZERO, moving.getSum());
+    }
+
+    /**
+     * Test that a value can't be removed from a sum that has overflowed.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testRemoveNonFinite() {
+        ComplexAccumulator acc = new ComplexAccumulator();
+        acc.add(Double.MAX_VALUE, 0);
+        acc.add(Double.MAX_VALUE, 0);
+        acc.add(1, 0);
+        assertFalse(acc.isFinite());
+        assertEquals(Double.POSITIVE_INFINITY, acc.getSum().getReal(), 0);
+        acc.remove(1, 0);
+    }
+
+    /**
+     * Test that the encoded state round-trips.
+     */
+    @Test
+    public void testByteArray() {
+        ComplexAccumulator acc = new ComplexAccumulator();
+        acc.add(1e100, 1);
+        acc.add(1, 1e-100);
+        byte[] state = acc.toByteArray();
+        assertEquals(40, state.length);
+
+        ComplexAccumulator copy = ComplexAccumulator.fromByteArray(state);
+        assertEquals(2, copy.getCount());
+        copy.remove(1e100, 1);
+        assertEquals(new Complex(1, 1e-100), copy.getSum());
+    }
+
+    /**
+     * Test merging accumulators and the mean.
+     */
+    @Test
+    public void testMerge() {
+        ComplexAccumulator a = new ComplexAccumulator();
+        ComplexAccumulator b = new ComplexAccumulator();
+        assertEquals(null, a.getMean());
+        a.add(1e100, 1);
+        a.add(1, 2);
+        b.add(-1e100, 3);
+        b.add(2, 4);
+        a.add(ComplexAccumulator.fromByteArray(b.toByteArray()));
+        assertEquals(4, a.getCount());
+        assertEquals(new Complex(3, 10), a.getSum());
+        assertEquals(new Complex(0.75, 2.5), a.getMean());
+    }
+
+    /**
+     * Test malformed state.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testMalformedByteArray() {
+        ComplexAccumulator.fromByteArray(new byte[39]);
+    }
+}
@@ -249,4 +249,152 @@ public class ComplexDatabaseTest extends AbstractDatabaseTest {
         stmt.close();
         conn.close();
     }
+
+    /**
+     * Test point mapping, nearest-neighbor and radius searches through an
+     * expression index.
+     * 
+     * @throws SQLException
+     */
+    @Test
+    public void testNearestNeighbor() throws SQLException {
+        Connection conn = ds.getConnection();
+        Statement stmt = conn.createStatement();
+        stmt.execute("create temp table if not exists complex_test(id int primary key, c invariantproperties.complex)");
+        stmt.execute("create index on complex_test using gist (invariantproperties.complex_to_point(c))");
+        stmt.execute("insert into complex_test values (1, '(0, 0)'), (2, '(1, 1)'), (3, '(1.05, 1)'), (4, '(3, -2)'), (5, '(-1, 1)')");
+
+        ResultSet rs = stmt
+                .executeQuery("select invariantproperties.re(c), invariantproperties.im(c), invariantproperties.complex_to_point(c)[1] from complex_test where id=4");
+        assertTrue(rs.next());
+        assertEquals(3, rs.getDouble(1), EPSILON);
+        assertEquals(-2, rs.getDouble(2), EPSILON);
+        assertEquals(-2, rs.getDouble(3), EPSILON);
+        rs.close();
+
+        rs = stmt
+                .executeQuery("select id, c <-> '(1, 1)' from complex_test order by c <-> '(1, 1)' limit 3");
+        assertTrue(rs.next());
+        assertEquals(2, rs.getInt(1));
+        assertEquals(0, rs.getDouble(2), EPSILON);
+        assertTrue(rs.next());
+        assertEquals(3, rs.getInt(1));
+        assertEquals(0.05, rs.getDouble(2), EPSILON);
+        assertTrue(rs.next());
+        assertEquals(1, rs.getInt(1));
+        assertEquals(Math.sqrt(2), rs.getDouble(2), EPSILON);
+        rs.close();
+
+        rs = stmt
+                .executeQuery("select count(*) from complex_test where invariantproperties.complex_within(c, '(1, 1)', 0.1)");
+        assertTrue(rs.next());
+        assertEquals(2, rs.getInt(1));
+        rs.close();
+
+        rs = stmt
+                .executeQuery("select count(*) from complex_test where c <@ circle '<(0, 0), 1.42>'");
+        assertTrue(rs.next());
+        assertEquals(3, rs.getInt(1));
+        rs.close();
+
+        // the table is too small for the planner to choose the index on its
+        // own, but each search must be able to use it.
+        stmt.execute("set enable_seqscan = off");
+        assertIndexScan(stmt,
+                "select id from complex_test order by c <-> '(1, 1)' limit 3");
+        assertIndexScan(stmt,
+                "select id from complex_test where c <@ circle '<(0, 0), 1.42>'");
+        assertIndexScan(stmt,
+                "select id from complex_test where invariantproperties.complex_within(c, '(1, 1)', 0.1)");
+        stmt.execute("reset enable_seqscan");
+
+        rs = stmt
+                .executeQuery("select invariantproperties.point_to_complex(point '(2, 3)')");
+        assertTrue(rs.next());
+        Complex c = getComplexValue(rs, 1);
+        assertEquals(2, c.Re(), EPSILON);
+        assertEquals(3, c.Im(), EPSILON);
+        rs.close();
+
+        stmt.execute("drop table complex_test");
+        stmt.close();
+        conn.close();
+    }
+
+    /**
+     * Assert that the plan for a query uses an index.
+     */
+    private static void assertIndexScan(Statement stmt, String query)
+            throws SQLException {
+        ResultSet rs = stmt.executeQuery("explain " + query);
+        StringBuilder plan = new StringBuilder();
+        while (rs.next()) {
+            plan.append(rs.getString(1)).append('\n');
+        }
+        rs.close();
+        assertTrue(plan.toString(), plan.indexOf("Index") >= 0);
+    }
+
+    /**
+     * Test sum, avg, variance and covariance aggregates, including sum as a
+     * sliding window.
+     * 
+     * @throws SQLException
+     */
+    @Test
+    public void testSum() throws SQLException {
+        Connection conn = ds.getConnection();
+        Statement stmt = conn.createStatement();
+        stmt.execute("create temp table if not exists complex_test(id int primary key, c invariantproperties.complex)");
+        stmt.execute("insert into complex_test values (1, '(1e100, 1)'), (2, '(1, 2)'), (3, '(-1e100, 3)'), (4, '(2, 4)')");
+
+        ResultSet rs = stmt
+                .executeQuery("select sum(c), avg(c), approx_count_distinct(c) from complex_test");
+        assertTrue(rs.next());
+        assertEquals(4, rs.getLong(3));
+        Complex c = getComplexValue(rs, 1);
+        assertEquals(3, c.Re(), EPSILON);
+        assertEquals(10, c.Im(), EPSILON);
+        c = getComplexValue(rs, 2);
+        assertEquals(0.75, c.Re(), EPSILON);
+        assertEquals(2.5, c.Im(), EPSILON);
+        rs.close();
+
+        rs = stmt
+                .executeQuery("select var_pop(c), var_samp(c), covar_pop(c, c * '(0, 1)') from complex_test where id in (2, 4)");
+        assertTrue(rs.next());
+        assertEquals(1.25, rs.getDouble(1), EPSILON);
+        assertEquals(2.5, rs.getDouble(2), EPSILON);
+        c = getComplexValue(rs, 3);
+        assertEquals(0, c.Re(), EPSILON);
+        assertEquals(-1.25, c.Im(), EPSILON);
+        rs.close();
+
+        rs = stmt
+                .executeQuery("select sum(c) over (order by id rows between 1 preceding and current row) from complex_test order by id");
+        double[][] expected = { { 1e100, 1 }, { 1e100, 3 }, { -1e100, 5 },
+                { -1e100, 7 } };
+        for (double[] e : expected) {
+            assertTrue(rs.next());
+            c = getComplexValue(rs, 1);
+            assertEquals(e[0], c.Re(), Math.abs(e[0]) * EPSILON);
+            assertEquals(e[1], c.Im(), EPSILON);
+        }
+        rs.close();
+
+        rs = stmt
+                .executeQuery("select sum(c) over (order by id rows between current row and 1 following) from complex_test where id > 2 order by id");
+        assertTrue(rs.next());
+        c = getComplexValue(rs, 1);
+        assertEquals(-1e100, c.Re(), 1e100 * EPSILON);
+        assertTrue(rs.next());
+        c = getComplexValue(rs, 1);
+        assertEquals(2, c.Re(), EPSILON);
+        assertEquals(4, c.Im(), EPSILON);
+        rs.close();
+
+        stmt.execute("drop table complex_test");
+        stmt.close();
+        conn.close();
+    }
 }
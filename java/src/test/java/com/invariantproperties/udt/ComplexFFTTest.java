@@ -0,0 +1,128 @@
+/*
+ * This code was written by Bear Giles <bgiles@coyotesong.com>and he
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Any contributions made by others are licensed to this project under
+ * one or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ * Copyright (c) 2012 Bear Giles <bgiles@coyotesong.com>
+ */
+package com.invariantproperties.udt;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for fast Fourier transforms.
+ * 
+ * @author bgiles@coyotesong.com
+ */
+public class ComplexFFTTest {
+    private static final double EPSILON = 1e-9;
+
+    private static ComplexVector values(Random random, int size) {
+        ComplexVector v = new ComplexVector(size);
+        for (int i = 0; i < size; i++) {
+            v.set(i, random.nextGaussian(), random.nextGaussian());
+        }
+        return v;
+    }
+
+    /**
+     * Direct O(n^2) evaluation of the DFT.
+     */
+    private static ComplexVector dft(ComplexVector x) {
+        int n = x.size();
+        ComplexVector r = new ComplexVector(n);
+        for (int k = 0; k < n; k++) {
+            double re = 0;
+            double im = 0;
+            for (int j = 0; j < n; j++) {
+                double theta = -2 * Math.PI * ((long) j * k % n) / n;
+                double c = Math.cos(theta);
+                double s = Math.sin(theta);
+                re += x.getReal(j) * c - x.getImaginary(j) * s;
+                im += x.getReal(j) * s + x.getImaginary(j) * c;
+            }
+            r.set(k, re, im);
+        }
+        return r;
+    }
+
+    private static void assertClose(ComplexVector expected,
+            ComplexVector actual, double epsilon) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getReal(i), actual.getReal(i), epsilon);
+            assertEquals(expected.getImaginary(i), actual.getImaginary(i),
+                    epsilon);
+        }
+    }
+
+    /**
+     * Test radix-2 and Bluestein transforms against the direct DFT.
+     */
+    @Test
+    public void testTransform() {
+        Random random = new Random(12345);
+        int[] sizes = { 0, 1, 2, 3, 4, 5, 7, 8, 12, 16, 17, 100, 128, 243 };
+        for (int size : sizes) {
+            ComplexVector x = values(random, size);
+            ComplexVector expected = dft(x);
+            ComplexVector actual = ComplexFFT.fft(x);
+            assertClose(expected, actual, EPSILON * Math.max(1, size));
+            assertClose(x, ComplexFFT.ifft(actual), EPSILON);
+        }
+    }
+
+    /**
+     * Test that cached tables give the same answer on reuse.
+     */
+    @Test
+    public void testCache() {
+        ComplexVector x = values(new Random(12345), 45);
+        assertClose(ComplexFFT.fft(x), ComplexFFT.fft(x), 0);
+    }
+
+    /**
+     * Test convolution and cross-correlation against direct evaluation.
+     */
+    @Test
+    public void testConvolve() {
+        Random random = new Random(12345);
+        ComplexVector x = values(random, 37);
+        ComplexVector y = values(random, 11);
+        int len = x.size() + y.size() - 1;
+
+        ComplexVector conv = new ComplexVector(len);
+        ComplexVector corr = new ComplexVector(len);
+        for (int i = 0; i < x.size(); i++) {
+            for (int j = 0; j < y.size(); j++) {
+                conv.set(i + j,
+                        conv.get(i + j).add(x.get(i).multiply(y.get(j))));
+                int lag = i - j + y.size() - 1;
+                corr.set(lag, corr.get(lag).add(
+                        x.get(i).multiply(y.get(j).getConjugate())));
+            }
+        }
+        assertClose(conv, ComplexFFT.convolve(x, y), EPSILON);
+        assertClose(corr, ComplexFFT.xcorr(x, y), EPSILON);
+        assertEquals(0, ComplexFFT.convolve(x, new ComplexVector(0)).size());
+    }
+}
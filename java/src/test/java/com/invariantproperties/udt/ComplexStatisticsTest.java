@@ -0,0 +1,174 @@
+/*
+ * This code was written by Bear Giles <bgiles@coyotesong.com>and he
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Any contributions made by others are licensed to this project under
+ * one or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ * Copyright (c) 2012 Bear Giles <bgiles@coyotesong.com>
+ */
+package com.invariantproperties.udt;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for complex statistics.
+ * 
+ * @author bgiles@coyotesong.com
+ */
+public class ComplexStatisticsTest {
+    private static final double EPSILON = 1e-12;
+
+    /**
+     * Test a small example by hand.
+     */
+    @Test
+    public void testSimple() {
+        ComplexStatistics stats = new ComplexStatistics();
+        assertNull(stats.getMean());
+        assertNull(stats.getPopulationVariance());
+
+        stats.add(new Complex(1, 1));
+        assertEquals(new Complex(1, 1), stats.getMean());
+        assertEquals(0, stats.getPopulationVariance(), 0);
+        assertNull(stats.getSampleVariance());
+
+        stats.add(new Complex(3, -1));
+        // mean is 2, deviations are -1 + i and 1 - i.
+        assertEquals(new Complex(2, 0), stats.getMean());
+        assertEquals(2, stats.getPopulationVariance(), EPSILON);
+        assertEquals(4, stats.getSampleVariance(), EPSILON);
+    }
+
+    /**
+     * Test the covariance, including the conjugate convention.
+     */
+    @Test
+    public void testCovariance() {
+        ComplexStatistics stats = new ComplexStatistics();
+        stats.add(new Complex(0, 0), new Complex(0, 0));
+        stats.add(new Complex(2, 0), new Complex(0, 2));
+        // deviations are -1 and 1 for x, -i and i for y, so E[dx conj(dy)]
+        // is (-1)(i) + (1)(-i) over 2 = -i.
+        assertTrue(new Complex(0, -1).equals(
+                stats.getPopulationCovariance(), EPSILON));
+        assertTrue(new Complex(0, -2).equals(stats.getSampleCovariance(),
+                EPSILON));
+    }
+
+    /**
+     * Test against a two-pass computation on data with a large offset,
+     * where the textbook E|z|^2 - |E z|^2 formula loses every digit.
+     */
+    @Test
+    public void testAccuracy() {
+        Random random = new Random(12345);
+        Complex[] x = new Complex[10000];
+        Complex[] y = new Complex[x.length];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = new Complex(1e9 + random.nextGaussian(), -1e9
+                    + random.nextGaussian());
+            y[i] = x[i].multiply(new Complex(0, 2)).add(
+                    new Complex(random.nextGaussian(), 0));
+        }
+
+        // the reference works on values shifted by a nearby constant. The
+        // subtraction is exact and the shifted sums are small.
+        Complex x0 = new Complex(1e9, -1e9);
+        Complex y0 = new Complex(2e9, 2e9);
+        Complex mx = Complex.ZERO;
+        Complex my = Complex.ZERO;
+        for (int i = 0; i < x.length; i++) {
+            mx = mx.add(x[i].subtract(x0));
+            my = my.add(y[i].subtract(y0));
+        }
+        mx = mx.divide(x.length);
+        my = my.divide(x.length);
+        double var = 0;
+        Complex covar = Complex.ZERO;
+        for (int i = 0; i < x.length; i++) {
+            Complex dx = x[i].subtract(x0).subtract(mx);
+            Complex dy = y[i].subtract(y0).subtract(my);
+            var += dx.getReal() * dx.getReal() + dx.getImaginary()
+                    * dx.getImaginary();
+            covar = covar.add(dx.multiply(dy.getConjugate()));
+        }
+        mx = mx.add(x0);
+
+        ComplexStatistics stats = new ComplexStatistics();
+        for (int i = 0; i < x.length; i++) {
+            stats.add(x[i], y[i]);
+        }
+        assertEquals(x.length, stats.getCount());
+        assertTrue(mx.equals(stats.getMean(), 1e-6));
+        assertTrue(covar.divide(x.length - 1).equals(
+                stats.getSampleCovariance(), 1e-5));
+
+        ComplexStatistics xx = new ComplexStatistics();
+        for (int i = 0; i < x.length; i++) {
+            xx.add(x[i]);
+        }
+        assertEquals(var / x.length, xx.getPopulationVariance(), 1e-6);
+        assertEquals(var / (x.length - 1), xx.getSampleVariance(), 1e-6);
+    }
+
+    /**
+     * Test that merged partial states match a single pass, whatever the
+     * partitioning, and that the state round-trips.
+     */
+    @Test
+    public void testMerge() {
+        Random random = new Random(54321);
+        ComplexStatistics expected = new ComplexStatistics();
+        ComplexStatistics[] partial = new ComplexStatistics[3];
+        for (int i = 0; i < partial.length; i++) {
+            partial[i] = new ComplexStatistics();
+        }
+        for (int i = 0; i < 1000; i++) {
+            Complex x = new Complex(random.nextGaussian() * 10,
+                    random.nextGaussian());
+            Complex y = new Complex(random.nextGaussian(), 5);
+            expected.add(x, y);
+            partial[(i < 100) ? 0 : 1].add(x, y);
+        }
+
+        ComplexStatistics merged = ComplexStatistics
+                .fromByteArray(partial[2].toByteArray());
+        merged.add(ComplexStatistics.fromByteArray(partial[1].toByteArray()));
+        merged.add(ComplexStatistics.fromByteArray(partial[0].toByteArray()));
+        assertEquals(104, merged.toByteArray().length);
+        assertEquals(1000, merged.getCount());
+        assertTrue(expected.getMean().equals(merged.getMean(), EPSILON));
+        assertEquals(expected.getPopulationVariance(),
+                merged.getPopulationVariance(), EPSILON);
+        assertTrue(expected.getPopulationCovariance().equals(
+                merged.getPopulationCovariance(), EPSILON));
+    }
+
+    /**
+     * Test malformed state.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testMalformedByteArray() {
+        ComplexStatistics.fromByteArray(new byte[8]);
+    }
+}
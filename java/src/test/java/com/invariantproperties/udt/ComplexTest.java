@@ -22,6 +22,12 @@
  */
 package com.invariantproperties.udt;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
 import org.junit.Test;
 
 import com.invariantproperties.udt.Complex;
@@ -29,6 +35,7 @@ import com.invariantproperties.udt.Complex;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * Tests for complex type.
@@ -173,4 +180,225 @@ public class ComplexTest {
         assertEquals(1, c.Re(), EPSILON);
         assertEquals(-2, c.Im(), EPSILON);
     }
+
+    /**
+     * Test the other accepted input forms.
+     */
+    @Test
+    public void testParseForms() {
+        assertComplex(1, 0, Complex.parse("(1)"));
+        assertComplex(1e-5, -2.5e10, Complex.parse("(1.0E-5, -2.5e+10)"));
+        assertComplex(0.5, 0, Complex.parse(" ( .5 , 0 ) "));
+        assertComplex(1.5, -2, Complex.parse("1.5-2i"));
+        assertComplex(1.5, 2, Complex.parse("1.5 + 2i"));
+        assertComplex(0, 3, Complex.parse("3i"));
+        assertComplex(0, -1, Complex.parse("-i"));
+        assertComplex(2, 1, Complex.parse("2+i"));
+        assertComplex(-7, 0, Complex.parse("-7"));
+        assertComplex(12, 0, Complex.parse("0x1.8p3"));
+        assertComplex(0.1, 0.3, Complex.parse("(0.1, 0.3)"));
+
+        Complex c = Complex.parse("(NaN, -Infinity)");
+        assertTrue(Double.isNaN(c.Re()));
+        assertEquals(Double.NEGATIVE_INFINITY, c.Im(), 0);
+
+        String[] bad = { "", "(", "(1,)", "(1, 2", "1+", "1+2", "i2", "1e",
+                "0x1.8", "(1, 2) x", "abc" };
+        for (String s : bad) {
+            try {
+                Complex.parse(s);
+                fail("parsed \"" + s + '"');
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    /**
+     * Test that toString() and parse() round-trip exactly.
+     */
+    @Test
+    public void testRoundTrip() {
+        double[] values = { 0.0, -0.0, 1.0, 0.1, 1e-5, 1e22, 1e23,
+                123456789.0123456789,
+                Double.MIN_VALUE, Double.MAX_VALUE, Double.MIN_NORMAL,
+                Math.PI, Double.NaN, Double.POSITIVE_INFINITY,
+                Double.NEGATIVE_INFINITY };
+        for (double re : values) {
+            for (double im : values) {
+                Complex c0 = new Complex(re, im);
+                Complex c = Complex.parse(c0.toString());
+                assertEquals(Double.doubleToLongBits(re),
+                        Double.doubleToLongBits(c.Re()));
+                assertEquals(Double.doubleToLongBits(im),
+                        Double.doubleToLongBits(c.Im()));
+            }
+        }
+
+        Random random = new Random(12345);
+        for (int i = 0; i < 10000; i++) {
+            double re = Double.longBitsToDouble(random.nextLong());
+            double im = random.nextDouble() * 1000;
+            Complex c = Complex.parse(new Complex(re, im).toString());
+            assertEquals(Double.doubleToLongBits(re),
+                    Double.doubleToLongBits(c.Re()));
+            assertEquals(Double.doubleToLongBits(im),
+                    Double.doubleToLongBits(c.Im()));
+        }
+    }
+
+    /**
+     * Test that division and magnitude don't overflow or underflow for
+     * representable results.
+     */
+    @Test
+    public void testScaling() {
+        Complex big = new Complex(3e200, 4e200);
+        assertEquals(5e200, big.getMagnitude(), 1e186);
+        assertTrue(error(new Complex(1, 0), big.divide(big)) < EPSILON);
+
+        Complex small = new Complex(3e-200, 4e-200);
+        assertEquals(5e-200, small.getMagnitude(), 1e-214);
+        assertTrue(error(new Complex(1, 0), small.divide(small)) < EPSILON);
+
+        // c^2 + d^2 overflows here.
+        Complex c = new Complex(1e300, 1e300);
+        assertComplex(1, 0, c.divide(c));
+        assertComplex(0.5e-300, -0.5e-300, c.invert());
+
+        assertEquals(Math.PI / 2, new Complex(0, 2).getArgument(), EPSILON);
+        assertTrue(new Complex(1, 2).equals(new Complex(1, 2 + 1e-12), 1e-11));
+    }
+
+    /**
+     * Test the elementary functions against identities and known values.
+     */
+    @Test
+    public void testElementaryFunctions() {
+        assertTrue(error(new Complex(-1, 0), new Complex(0, Math.PI).exp())
+                < EPSILON);
+        assertTrue(error(new Complex(0, Math.PI / 2), Complex.I.log())
+                < EPSILON);
+        assertTrue(error(Complex.I, new Complex(-1, 0).sqrt()) < EPSILON);
+        assertTrue(error(new Complex(Math.exp(-Math.PI / 2), 0), Complex.I
+                .pow(Complex.I)) < EPSILON);
+        assertComplex(1, 0, Complex.ZERO.pow(0));
+        assertComplex(0, 0, Complex.ZERO.pow(new Complex(2, 1)));
+        assertComplex(Double.POSITIVE_INFINITY, 0, new Complex(
+                Double.POSITIVE_INFINITY, 0).exp());
+
+        // log near the unit circle keeps its relative accuracy.
+        assertEquals(5e-17, new Complex(1, 1e-8).log().Re(), 1e-30);
+
+        Random random = new Random(12345);
+        for (int i = 0; i < 1000; i++) {
+            Complex z = new Complex(4 * random.nextGaussian(),
+                    4 * random.nextGaussian());
+            Complex w = new Complex(random.nextGaussian(),
+                    random.nextGaussian());
+            double scale = Math.max(1, z.getMagnitude());
+
+            assertTrue(error(z, z.log().exp()) < EPSILON * scale);
+            Complex root = z.sqrt();
+            assertTrue(root.Re() >= 0);
+            assertTrue(error(z, root.multiply(root)) < EPSILON * scale);
+            assertTrue(error(z.multiply(z).multiply(z), z.pow(3)) < 1e-9
+                    * scale * scale * scale);
+            assertTrue(error(z.log().multiply(w).exp(), z.pow(w)) < EPSILON
+                    * z.pow(w).getMagnitude());
+
+            Complex sin = z.sin();
+            Complex cos = z.cos();
+            Complex one = sin.multiply(sin).add(cos.multiply(cos));
+            assertTrue(error(Complex.ONE, one) < 1e-6
+                    * Math.max(1, sin.getMagnitude() * sin.getMagnitude()));
+            // Euler: e^iz = cos(z) + i sin(z)
+            Complex euler = cos.add(Complex.I.multiply(sin));
+            assertTrue(error(z.multiply(Complex.I).exp(), euler) < 1e-12
+                    * Math.max(1, cos.getMagnitude() + sin.getMagnitude()));
+        }
+    }
+
+    /**
+     * Test pow() of zero with a non-positive exponent.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testPowZero() {
+        Complex.ZERO.pow(-1);
+    }
+
+    /**
+     * Test the total order.
+     */
+    @Test
+    public void testCompareTo() {
+        double nan = Double.NaN;
+        Complex[] values = { new Complex(-1, 5), new Complex(0, -1),
+                new Complex(-0.0, 0), new Complex(0, 2), new Complex(0, nan),
+                new Complex(2, Double.NEGATIVE_INFINITY), new Complex(nan, 0),
+                new Complex(nan, nan) };
+        for (int i = 0; i < values.length; i++) {
+            for (int j = 0; j < values.length; j++) {
+                assertEquals(Integer.signum(Integer.compare(i, j)),
+                        Integer.signum(values[i].compareTo(values[j])));
+            }
+        }
+        assertEquals(0, new Complex(0.0, 1).compareTo(new Complex(-0.0, 1)));
+        assertEquals(0, new Complex(nan, 1).compareTo(new Complex(
+                Double.longBitsToDouble(0x7ff0000000000001L), 1)));
+        assertTrue(values[0].compareTo(null) > 0);
+
+        Complex[] sorted = values.clone();
+        Collections.reverse(Arrays.asList(sorted));
+        Arrays.sort(sorted);
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(0, values[i].compareTo(sorted[i]));
+        }
+    }
+
+    /**
+     * Test the hash.
+     */
+    @Test
+    public void testHash() {
+        Complex p = new Complex(1, 0.0);
+        Complex q = new Complex(1, -0.0);
+        assertEquals(p.hashCode(), q.hashCode());
+        assertEquals(p.hash64(42), q.hash64(42));
+        assertEquals(p.hashCode(), (int) p.hash64(0));
+        assertTrue(p.hash64(0) != p.hash64(1));
+        assertEquals(new Complex(Double.NaN, 1).hashCode(), new Complex(
+                Double.longBitsToDouble(0x7ff0000000000001L), 1).hashCode());
+
+        // the old (int) (31 * re + im) hash collided for these
+        assertTrue(new Complex(0.25, 0).hashCode() != new Complex(0.5, 0)
+                .hashCode());
+        assertTrue(new Complex(1, 0).hashCode() != new Complex(0, 31)
+                .hashCode());
+
+        // small gaussian integers should not collide in 32 bits or in a
+        // small table
+        Set<Integer> hashes = new HashSet<Integer>();
+        int[] buckets = new int[64];
+        int count = 0;
+        for (int re = -50; re <= 50; re++) {
+            for (int im = -50; im <= 50; im++) {
+                int h = new Complex(re, im).hashCode();
+                hashes.add(h);
+                buckets[h & 63]++;
+                count++;
+            }
+        }
+        assertEquals(count, hashes.size());
+        int expected = count / buckets.length;
+        for (int n : buckets) {
+            assertTrue(n > expected / 2);
+            assertTrue(n < expected * 2);
+        }
+    }
+
+    private static void assertComplex(double re, double im, Complex c) {
+        assertEquals(re, c.Re(), 0);
+        assertEquals(im, c.Im(), 0);
+    }
 }
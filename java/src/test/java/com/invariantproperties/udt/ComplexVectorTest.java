@@ -0,0 +1,131 @@
+/*
+ * This code was written by Bear Giles <bgiles@coyotesong.com>and he
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Any contributions made by others are licensed to this project under
+ * one or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ * Copyright (c) 2012 Bear Giles <bgiles@coyotesong.com>
+ */
+package com.invariantproperties.udt;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for complex vectors.
+ * 
+ * @author bgiles@coyotesong.com
+ */
+public class ComplexVectorTest {
+    private static final double EPSILON = 1e-9;
+
+    private static Complex[] values(Random random, int size) {
+        Complex[] values = new Complex[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = new Complex(random.nextGaussian(),
+                    random.nextGaussian());
+        }
+        return values;
+    }
+
+    /**
+     * Test constructors and accessors.
+     */
+    @Test
+    public void testConstructors() {
+        Complex[] p = values(new Random(12345), 10);
+        ComplexVector v = new ComplexVector(p);
+        assertEquals(10, v.size());
+        assertArrayEquals(p, v.toArray());
+
+        ComplexVector w = new ComplexVector(v.getReal(), v.getImaginary());
+        assertArrayEquals(p, w.toArray());
+
+        ComplexVector c = new ComplexVector(v);
+        c.set(0, 1, 2);
+        assertEquals(new Complex(1, 2), c.get(0));
+        assertEquals(p[0], v.get(0));
+    }
+
+    /**
+     * Test element-wise operations against the scalar implementation.
+     */
+    @Test
+    public void testElementWise() {
+        Random random = new Random(12345);
+        Complex[] p = values(random, 1001);
+        Complex[] q = values(random, 1001);
+        ComplexVector vp = new ComplexVector(p);
+        ComplexVector vq = new ComplexVector(q);
+
+        ComplexVector sum = vp.add(vq);
+        ComplexVector difference = vp.subtract(vq);
+        ComplexVector product = vp.multiply(vq);
+        ComplexVector cproduct = vp.multiplyConjugate(vq);
+        ComplexVector scaled = vp.scale(2.5);
+        ComplexVector conjugate = vp.conjugate();
+        double[] magnitude = vp.magnitude();
+        for (int i = 0; i < p.length; i++) {
+            assertEquals(p[i].add(q[i]), sum.get(i));
+            assertEquals(p[i].subtract(q[i]), difference.get(i));
+            assertEquals(p[i].multiply(q[i]), product.get(i));
+            assertEquals(p[i].multiply(q[i].getConjugate()), cproduct.get(i));
+            assertEquals(p[i].multiply(2.5), scaled.get(i));
+            assertEquals(p[i].getConjugate(), conjugate.get(i));
+            assertEquals(p[i].getMagnitude(), magnitude[i], EPSILON);
+        }
+    }
+
+    /**
+     * Test reductions against the scalar implementation. Sizes that are not
+     * a multiple of the unroll factor exercise the tail loop.
+     */
+    @Test
+    public void testReductions() {
+        Random random = new Random(12345);
+        for (int size = 0; size < 12; size++) {
+            Complex[] p = values(random, size);
+            Complex[] q = values(random, size);
+            Complex dot = Complex.ZERO;
+            Complex cdot = Complex.ZERO;
+            double norm = 0;
+            for (int i = 0; i < size; i++) {
+                dot = dot.add(p[i].multiply(q[i]));
+                cdot = cdot.add(p[i].multiply(q[i].getConjugate()));
+                norm += p[i].getMagnitude() * p[i].getMagnitude();
+            }
+            ComplexVector vp = new ComplexVector(p);
+            ComplexVector vq = new ComplexVector(q);
+            assertTrue(dot.equals(vp.dot(vq), EPSILON));
+            assertTrue(cdot.equals(vp.dotConjugate(vq), EPSILON));
+            assertEquals(Math.sqrt(norm), vp.norm(), EPSILON);
+        }
+    }
+
+    /**
+     * Test that sizes must match.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testSizeMismatch() {
+        new ComplexVector(3).add(new ComplexVector(4));
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * This code was written by Bear Giles <bgiles@coyotesong.com>and he
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Any contributions made by others are licensed to this project under
+ * one or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ * Copyright (c) 2012 Bear Giles <bgiles@coyotesong.com>
+ */
+package com.invariantproperties.udt;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for HyperLogLog.
+ * 
+ * @author bgiles@coyotesong.com
+ */
+public class HyperLogLogTest {
+
+    /**
+     * Check the estimate against the exact count, allowing four standard
+     * errors.
+     */
+    private static void checkCardinality(HyperLogLog hll, long expected) {
+        double error = 4 * 1.04 / Math.sqrt(1 << hll.getPrecision());
+        long estimate = hll.cardinality();
+        assertTrue("estimate " + estimate + " expected " + expected,
+                Math.abs(estimate - expected) <= error * expected + 1);
+    }
+
+    /**
+     * Test that small cardinalities are exact in the sparse representation
+     * and that duplicates, including equal values in different forms, are
+     * not counted twice.
+     */
+    @Test
+    public void testSparse() {
+        HyperLogLog hll = new HyperLogLog();
+        assertEquals(0, hll.cardinality());
+        for (int k = 1; k <= 500; k++) {
+            hll.add(new Rational(1, k).hash64(0));
+            hll.add(new Rational(2, 2 * k).hash64(0));
+            hll.add(new Complex(-0.0, k).hash64(0));
+            hll.add(new Complex(0.0, k).hash64(0));
+        }
+        assertTrue(hll.isSparse());
+        assertEquals(1000, hll.cardinality());
+    }
+
+    /**
+     * Test accuracy across the range, through the sparse to dense switch.
+     */
+    @Test
+    public void testAccuracy() {
+        Random random = new Random(12345);
+        HyperLogLog hll = new HyperLogLog();
+        long n = 0;
+        for (long target : new long[] { 100, 1000, 2000, 5000, 10000, 20000,
+                100000, 1000000 }) {
+            while (n < target) {
+                hll.add(new Rational(random.nextLong(), 1 + (random
+                        .nextLong() >>> 1)).hash64(0));
+                n++;
+            }
+            checkCardinality(hll, n);
+        }
+        assertFalse(hll.isSparse());
+        assertEquals(2 + 4096 * 6 / 8, hll.toByteArray().length);
+    }
+
+    /**
+     * Test that merged partial sketches, in any combination of sparse and
+     * dense, match a single sketch exactly.
+     */
+    @Test
+    public void testMerge() {
+        Random random = new Random(54321);
+        HyperLogLog expected = new HyperLogLog(10);
+        HyperLogLog[] partial = { new HyperLogLog(10), new HyperLogLog(10),
+                new HyperLogLog(10), new HyperLogLog(10) };
+        for (int i = 0; i < 20000; i++) {
+            long hash = Rational.mix64(random.nextInt(15000));
+            expected.add(hash);
+            // partitions 0 and 1 go dense, 2 and 3 stay sparse
+            partial[(i % 100 < 98) ? (i % 2) : 2 + (i % 2)].add(hash);
+        }
+        assertFalse(partial[0].isSparse());
+        assertTrue(partial[2].isSparse());
+
+        for (int[] order : new int[][] { { 0, 1, 2, 3 }, { 3, 2, 1, 0 },
+                { 2, 0, 3, 1 } }) {
+            HyperLogLog merged = HyperLogLog.fromByteArray(partial[order[0]]
+                    .toByteArray());
+            for (int i = 1; i < order.length; i++) {
+                merged.add(HyperLogLog.fromByteArray(partial[order[i]]
+                        .toByteArray()));
+            }
+            assertEquals(expected.cardinality(), merged.cardinality());
+        }
+
+        HyperLogLog sparse = HyperLogLog.fromByteArray(partial[2]
+                .toByteArray());
+        sparse.add(partial[3]);
+        assertEquals(sparse.cardinality(), HyperLogLog.fromByteArray(
+                sparse.toByteArray()).cardinality());
+    }
+
+    /**
+     * Test that adding to the encoded sketch matches adding to the decoded
+     * one, through the sparse to dense switch.
+     */
+    @Test
+    public void testAddEncoded() {
+        Random random = new Random(12345);
+        HyperLogLog hll = new HyperLogLog(8);
+        byte[] bytes = hll.toByteArray();
+        for (int i = 0; i < 5000; i++) {
+            long hash = random.nextLong();
+            hll.add(hash);
+            bytes = HyperLogLog.add(bytes, hash);
+            if (i % 500 == 0) {
+                assertArrayEquals(hll.toByteArray(), bytes);
+            }
+        }
+        assertFalse(hll.isSparse());
+        assertArrayEquals(hll.toByteArray(), bytes);
+    }
+
+    /**
+     * Test precision mismatch.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testPrecisionMismatch() {
+        new HyperLogLog(10).add(new HyperLogLog(12));
+    }
+
+    /**
+     * Test malformed sketch.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testMalformedByteArray() {
+        HyperLogLog hll = new HyperLogLog();
+        hll.add(12345);
+        byte[] bytes = hll.toByteArray();
+        bytes[bytes.length - 1] |= 0x80; // truncated varint
+        HyperLogLog.fromByteArray(bytes);
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * This code was written by Bear Giles <bgiles@coyotesong.com>and he
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Any contributions made by others are licensed to this project under
+ * one or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ * Copyright (c) 2012 Bear Giles <bgiles@coyotesong.com>
+ */
+package com.invariantproperties.udt;
+
+import java.math.BigInteger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for rational accumulator.
+ * 
+ * @author bgiles@coyotesong.com
+ */
+public class RationalAccumulatorTest {
+
+    /**
+     * Test simple sums.
+     */
+    @Test
+    public void testSum() {
+        RationalAccumulator acc = new RationalAccumulator();
+        assertEquals(new BigRational(0), acc.getSum());
+        assertNull(acc.getMean());
+
+        acc.add(new Rational(1, 2));
+        acc.add(new Rational(1, 3));
+        acc.add(new Rational(1, 6));
+        acc.add(3, -4);
+        assertEquals(4, acc.getCount());
+        assertEquals(new BigRational(1, 4), acc.getSum());
+        assertEquals(new BigRational(1, 16), acc.getMean());
+        assertFalse(acc.isPromoted());
+
+        acc.clear();
+        assertEquals(0, acc.getCount());
+        assertEquals(new BigRational(0), acc.getSum());
+    }
+
+    /**
+     * Test a long sum against repeated BigRational addition.
+     */
+    @Test
+    public void testHarmonicSeries() {
+        RationalAccumulator acc = new RationalAccumulator();
+        BigRational expected = new BigRational(0);
+        for (int k = 1; k <= 100; k++) {
+            acc.add(Rational.valueOf(1, k));
+            expected = expected.add(new BigRational(1, k));
+        }
+        assertTrue(acc.isPromoted());
+        assertEquals(expected, acc.getSum());
+        assertEquals(expected.divide(new BigRational(100)), acc.getMean());
+    }
+
+    /**
+     * Test that the sum is promoted instead of overflowing.
+     */
+    @Test
+    public void testOverflow() {
+        RationalAccumulator acc = new RationalAccumulator();
+        acc.add(new Rational(Long.MAX_VALUE));
+        acc.add(new Rational(Long.MAX_VALUE));
+        acc.add(new Rational(1, 2));
+        assertTrue(acc.isPromoted());
+        BigInteger max = BigInteger.valueOf(Long.MAX_VALUE);
+        assertEquals(new BigRational(max.shiftLeft(2).add(BigInteger.ONE),
+                BigInteger.valueOf(2)), acc.getSum());
+
+        acc.add(new Rational(-Long.MAX_VALUE));
+        acc.add(new Rational(-Long.MAX_VALUE));
+        assertEquals(new BigRational(1, 2), acc.getSum());
+        assertTrue(acc.getSum().isInline());
+    }
+
+    /**
+     * Test merging accumulators.
+     */
+    @Test
+    public void testMerge() {
+        RationalAccumulator a = new RationalAccumulator();
+        RationalAccumulator b = new RationalAccumulator();
+        for (int k = 1; k <= 10; k++) {
+            a.add(Rational.valueOf(1, k));
+            b.add(Rational.valueOf(-1, k + 1));
+        }
+        a.add(b);
+        assertEquals(20, a.getCount());
+        assertEquals(new BigRational(10, 11), a.getSum());
+    }
+
+    /**
+     * Test that the encoded state round-trips, both primitive and promoted,
+     * and that accumulation can resume from it.
+     */
+    @Test
+    public void testByteArray() {
+        RationalAccumulator acc = new RationalAccumulator();
+        RationalAccumulator copy = RationalAccumulator.fromByteArray(acc
+                .toByteArray());
+        assertEquals(0, copy.getCount());
+        assertEquals(new BigRational(0), copy.getSum());
+
+        byte[] state = null;
+        for (int k = 1; k <= 100; k++) {
+            acc.add(Rational.valueOf(1, k));
+            RationalAccumulator resumed = (state == null)
+                    ? new RationalAccumulator()
+                    : RationalAccumulator.fromByteArray(state);
+            resumed.add(Rational.valueOf(1, k));
+            state = resumed.toByteArray();
+            if (!acc.isPromoted()) {
+                assertEquals(25, state.length);
+            }
+        }
+        copy = RationalAccumulator.fromByteArray(state);
+        assertTrue(copy.isPromoted());
+        assertEquals(100, copy.getCount());
+        assertEquals(acc.getSum(), copy.getSum());
+        assertEquals(acc.getMean(), copy.getMean());
+    }
+
+    /**
+     * Test combining encoded partial states, as a parallel aggregate does.
+     * The result must not depend on how the rows were partitioned.
+     */
+    @Test
+    public void testCombineByteArray() {
+        RationalAccumulator expected = new RationalAccumulator();
+        RationalAccumulator[] partial = new RationalAccumulator[3];
+        for (int i = 0; i < partial.length; i++) {
+            partial[i] = new RationalAccumulator();
+        }
+        for (int k = 1; k <= 80; k++) {
+            expected.add(Rational.valueOf(1, k));
+            // first partition promotes, the others stay primitive.
+            partial[(k <= 60) ? 0 : (k % 2) + 1].add(Rational.valueOf(1, k));
+        }
+        assertTrue(partial[0].isPromoted());
+        assertFalse(partial[1].isPromoted());
+
+        RationalAccumulator combined = RationalAccumulator
+                .fromByteArray(partial[2].toByteArray());
+        combined.add(RationalAccumulator.fromByteArray(partial[0]
+                .toByteArray()));
+        combined.add(RationalAccumulator.fromByteArray(partial[1]
+                .toByteArray()));
+        assertEquals(80, combined.getCount());
+        assertEquals(expected.getSum(), combined.getSum());
+        assertEquals(expected.getMean(), combined.getMean());
+    }
+
+    /**
+     * Test a sliding window against sums recomputed from scratch. The state
+     * must not keep growing as values pass through the window.
+     */
+    @Test
+    public void testRemove() {
+        Rational[] values = new Rational[300];
+        for (int k = 1; k <= values.length; k++) {
+            values[k - 1] = Rational.valueOf((k % 2 == 0) ? 1 : -1, k);
+        }
+
+        int window = 40;
+        int maxLength = 0;
+        RationalAccumulator moving = new RationalAccumulator();
+        for (int i = 0; i < values.length; i++) {
+            moving.add(values[i]);
+            if (i >= window) {
+                moving.remove(values[i - window]);
+            }
+            BigRational expected = new BigRational(0);
+            for (int j = Math.max(0, i - window + 1); j <= i; j++) {
+                expected = expected.add(new BigRational(values[j]));
+            }
+            assertEquals(Math.min(i + 1, window), moving.getCount());
+            assertEquals(expected, moving.getSum());
+            if (i == 2 * window) {
+                maxLength = 2 * moving.toByteArray().length;
+            } else if (i > 2 * window) {
+                assertTrue(moving.toByteArray().length < maxLength);
+            }
+        }
+
+        for (int i = values.length - window; i < values.length; i++) {
+            moving.remove(values[i]);
+        }
+        assertEquals(0, moving.getCount());
+        assertEquals(new BigRational(0), moving.getSum());
+        assertFalse(moving.isPromoted());
+        assertNull(moving.getMean());
+    }
+
+    /**
+     * Test removing from an empty accumulator.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testRemoveEmpty() {
+        new RationalAccumulator().remove(new Rational(1, 2));
+    }
+
+    /**
+     * Test malformed state.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testMalformedByteArray() {
+        byte[] state = new RationalAccumulator().toByteArray();
+        state[24] = 0; // zero denominator
+        RationalAccumulator.fromByteArray(state);
+    }
+}
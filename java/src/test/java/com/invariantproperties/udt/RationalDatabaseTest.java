@@ -178,6 +178,35 @@ public class RationalDatabaseTest extends AbstractDatabaseTest {
         conn.close();
     }
 
+    /**
+     * Test that arithmetic that overflows a rational is reported as
+     * numeric_value_out_of_range instead of wrapping around.
+     * 
+     * @throws SQLException
+     */
+    @Test
+    public void testArithmeticOutOfRange() throws SQLException {
+        Connection conn = ds.getConnection();
+        Statement stmt = conn.createStatement();
+
+        try {
+            stmt.executeQuery("select '9223372036854775807'::invariantproperties.rational + '1'::invariantproperties.rational");
+            fail("overflow did not throw expected exception");
+        } catch (SQLException e) {
+            assertEquals("22003", e.getSQLState());
+        }
+
+        try {
+            stmt.executeQuery("select -'-9223372036854775808'::invariantproperties.rational");
+            fail("overflow did not throw expected exception");
+        } catch (SQLException e) {
+            assertEquals("22003", e.getSQLState());
+        }
+
+        stmt.close();
+        conn.close();
+    }
+
     /**
      * Test comparison operations.
      * 
@@ -236,6 +265,58 @@ public class RationalDatabaseTest extends AbstractDatabaseTest {
         r = getRationalValue(rs, 2);
         assertEquals(2, r.getNumerator());
         assertEquals(3, r.getDenominator());
+        rs.close();
+
+        rs = stmt
+                .executeQuery("select sum(a), avg(a), sum(a) filter (where id > 4) from rational_test");
+        assertTrue(rs.next());
+        assertEquals(new BigRational(11, 6),
+                BigRational.parse(((PGobject) rs.getObject(1)).getValue()));
+        assertEquals(new BigRational(11, 24),
+                BigRational.parse(((PGobject) rs.getObject(2)).getValue()));
+        assertEquals(null, rs.getObject(3));
+        rs.close();
+
+        // moving aggregate: values leave the frame via the inverse function.
+        rs = stmt
+                .executeQuery("select sum(a) over (order by id rows between 1 preceding and current row) from rational_test order by id");
+        String[] expected = { "1/2", "5/6", "1", "1" };
+        for (String s : expected) {
+            assertTrue(rs.next());
+            assertEquals(BigRational.parse(s),
+                    BigRational.parse(((PGobject) rs.getObject(1)).getValue()));
+        }
+        rs.close();
+
+        rs = stmt
+                .executeQuery("select percentile_disc(0.5) within group (order by a), mode() within group (order by a), median(a) from rational_test");
+        assertTrue(rs.next());
+        r = getRationalValue(rs, 1);
+        assertEquals(1, r.getNumerator());
+        assertEquals(3, r.getDenominator());
+        r = getRationalValue(rs, 2);
+        assertEquals(1, r.getNumerator());
+        assertEquals(3, r.getDenominator());
+        assertEquals(new BigRational(5, 12),
+                BigRational.parse(((PGobject) rs.getObject(3)).getValue()));
+        rs.close();
+
+        rs = stmt
+                .executeQuery("select invariantproperties.quantile(tdigest(a), 0.5), invariantproperties.quantile(tdigest(a), array[0, 1]::float8[]) from rational_test");
+        assertTrue(rs.next());
+        assertEquals(5.0 / 12, rs.getDouble(1), 1e-12);
+        Double[] q = (Double[]) rs.getArray(2).getArray();
+        assertEquals(1.0 / 3, q[0], 1e-12);
+        assertEquals(2.0 / 3, q[1], 1e-12);
+        rs.close();
+
+        rs = stmt
+                .executeQuery("select approx_count_distinct(a), approx_count_distinct(a, 16), approx_count_distinct(a) filter (where id > 4) from rational_test");
+        assertTrue(rs.next());
+        assertEquals(3, rs.getLong(1));
+        assertEquals(3, rs.getLong(2));
+        assertEquals(0, rs.getLong(3));
+        rs.close();
 
         stmt.execute("drop table rational_test");
         stmt.close();
@@ -0,0 +1,165 @@
+/*
+ * This code was written by Bear Giles <bgiles@coyotesong.com>and he
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Any contributions made by others are licensed to this project under
+ * one or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ * Copyright (c) 2012 Bear Giles <bgiles@coyotesong.com>
+ */
+package com.invariantproperties.udt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for rational sort keys.
+ * 
+ * @author bgiles@coyotesong.com
+ */
+public class RationalSortKeyTest {
+
+    /**
+     * Test encoding of a few simple values.
+     */
+    @Test
+    public void testEncode() {
+        assertKey(new byte[] { 0x02, 0x00, 0x00 }, new Rational(0));
+        assertKey(new byte[] { 0x02, 0x01, 0x00 }, new Rational(1));
+        assertKey(new byte[] { 0x02, 0x00, (byte) 0xFD, (byte) 0xFF },
+                new Rational(1, 2));
+        assertKey(new byte[] { 0x01, (byte) 0xFE, (byte) 0xFD, (byte) 0xFF },
+                new Rational(-1, 2));
+    }
+
+    /**
+     * Test that decode() is the inverse of encode().
+     */
+    @Test
+    public void testRoundTrip() {
+        for (Rational r : values()) {
+            assertEquals(r, RationalSortKey.decode(RationalSortKey.encode(r)));
+        }
+    }
+
+    /**
+     * Test that the unsigned lexicographic order of the keys matches
+     * compareTo().
+     */
+    @Test
+    public void testOrder() {
+        List<Rational> values = values();
+        List<byte[]> keys = new ArrayList<byte[]>();
+        for (Rational r : values) {
+            keys.add(RationalSortKey.encode(r));
+        }
+        for (int i = 0; i < values.size(); i++) {
+            for (int j = 0; j < values.size(); j++) {
+                int expected = Integer.signum(values.get(i).compareTo(
+                        values.get(j)));
+                int actual = Integer.signum(compare(keys.get(i), keys.get(j)));
+                if (expected != actual) {
+                    fail(values.get(i) + " <=> " + values.get(j));
+                }
+            }
+        }
+    }
+
+    /**
+     * Test malformed keys.
+     */
+    @Test
+    public void testMalformed() {
+        byte[][] keys = { {}, { 0x02, 0x00 }, { 0x03, 0x00, 0x00 },
+                { 0x02, 0x00, 0x00, 0x00 }, { 0x02, (byte) 0xF1, 0x00 },
+                { 0x02, 0x00, (byte) 0xFE, (byte) 0xFF },
+                { 0x01, (byte) 0xFF, 0x00 } };
+        for (byte[] key : keys) {
+            try {
+                RationalSortKey.decode(key);
+                fail("decoded malformed key");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    private static void assertKey(byte[] expected, Rational r) {
+        byte[] key = RationalSortKey.encode(r);
+        assertEquals(expected.length, key.length);
+        for (int i = 0; i < key.length; i++) {
+            assertEquals(expected[i], key[i]);
+        }
+    }
+
+    /**
+     * memcmp()
+     */
+    static int compare(byte[] p, byte[] q) {
+        int len = Math.min(p.length, q.length);
+        for (int i = 0; i < len; i++) {
+            int c = (p[i] & 0xFF) - (q[i] & 0xFF);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return p.length - q.length;
+    }
+
+    private static List<Rational> values() {
+        List<Rational> values = new ArrayList<Rational>();
+        for (int n = -12; n <= 12; n++) {
+            for (int d = 1; d <= 12; d++) {
+                values.add(new Rational(n, d));
+            }
+        }
+        long[] extremes = { Long.MIN_VALUE, Long.MIN_VALUE + 1, -1, 1,
+                Long.MAX_VALUE - 1, Long.MAX_VALUE, 239, 240, 255, 256 };
+        for (long n : extremes) {
+            for (long d : extremes) {
+                if ((d > 0)
+                        || ((d != Long.MIN_VALUE) && (n != Long.MIN_VALUE))) {
+                    values.add(new Rational(n, d));
+                }
+            }
+        }
+
+        // consecutive Fibonacci numbers have the longest expansions.
+        long f0 = 1;
+        long f1 = 1;
+        while (f1 > 0) {
+            values.add(new Rational(f0, f1));
+            values.add(new Rational(-f1, f0));
+            long t = f0 + f1;
+            f0 = f1;
+            f1 = t;
+        }
+
+        Random random = new Random(12345);
+        for (int i = 0; i < 500; i++) {
+            long n = random.nextLong() >> random.nextInt(64);
+            long d = 1 + ((random.nextLong() >>> 1) >> random.nextInt(64));
+            values.add(new Rational(n, d));
+        }
+        return values;
+    }
+}
@@ -22,13 +22,21 @@
  */
 package com.invariantproperties.udt;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
 import org.junit.Test;
 
 import com.invariantproperties.udt.Rational;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * Tests for complex type.
@@ -127,6 +135,232 @@ public class RationalTest {
          */
     }
 
+    /**
+     * Test arithmetic operators.
+     */
+    @Test
+    public void testArithmetic() {
+        Rational c0 = new Rational(1, 6);
+        Rational c1 = new Rational(3, 10);
+
+        assertEquals(new Rational(7, 15), c0.add(c1));
+        assertEquals(new Rational(-2, 15), c0.subtract(c1));
+        assertEquals(new Rational(1, 20), c0.multiply(c1));
+        assertEquals(new Rational(5, 9), c0.divide(c1));
+        assertEquals(new Rational(-5, 9), c0.divide(c1.negate()));
+
+        assertEquals(new Rational(0), c0.subtract(c0));
+        assertEquals(new Rational(0), c0.multiply(new Rational(0)));
+        assertEquals(new Rational(1), c0.divide(c0));
+
+        // results are always in lowest terms with positive denominator
+        Rational c = new Rational(-1, 4).subtract(new Rational(1, 4));
+        assertEquals(-1, c.getNumerator());
+        assertEquals(2, c.getDenominator());
+    }
+
+    /**
+     * Test arithmetic where the unreduced intermediate values overflow a long
+     * but the result does not.
+     */
+    @Test
+    public void testArithmeticOverflow() {
+        long big = Long.MAX_VALUE / 3;
+        Rational c0 = new Rational(1, big);
+        Rational c1 = new Rational(2, big);
+
+        assertEquals(new Rational(3, big), c0.add(c1));
+        assertEquals(new Rational(-1, big), c0.subtract(c1));
+        assertEquals(new Rational(1, 2), c0.divide(c1));
+
+        Rational c2 = new Rational(big, 7);
+        assertEquals(new Rational(1, 7), c0.multiply(c2));
+
+        Rational c3 = new Rational(Long.MAX_VALUE - 1, Long.MAX_VALUE);
+        Rational c4 = new Rational(1, Long.MAX_VALUE);
+        assertEquals(new Rational(1), c3.add(c4));
+    }
+
+    /**
+     * Test that a result too large for a long is rejected instead of
+     * silently wrapping around.
+     */
+    @Test(expected = ArithmeticException.class)
+    public void testAddOutOfRange() {
+        Rational.valueOf(Long.MAX_VALUE).add(Rational.valueOf(1));
+    }
+
+    /**
+     * Test that a result too large for a long is rejected instead of
+     * silently wrapping around.
+     */
+    @Test(expected = ArithmeticException.class)
+    public void testMultiplyOutOfRange() {
+        new Rational(Long.MAX_VALUE, 3).multiply(new Rational(Long.MAX_VALUE,
+                5));
+    }
+
+    /**
+     * Test that a result too large for a long is rejected instead of
+     * silently wrapping around.
+     */
+    @Test(expected = ArithmeticException.class)
+    public void testDivideOutOfRange() {
+        new Rational(Long.MAX_VALUE).divide(new Rational(1, 2));
+    }
+
+    /**
+     * Test division by zero.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testDivideByZero() {
+        new Rational(1, 2).divide(new Rational(0));
+    }
+
+    /**
+     * Test comparisons, including values whose cross products overflow a
+     * long.
+     */
+    @Test
+    public void testCompareTo() {
+        assertEquals(0, new Rational(1, 2).compareTo(new Rational(2, 4)));
+        assertTrue(new Rational(1, 3).compareTo(new Rational(1, 2)) < 0);
+        assertTrue(new Rational(-1, 2).compareTo(new Rational(-1, 3)) < 0);
+        assertTrue(new Rational(0).compareTo(new Rational(-1, 3)) > 0);
+        assertTrue(new Rational(1, 2).compareTo(null) > 0);
+
+        long[] values = { 0, 1, -1, 2, 3, 7, 1L << 31, (1L << 31) - 1,
+                1L << 40, Long.MAX_VALUE / 3, Long.MAX_VALUE - 1,
+                Long.MAX_VALUE, -Long.MAX_VALUE };
+        for (long n1 : values) {
+            for (long d1 : values) {
+                if (d1 <= 0) {
+                    continue;
+                }
+                Rational p = new Rational(n1, d1);
+                for (long n2 : values) {
+                    for (long d2 : values) {
+                        if (d2 <= 0) {
+                            continue;
+                        }
+                        Rational q = new Rational(n2, d2);
+                        BigInteger l = BigInteger.valueOf(p.getNumerator())
+                                .multiply(BigInteger.valueOf(q.getDenominator()));
+                        BigInteger r = BigInteger.valueOf(q.getNumerator())
+                                .multiply(BigInteger.valueOf(p.getDenominator()));
+                        assertEquals(p + " <=> " + q, l.compareTo(r),
+                                Integer.signum(p.compareTo(q)));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Test valueOf() and the flyweight cache.
+     */
+    @Test
+    public void testValueOf() {
+        assertSame(Rational.valueOf(1, 2), Rational.valueOf(2, 4));
+        assertSame(Rational.valueOf(-1, 2), Rational.valueOf(1, -2));
+        assertSame(Rational.valueOf(3), Rational.valueOf(6, 2));
+        assertSame(Rational.valueOf(37, 100), Rational.valueOf(37, 100));
+        assertEquals(new Rational(37, 100), Rational.valueOf(37, 100));
+
+        // arithmetic results come from the cache too
+        assertSame(Rational.valueOf(3, 4),
+                Rational.valueOf(1, 2).add(Rational.valueOf(1, 4)));
+        assertSame(Rational.valueOf(0),
+                Rational.valueOf(1, 2).subtract(Rational.valueOf(1, 2)));
+        assertSame(Rational.valueOf(-1, 2), Rational.valueOf(1, 2).negate());
+
+        // values outside of the cache are still correct
+        Rational c = Rational.valueOf(1000, 3000);
+        assertSame(Rational.valueOf(1, 3), c);
+        c = Rational.valueOf(301, 200);
+        assertEquals(301, c.getNumerator());
+        assertEquals(200, c.getDenominator());
+        c = Rational.valueOf(-1000000, 7);
+        assertEquals(-1000000, c.getNumerator());
+        assertEquals(7, c.getDenominator());
+    }
+
+    /**
+     * Test results with a Long.MIN_VALUE numerator and a denominator small
+     * enough to be cached. Only |n| < d is in the cache.
+     */
+    @Test
+    public void testMinValueNumerator() {
+        Rational c = Rational.valueOf(-(1L << 62), 3).multiply(
+                Rational.valueOf(2));
+        assertEquals(Long.MIN_VALUE, c.getNumerator());
+        assertEquals(3, c.getDenominator());
+
+        c = Rational.valueOf(-3074457345618258602L).add(
+                Rational.valueOf(-2, 3));
+        assertEquals(Long.MIN_VALUE, c.getNumerator());
+        assertEquals(3, c.getDenominator());
+
+        c = Rational.valueOf(-(1L << 62), 7).negate().negate()
+                .subtract(Rational.valueOf(1L << 62, 7));
+        assertEquals(Long.MIN_VALUE, c.getNumerator());
+        assertEquals(7, c.getDenominator());
+    }
+
+    /**
+     * Test normalizing a negative denominator when a component is
+     * Long.MIN_VALUE, which can't simply be negated.
+     */
+    @Test
+    public void testMinValueNegativeDenominator() {
+        Rational c = Rational.valueOf(Long.MIN_VALUE, -2);
+        assertEquals(1L << 62, c.getNumerator());
+        assertEquals(1, c.getDenominator());
+        assertEquals(c, new Rational(Long.MIN_VALUE, -2));
+        assertEquals(c, Rational.parse("-9223372036854775808/-2"));
+
+        c = Rational.valueOf(-2, Long.MIN_VALUE);
+        assertEquals(1, c.getNumerator());
+        assertEquals(1L << 62, c.getDenominator());
+
+        c = Rational.valueOf(Long.MIN_VALUE, Long.MIN_VALUE);
+        assertEquals(Rational.valueOf(1), c);
+    }
+
+    /**
+     * Test that Long.MIN_VALUE/-1 is rejected instead of wrapping around.
+     */
+    @Test(expected = ArithmeticException.class)
+    public void testMinValueOverDenominatorMinusOne() {
+        Rational.valueOf(Long.MIN_VALUE, -1);
+    }
+
+    /**
+     * Test that Long.MIN_VALUE/-1 is rejected when parsed.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseMinValueOverDenominatorMinusOne() {
+        Rational.parse("-9223372036854775808/-1");
+    }
+
+    /**
+     * Test that negating a Long.MIN_VALUE numerator is rejected instead of
+     * wrapping around.
+     */
+    @Test
+    public void testNegateMinValue() {
+        for (long d : new long[] { 1, 3, Long.MAX_VALUE }) {
+            try {
+                Rational.valueOf(Long.MIN_VALUE, d).negate();
+                fail("negate did not throw expected exception");
+            } catch (ArithmeticException e) {
+                // expected
+            }
+        }
+        assertEquals(Long.MAX_VALUE, Rational.valueOf(Long.MIN_VALUE + 1)
+                .negate().getNumerator());
+    }
+
     /**
      * Test toString()/parse().
      */
@@ -143,4 +377,141 @@ public class RationalTest {
         assertEquals(c0.getNumerator(), c.getNumerator());
         assertEquals(c0.getDenominator(), c.getDenominator());
     }
+
+    /**
+     * Test parsing the accepted input forms.
+     */
+    @Test
+    public void testParseForms() {
+        assertEquals(new Rational(12), Rational.parse("12"));
+        assertEquals(new Rational(12), Rational.parse("+12"));
+        assertEquals(new Rational(-3, 4), Rational.parse("-3/4"));
+        assertEquals(new Rational(-3, 4), Rational.parse("3/-4"));
+        assertEquals(new Rational(3, 4), Rational.parse(" 6 / 8 "));
+        assertEquals(new Rational(1, 8), Rational.parse("0.125"));
+        assertEquals(new Rational(-1, 8), Rational.parse("-.125"));
+        assertEquals(new Rational(3, 2000), Rational.parse("1.5e-3"));
+        assertEquals(new Rational(1500), Rational.parse("1.5E3"));
+        assertEquals(new Rational(1, 2), Rational.parse("0.50000000000000000000000"));
+        assertEquals(new Rational(1, 3), Rational.parse("0.5/1.5"));
+        assertEquals(new Rational(0), Rational.parse("0e99"));
+        assertEquals(new Rational(Long.MIN_VALUE),
+                Rational.parse(String.valueOf(Long.MIN_VALUE)));
+        assertEquals(new Rational(Long.MAX_VALUE),
+                Rational.parse(new StringBuilder().append(Long.MAX_VALUE)));
+
+        String[] bad = { "", "-", "1/", "/2", "1.2.3", "1e", "1/2/3", "x",
+                "1 2", "99999999999999999999", "1/0" };
+        for (String s : bad) {
+            try {
+                Rational.parse(s);
+                fail("parsed \"" + s + '"');
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    /**
+     * Test toString()/appendTo().
+     */
+    @Test
+    public void testToString() {
+        assertEquals("-3/4", new Rational(-3, 4).toString());
+        assertEquals("12", new Rational(12).toString());
+        StringBuilder sb = new StringBuilder("x=");
+        assertEquals("x=1/2", new Rational(1, 2).appendTo(sb).toString());
+    }
+
+    /**
+     * Test hash functions.
+     */
+    @Test
+    public void testHash() {
+        Rational p = new Rational(2, 4);
+        Rational q = Rational.valueOf(1, 2);
+        assertEquals(p.hashCode(), q.hashCode());
+        assertEquals(p.hash64(42), q.hash64(42));
+        assertEquals(p.hashCode(), (int) p.hash64(0));
+        assertTrue(p.hash64(0) != p.hash64(1));
+
+        // the old 31 * n + d hash collided for these
+        assertTrue(new Rational(1, 32).hashCode() != new Rational(2)
+                .hashCode());
+
+        // small fractions should not collide in 32 bits or in a small table
+        Set<Integer> hashes = new HashSet<Integer>();
+        Set<Rational> values = new HashSet<Rational>();
+        int[] buckets = new int[64];
+        for (int n = -100; n <= 100; n++) {
+            for (int d = 1; d <= 100; d++) {
+                Rational r = new Rational(n, d);
+                if (values.add(r)) {
+                    hashes.add(r.hashCode());
+                    buckets[r.hashCode() & 63]++;
+                }
+            }
+        }
+        assertEquals(values.size(), hashes.size());
+        int expected = values.size() / buckets.length;
+        for (int count : buckets) {
+            assertTrue(count > expected / 2);
+            assertTrue(count < expected * 2);
+        }
+    }
+
+    /**
+     * Test exact comparisons with doubles and longs.
+     */
+    @Test
+    public void testCompareToScalar() {
+        // inexact with doubleValue()
+        assertEquals(1, new Rational(1, 3).compareTo(1.0 / 3));
+        assertEquals(-1, new Rational(Long.MAX_VALUE).compareTo(
+                (double) Long.MAX_VALUE));
+        assertEquals(0, new Rational(Long.MIN_VALUE).compareTo(
+                (double) Long.MIN_VALUE));
+        assertEquals(1, new Rational(1, Long.MAX_VALUE)
+                .compareTo(Double.MIN_VALUE));
+
+        assertEquals(0, new Rational(0).compareTo(-0.0));
+        assertEquals(0, new Rational(3, 4).compareTo(0.75));
+        assertEquals(-1, new Rational(Long.MAX_VALUE).compareTo(Double.NaN));
+        assertEquals(-1, new Rational(Long.MAX_VALUE)
+                .compareTo(Double.POSITIVE_INFINITY));
+        assertEquals(1, new Rational(Long.MIN_VALUE)
+                .compareTo(Double.NEGATIVE_INFINITY));
+
+        assertEquals(0, new Rational(6, 2).compareTo(3L));
+        assertEquals(-1, new Rational(5, 2).compareTo(3L));
+        assertEquals(1, new Rational(Long.MIN_VALUE + 1, 2).compareTo(
+                Long.MIN_VALUE));
+
+        Random random = new Random(12345);
+        for (int i = 0; i < 100000; i++) {
+            long n = random.nextLong() >> random.nextInt(64);
+            long d = 1 + ((random.nextLong() >>> 1) >> random.nextInt(64));
+            double v;
+            switch (i % 3) {
+            case 0:
+                v = Double.longBitsToDouble(random.nextLong());
+                break;
+            case 1:
+                v = ((double) n) / d;
+                break;
+            default:
+                v = Math.scalb(random.nextDouble() - 0.5,
+                        random.nextInt(140) - 70);
+            }
+            if (Double.isNaN(v) || Double.isInfinite(v)) {
+                continue;
+            }
+            Rational r = new Rational(n, d);
+            BigDecimal l = new BigDecimal(r.getNumerator());
+            BigDecimal rhs = new BigDecimal(v).multiply(new BigDecimal(r
+                    .getDenominator()));
+            int expected = l.compareTo(rhs);
+            assertEquals(r + " <=> " + v, expected, r.compareTo(v));
+        }
+    }
 }
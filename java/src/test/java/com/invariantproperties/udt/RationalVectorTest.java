@@ -0,0 +1,271 @@
+/*
+ * This code was written by Bear Giles <bgiles@coyotesong.com>and he
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Any contributions made by others are licensed to this project under
+ * one or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ * Copyright (c) 2012 Bear Giles <bgiles@coyotesong.com>
+ */
+package com.invariantproperties.udt;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for rational vectors.
+ * 
+ * @author bgiles@coyotesong.com
+ */
+public class RationalVectorTest {
+
+    /**
+     * Generate values. Some are large enough to overflow when combined.
+     */
+    private static Rational[] values(Random random, int size) {
+        return values(random, size, false);
+    }
+
+    /**
+     * Generate values. If fit is set the large values are small enough that
+     * their element-wise sums and products still fit in a long.
+     */
+    private static Rational[] values(Random random, int size, boolean fit) {
+        Rational[] values = new Rational[size];
+        for (int i = 0; i < size; i++) {
+            if ((i % 10 == 0) && fit) {
+                values[i] = new Rational(random.nextInt() >> 1,
+                        1 + random.nextInt(1 << 30));
+            } else if (i % 10 == 0) {
+                values[i] = new Rational(random.nextLong(),
+                        1 + (random.nextLong() >>> 1));
+            } else {
+                values[i] = new Rational(random.nextInt(2001) - 1000,
+                        1 + random.nextInt(100));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Test element-wise operations against the scalar implementation.
+     */
+    @Test
+    public void testElementWise() {
+        Random random = new Random(12345);
+        Rational[] p = values(random, 1000, true);
+        Rational[] q = values(random, 1000, true);
+        RationalVector vp = new RationalVector(p);
+        RationalVector vq = new RationalVector(q);
+
+        RationalVector sum = vp.add(vq);
+        RationalVector product = vp.multiply(vq);
+        int[] cmp = vp.compare(vq);
+        for (int i = 0; i < p.length; i++) {
+            assertEquals(p[i].add(q[i]), sum.get(i));
+            assertEquals(p[i].multiply(q[i]), product.get(i));
+            assertEquals(Integer.signum(p[i].compareTo(q[i])), cmp[i]);
+        }
+    }
+
+    /**
+     * Test sum and dot product against BigRational.
+     */
+    @Test
+    public void testReductions() {
+        Random random = new Random(12345);
+        Rational[] p = values(random, 1000);
+        Rational[] q = values(random, 1000);
+
+        BigRational sum = new BigRational(0);
+        BigRational dot = new BigRational(0);
+        for (int i = 0; i < p.length; i++) {
+            sum = sum.add(new BigRational(p[i]));
+            dot = dot.add(new BigRational(p[i]).multiply(new BigRational(q[i])));
+        }
+        assertEquals(sum, new RationalVector(p).sum());
+        assertEquals(dot, new RationalVector(p).dot(new RationalVector(q)));
+        assertEquals(new BigRational(0), new RationalVector(0).sum());
+    }
+
+    /**
+     * Test sort, min and max.
+     */
+    @Test
+    public void testSort() {
+        Random random = new Random(12345);
+        for (int size : new int[] { 0, 1, 15, 16, 17, 100, 1000 }) {
+            Rational[] p = values(random, size);
+            RationalVector v = new RationalVector(p);
+            Rational[] sorted = p.clone();
+            Arrays.sort(sorted);
+            if (size == 0) {
+                assertNull(v.min());
+                assertNull(v.max());
+            } else {
+                assertEquals(sorted[0], v.min());
+                assertEquals(sorted[size - 1], v.max());
+            }
+            v.sort();
+            assertArrayEquals(sorted, v.toArray());
+        }
+    }
+
+    /**
+     * Test the kernels with a Long.MIN_VALUE numerator and a small
+     * denominator.
+     */
+    @Test
+    public void testMinValueNumerator() {
+        Rational smallest = new Rational(Long.MIN_VALUE, 3);
+        Rational[] p = { new Rational(1, 2), smallest, new Rational(-1, 3),
+                smallest, new Rational(2) };
+        RationalVector v = new RationalVector(p);
+        assertEquals(smallest, v.min());
+        assertEquals(new Rational(2), v.max());
+        assertEquals(new BigRational(-1, 3), v.median());
+        assertEquals(smallest, v.mode());
+
+        Rational[] sorted = p.clone();
+        Arrays.sort(sorted);
+        v.sort();
+        assertArrayEquals(sorted, v.toArray());
+        assertEquals(smallest, v.get(0));
+    }
+
+    /**
+     * Test select, percentile and median against a sorted copy.
+     */
+    @Test
+    public void testSelect() {
+        Random random = new Random(12345);
+        for (int size : new int[] { 1, 2, 3, 16, 17, 100, 1000 }) {
+            Rational[] p = values(random, size);
+            // plenty of duplicates
+            for (int i = 0; i < size; i += 3) {
+                p[i] = p[size / 2];
+            }
+            Rational[] sorted = p.clone();
+            Arrays.sort(sorted);
+            for (int k = 0; k < size; k += Math.max(1, size / 10)) {
+                RationalVector v = new RationalVector(p);
+                assertEquals(sorted[k], v.select(k));
+                for (int i = 0; i < size; i++) {
+                    int c = v.get(i).compareTo(sorted[k]);
+                    assertTrue((i < k) ? (c <= 0) : (i > k) ? (c >= 0)
+                            : (c == 0));
+                }
+            }
+
+            RationalVector v = new RationalVector(p);
+            assertEquals(sorted[0], v.percentile(0));
+            assertEquals(sorted[size - 1], v.percentile(1));
+            assertEquals(sorted[(size + 1) / 2 - 1], v.percentile(0.5));
+
+            BigRational median = new BigRational(sorted[size / 2]);
+            if (size % 2 == 0) {
+                median = median.add(new BigRational(sorted[size / 2 - 1]))
+                        .divide(new BigRational(2));
+            }
+            assertEquals(median, new RationalVector(p).median());
+        }
+        assertNull(new RationalVector(0).median());
+        assertNull(new RationalVector(0).percentile(0.5));
+    }
+
+    /**
+     * Test that select is not quadratic on sorted or constant input.
+     */
+    @Test(timeout = 5000)
+    public void testSelectAdversarial() {
+        int size = 200000;
+        RationalVector sorted = new RationalVector(size);
+        RationalVector constant = new RationalVector(size);
+        for (int i = 0; i < size; i++) {
+            sorted.set(i, new Rational(i, 7));
+            constant.set(i, new Rational(1, 3));
+        }
+        assertEquals(new Rational(size / 2, 7), sorted.select(size / 2));
+        assertEquals(new Rational(1, 3), constant.select(size / 2));
+    }
+
+    /**
+     * Test percentile outside [0, 1].
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testPercentileRange() {
+        new RationalVector(1).percentile(1.5);
+    }
+
+    /**
+     * Test mode, including ties.
+     */
+    @Test
+    public void testMode() {
+        Rational[] p = { new Rational(1, 2), new Rational(2, 3),
+                new Rational(2, 4), new Rational(-1), new Rational(4, 6),
+                new Rational(1, 2), new Rational(2, 3) };
+        // 1/2 and 2/3 three times each. The smallest wins.
+        assertEquals(new Rational(1, 2), new RationalVector(p).mode());
+        p[0] = new Rational(2, 3);
+        assertEquals(new Rational(2, 3), new RationalVector(p).mode());
+        p[1] = new Rational(-1);
+        p[4] = new Rational(-1);
+        assertEquals(new Rational(-1), new RationalVector(p).mode());
+        assertNull(new RationalVector(0).mode());
+    }
+
+    /**
+     * Test that an element too large for a long is rejected instead of
+     * silently wrapping around.
+     */
+    @Test(expected = ArithmeticException.class)
+    public void testAddOutOfRange() {
+        RationalVector p = new RationalVector(2);
+        p.set(1, new Rational(Long.MAX_VALUE));
+        RationalVector q = new RationalVector(2);
+        q.set(1, new Rational(1));
+        p.add(q);
+    }
+
+    /**
+     * Test that an element too large for a long is rejected instead of
+     * silently wrapping around.
+     */
+    @Test(expected = ArithmeticException.class)
+    public void testMultiplyOutOfRange() {
+        RationalVector p = new RationalVector(2);
+        p.set(1, new Rational(Long.MAX_VALUE));
+        RationalVector q = new RationalVector(2);
+        q.set(1, new Rational(2));
+        p.multiply(q);
+    }
+
+    /**
+     * Test size mismatch.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testSizeMismatch() {
+        new RationalVector(2).add(new RationalVector(3));
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * This code was written by Bear Giles <bgiles@coyotesong.com>and he
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Any contributions made by others are licensed to this project under
+ * one or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ * Copyright (c) 2012 Bear Giles <bgiles@coyotesong.com>
+ */
+package com.invariantproperties.udt;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for t-digest.
+ * 
+ * @author bgiles@coyotesong.com
+ */
+public class TDigestTest {
+    private static final double[] QUANTILES = { 0.001, 0.01, 0.1, 0.25, 0.5,
+            0.75, 0.9, 0.99, 0.999 };
+
+    /**
+     * Get the exact rank, as a fraction, of a value in sorted data.
+     */
+    private static double rank(double[] sorted, double x) {
+        int i = Arrays.binarySearch(sorted, x);
+        if (i < 0) {
+            i = -i - 1;
+        }
+        return (double) i / sorted.length;
+    }
+
+    /**
+     * Check every quantile against the data, measured as error in rank.
+     * The tails must be much more accurate than the middle.
+     */
+    private static void checkQuantiles(TDigest digest, double[] data) {
+        double[] sorted = data.clone();
+        Arrays.sort(sorted);
+        for (double q : QUANTILES) {
+            double error = Math.abs(rank(sorted, digest.quantile(q)) - q);
+            double bound = 0.005 * Math.sqrt(q * (1 - q)) * 4 + 0.0005;
+            assertTrue("quantile " + q + " rank error " + error,
+                    error <= bound);
+        }
+        assertEquals(sorted[0], digest.quantile(0), 0);
+        assertEquals(sorted[sorted.length - 1], digest.quantile(1), 0);
+    }
+
+    private static double[] data(Random random, int size) {
+        double[] data = new double[size];
+        for (int i = 0; i < size; i++) {
+            // skewed, heavy right tail
+            data[i] = Math.exp(random.nextGaussian());
+        }
+        return data;
+    }
+
+    /**
+     * Test small digests.
+     */
+    @Test
+    public void testSmall() {
+        TDigest digest = new TDigest();
+        assertEquals(0, digest.getCount());
+        assertTrue(Double.isNaN(digest.quantile(0.5)));
+
+        digest.add(3);
+        assertEquals(3, digest.quantile(0.5), 0);
+        digest.add(1);
+        digest.add(2);
+        assertEquals(3, digest.getCount());
+        assertEquals(1, digest.getMin(), 0);
+        assertEquals(3, digest.getMax(), 0);
+        assertEquals(2, digest.quantile(0.5), 0);
+    }
+
+    /**
+     * Test accuracy and that memory is bounded.
+     */
+    @Test
+    public void testAccuracy() {
+        double[] data = data(new Random(12345), 200000);
+        TDigest digest = new TDigest();
+        for (double x : data) {
+            digest.add(x);
+        }
+        assertEquals(data.length, digest.getCount());
+        assertTrue(digest.getCentroidCount() <= 2 * digest.getCompression());
+        assertTrue(digest.toByteArray().length < 4000);
+        checkQuantiles(digest, data);
+    }
+
+    /**
+     * Test that sorted input, the worst case for some sketches, is handled.
+     */
+    @Test
+    public void testSortedInput() {
+        double[] data = new double[100000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = i;
+        }
+        TDigest digest = new TDigest();
+        for (double x : data) {
+            digest.add(x);
+        }
+        checkQuantiles(digest, data);
+    }
+
+    /**
+     * Test that merged partial digests, passed through their encoded form,
+     * are as accurate as a single digest.
+     */
+    @Test
+    public void testMerge() {
+        double[] data = data(new Random(54321), 100000);
+        TDigest[] partial = new TDigest[7];
+        for (int i = 0; i < partial.length; i++) {
+            partial[i] = new TDigest();
+        }
+        for (int i = 0; i < data.length; i++) {
+            // uneven partitions, one of them sorted by value range
+            int p = (data[i] > 5) ? 0 : 1 + (i % (partial.length - 1));
+            partial[p].add(data[i]);
+        }
+
+        TDigest merged = TDigest.fromByteArray(partial[3].toByteArray());
+        for (int i = 0; i < partial.length; i++) {
+            if (i != 3) {
+                merged.add(TDigest.fromByteArray(partial[i].toByteArray()));
+            }
+        }
+        merged.add(new TDigest());
+        assertEquals(data.length, merged.getCount());
+        checkQuantiles(merged, data);
+    }
+
+    /**
+     * Test that the encoded digest round-trips with buffered values.
+     */
+    @Test
+    public void testByteArray() {
+        TDigest digest = new TDigest(50);
+        Random random = new Random(12345);
+        for (int i = 0; i < 1234; i++) {
+            digest.add(random.nextDouble());
+        }
+        TDigest copy = TDigest.fromByteArray(digest.toByteArray());
+        assertEquals(50, copy.getCompression(), 0);
+        assertEquals(digest.getCount(), copy.getCount());
+        TDigest compact = TDigest.fromByteArray(digest.toCompactByteArray());
+        assertEquals(digest.getCount(), compact.getCount());
+        assertTrue(digest.toCompactByteArray().length < digest
+                .toByteArray().length);
+        for (double q : QUANTILES) {
+            assertEquals(digest.quantile(q), copy.quantile(q), 0);
+            assertEquals(digest.quantile(q), compact.quantile(q), 0);
+        }
+    }
+
+    /**
+     * Test adding values to the encoded digest, as the aggregate transition
+     * functions do. Values are appended in place until the buffer is full
+     * and the result must match adding them to a decoded digest.
+     */
+    @Test
+    public void testAddByteArray() {
+        double[] data = data(new Random(12345), 10000);
+        TDigest digest = new TDigest();
+        byte[] bytes = new TDigest().toByteArray();
+        int inPlace = 0;
+        for (double x : data) {
+            digest.add(x);
+            byte[] updated = TDigest.add(bytes, x);
+            if (updated == bytes) {
+                inPlace++;
+            }
+            bytes = updated;
+        }
+        assertTrue(inPlace > data.length * 9 / 10);
+
+        TDigest copy = TDigest.fromByteArray(bytes);
+        assertEquals(digest.getCount(), copy.getCount());
+        assertEquals(digest.getMin(), copy.getMin(), 0);
+        assertEquals(digest.getMax(), copy.getMax(), 0);
+        for (double q : QUANTILES) {
+            assertEquals(digest.quantile(q), copy.quantile(q), 0);
+        }
+
+        // a compact encoding has no room, so it is decoded and re-encoded
+        byte[] compact = digest.toCompactByteArray();
+        bytes = TDigest.add(compact, 0.5);
+        assertTrue(bytes != compact);
+        assertEquals(digest.getCount() + 1, TDigest.fromByteArray(bytes)
+                .getCount());
+    }
+
+    /**
+     * Test malformed digest.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testMalformedByteArray() {
+        byte[] bytes = new TDigest().toByteArray();
+        TDigest.fromByteArray(Arrays.copyOf(bytes, bytes.length + 8));
+    }
+
+    /**
+     * Test a malformed digest passed to the in-place add.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testMalformedAddByteArray() {
+        byte[] bytes = new TDigest().toByteArray();
+        TDigest.add(Arrays.copyOf(bytes, bytes.length + 8), 1);
+    }
+
+    /**
+     * Test non-finite value.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testNaN() {
+        new TDigest().add(Double.NaN);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * This code was written by Bear Giles <bgiles@coyotesong.com>and he
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Any contributions made by others are licensed to this project under
+ * one or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ * Copyright (c) 2012 Bear Giles <bgiles@coyotesong.com>
+ */
+package com.invariantproperties.udt.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.invariantproperties.udt.ComplexFFT;
+import com.invariantproperties.udt.ComplexVector;
+
+/**
+ * Compare the radix-2 and Bluestein transforms with a direct DFT.
+ * 
+ * @author bgiles@coyotesong.com
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComplexFFTBenchmark {
+
+    @Param({ "1024", "1000" })
+    private int size;
+
+    private ComplexVector x;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(12345);
+        x = new ComplexVector(size);
+        for (int i = 0; i < size; i++) {
+            x.set(i, random.nextGaussian(), random.nextGaussian());
+        }
+    }
+
+    @Benchmark
+    public ComplexVector fft() {
+        return ComplexFFT.fft(x);
+    }
+
+    @Benchmark
+    public ComplexVector dft() {
+        int n = x.size();
+        ComplexVector r = new ComplexVector(n);
+        for (int k = 0; k < n; k++) {
+            double re = 0;
+            double im = 0;
+            for (int j = 0; j < n; j++) {
+                double theta = -2 * Math.PI * ((long) j * k % n) / n;
+                double c = Math.cos(theta);
+                double s = Math.sin(theta);
+                re += x.getReal(j) * c - x.getImaginary(j) * s;
+                im += x.getReal(j) * s + x.getImaginary(j) * c;
+            }
+            r.set(k, re, im);
+        }
+        return r;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder().include(
+                ComplexFFTBenchmark.class.getSimpleName()).build();
+        new Runner(options).run();
+    }
+}
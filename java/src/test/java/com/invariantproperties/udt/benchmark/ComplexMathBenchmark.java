@@ -0,0 +1,154 @@
+/*
+ * This code was written by Bear Giles <bgiles@coyotesong.com>and he
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Any contributions made by others are licensed to this project under
+ * one or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ * Copyright (c) 2012 Bear Giles <bgiles@coyotesong.com>
+ */
+package com.invariantproperties.udt.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.invariantproperties.udt.Complex;
+
+/**
+ * Compare Complex division, magnitude and approximate equality against the
+ * original implementations. Scores are per operation.
+ * 
+ * @author bgiles@coyotesong.com
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComplexMathBenchmark {
+    private static final int SIZE = 1024;
+
+    private Complex[] values;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(12345);
+        values = new Complex[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            values[i] = new Complex(random.nextGaussian(),
+                    random.nextGaussian());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE - 1)
+    public void divide(Blackhole bh) {
+        for (int i = 1; i < SIZE; i++) {
+            bh.consume(values[i - 1].divide(values[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE - 1)
+    public void divideOriginal(Blackhole bh) {
+        for (int i = 1; i < SIZE; i++) {
+            bh.consume(values[i - 1].multiply(invertOriginal(values[i])));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public void magnitude(Blackhole bh) {
+        for (int i = 0; i < SIZE; i++) {
+            bh.consume(values[i].getMagnitude());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public void magnitudeOriginal(Blackhole bh) {
+        for (int i = 0; i < SIZE; i++) {
+            Complex c = values[i];
+            bh.consume(Math.sqrt(Math.abs(c.multiply(c.getConjugate()).Re())));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE - 1)
+    public void equalsEpsilon(Blackhole bh) {
+        for (int i = 1; i < SIZE; i++) {
+            bh.consume(values[i - 1].equals(values[i], 0.5));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE - 1)
+    public void equalsEpsilonOriginal(Blackhole bh) {
+        for (int i = 1; i < SIZE; i++) {
+            Complex d = values[i - 1].subtract(values[i]);
+            bh.consume(Math.sqrt(Math.abs(d.multiply(d.getConjugate()).Re()))
+                    <= 0.5);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public void exp(Blackhole bh) {
+        for (int i = 0; i < SIZE; i++) {
+            bh.consume(values[i].exp());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public void sqrt(Blackhole bh) {
+        for (int i = 0; i < SIZE; i++) {
+            bh.consume(values[i].sqrt());
+        }
+    }
+
+    /**
+     * The original Complex.invert() implementation.
+     */
+    static Complex invertOriginal(Complex p) {
+        double det = p.Re() * p.Re() + p.Im() * p.Im();
+        return new Complex(p.Re() / det, -p.Im() / det);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder().include(
+                ComplexMathBenchmark.class.getSimpleName()).build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * This code was written by Bear Giles <bgiles@coyotesong.com>and he
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Any contributions made by others are licensed to this project under
+ * one or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ * Copyright (c) 2012 Bear Giles <bgiles@coyotesong.com>
+ */
+package com.invariantproperties.udt.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.invariantproperties.udt.Complex;
+import com.invariantproperties.udt.ComplexVector;
+
+/**
+ * Compare the per-element cost of ComplexVector kernels with the equivalent
+ * loops over Complex objects. Scores are per element.
+ * 
+ * @author bgiles@coyotesong.com
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComplexVectorBenchmark {
+    private static final int SIZE = 4096;
+
+    private Complex[] p;
+    private Complex[] q;
+    private ComplexVector vp;
+    private ComplexVector vq;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(12345);
+        p = new Complex[SIZE];
+        q = new Complex[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            p[i] = new Complex(random.nextGaussian(), random.nextGaussian());
+            q[i] = new Complex(random.nextGaussian(), random.nextGaussian());
+        }
+        vp = new ComplexVector(p);
+        vq = new ComplexVector(q);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public Complex[] addScalar() {
+        Complex[] r = new Complex[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            r[i] = p[i].add(q[i]);
+        }
+        return r;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public ComplexVector addVector() {
+        return vp.add(vq);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public Complex[] multiplyScalar() {
+        Complex[] r = new Complex[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            r[i] = p[i].multiply(q[i]);
+        }
+        return r;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public ComplexVector multiplyVector() {
+        return vp.multiply(vq);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public double[] magnitudeScalar() {
+        double[] r = new double[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            r[i] = p[i].getMagnitude();
+        }
+        return r;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public double[] magnitudeVector() {
+        return vp.magnitude();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public Complex dotScalar() {
+        Complex sum = Complex.ZERO;
+        for (int i = 0; i < SIZE; i++) {
+            sum = sum.add(p[i].multiply(q[i]));
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public Complex dotVector() {
+        return vp.dot(vq);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public double normScalar() {
+        double sum = 0;
+        for (int i = 0; i < SIZE; i++) {
+            double m = p[i].getMagnitude();
+            sum += m * m;
+        }
+        return Math.sqrt(sum);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public double normVector() {
+        return vp.norm();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder().include(
+                ComplexVectorBenchmark.class.getSimpleName()).build();
+        new Runner(options).run();
+    }
+}
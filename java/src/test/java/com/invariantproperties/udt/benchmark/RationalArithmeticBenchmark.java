@@ -0,0 +1,197 @@
+/*
+ * This code was written by Bear Giles <bgiles@coyotesong.com>and he
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Any contributions made by others are licensed to this project under
+ * one or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ * Copyright (c) 2012 Bear Giles <bgiles@coyotesong.com>
+ */
+package com.invariantproperties.udt.benchmark;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.invariantproperties.udt.BigRational;
+import com.invariantproperties.udt.Rational;
+import com.invariantproperties.udt.RationalAccumulator;
+
+/**
+ * Compare Rational arithmetic against the original BigInteger
+ * implementation.
+ * 
+ * @author bgiles@coyotesong.com
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RationalArithmeticBenchmark {
+    private static final int SIZE = 1024;
+
+    private Rational[] values;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(12345);
+        values = new Rational[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            values[i] = new Rational(random.nextInt(20001) - 10000,
+                    1 + random.nextInt(1000));
+        }
+    }
+
+    @Benchmark
+    public void add(Blackhole bh) {
+        for (int i = 1; i < SIZE; i++) {
+            bh.consume(values[i - 1].add(values[i]));
+        }
+    }
+
+    @Benchmark
+    public void addBigInteger(Blackhole bh) {
+        for (int i = 1; i < SIZE; i++) {
+            bh.consume(addBigInteger(values[i - 1], values[i]));
+        }
+    }
+
+    @Benchmark
+    public void multiply(Blackhole bh) {
+        for (int i = 1; i < SIZE; i++) {
+            bh.consume(values[i - 1].multiply(values[i]));
+        }
+    }
+
+    @Benchmark
+    public void multiplyBigInteger(Blackhole bh) {
+        for (int i = 1; i < SIZE; i++) {
+            bh.consume(multiplyBigInteger(values[i - 1], values[i]));
+        }
+    }
+
+    @Benchmark
+    public void compareTo(Blackhole bh) {
+        for (int i = 1; i < SIZE; i++) {
+            bh.consume(values[i - 1].compareTo(values[i]));
+        }
+    }
+
+    @Benchmark
+    public void compareToBigInteger(Blackhole bh) {
+        for (int i = 1; i < SIZE; i++) {
+            bh.consume(compareToBigInteger(values[i - 1], values[i]));
+        }
+    }
+
+    @Benchmark
+    public Rational sum() {
+        Rational sum = Rational.valueOf(0);
+        for (int i = 0; i < SIZE; i++) {
+            sum = sum.add(values[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public BigRational sumAccumulator() {
+        RationalAccumulator acc = new RationalAccumulator();
+        for (int i = 0; i < SIZE; i++) {
+            acc.add(values[i]);
+        }
+        return acc.getSum();
+    }
+
+    /**
+     * The sum aggregate's per-row work: decode the state, add, encode.
+     */
+    @Benchmark
+    public BigRational sumAggregate() {
+        byte[] state = new RationalAccumulator().toByteArray();
+        for (int i = 0; i < SIZE; i++) {
+            RationalAccumulator acc = RationalAccumulator.fromByteArray(state);
+            acc.add(values[i]);
+            state = acc.toByteArray();
+        }
+        return RationalAccumulator.fromByteArray(state).getSum();
+    }
+
+    /**
+     * The original Rational.add() implementation.
+     */
+    static Rational addBigInteger(Rational p, Rational q) {
+        BigInteger n = BigInteger
+                .valueOf(p.getNumerator())
+                .multiply(BigInteger.valueOf(q.getDenominator()))
+                .add(BigInteger.valueOf(q.getNumerator()).multiply(
+                        BigInteger.valueOf(p.getDenominator())));
+        BigInteger d = BigInteger.valueOf(p.getDenominator()).multiply(
+                BigInteger.valueOf(q.getDenominator()));
+        BigInteger gcd = n.gcd(d);
+        n = n.divide(gcd);
+        d = d.divide(gcd);
+        return new Rational(n.longValue(), d.longValue());
+    }
+
+    /**
+     * The original Rational.multiply() implementation.
+     */
+    static Rational multiplyBigInteger(Rational p, Rational q) {
+        BigInteger n = BigInteger.valueOf(p.getNumerator()).multiply(
+                BigInteger.valueOf(q.getNumerator()));
+        BigInteger d = BigInteger.valueOf(p.getDenominator()).multiply(
+                BigInteger.valueOf(q.getDenominator()));
+        BigInteger gcd = n.gcd(d);
+        n = n.divide(gcd);
+        d = d.divide(gcd);
+        return new Rational(n.longValue(), d.longValue());
+    }
+
+    /**
+     * The original Rational.compareTo() implementation.
+     */
+    static int compareToBigInteger(Rational p, Rational q) {
+        BigInteger l = BigInteger.valueOf(p.getNumerator()).multiply(
+                BigInteger.valueOf(q.getDenominator()));
+        BigInteger r = BigInteger.valueOf(q.getNumerator()).multiply(
+                BigInteger.valueOf(p.getDenominator()));
+        return l.compareTo(r);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder().include(
+                RationalArithmeticBenchmark.class.getSimpleName()).build();
+        new Runner(options).run();
+    }
+}
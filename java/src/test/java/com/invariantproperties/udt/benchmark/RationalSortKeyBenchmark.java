@@ -0,0 +1,125 @@
+/*
+ * This code was written by Bear Giles <bgiles@coyotesong.com>and he
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Any contributions made by others are licensed to this project under
+ * one or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ * Copyright (c) 2012 Bear Giles <bgiles@coyotesong.com>
+ */
+package com.invariantproperties.udt.benchmark;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.invariantproperties.udt.Rational;
+import com.invariantproperties.udt.RationalSortKey;
+
+/**
+ * Compare sorting Rational values, as an index build on rational_ops does,
+ * against encoding them with rational_sortkey() and sorting the keys with
+ * memcmp(), as an index build on the bytea expression does.
+ * 
+ * This measures the Java side only. In the database the sort key build also
+ * saves a call into PL/Java for every comparison, which dominates.
+ * 
+ * @author bgiles@coyotesong.com
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RationalSortKeyBenchmark {
+    private static final int SIZE = 10000;
+
+    private static final Comparator<byte[]> MEMCMP = new Comparator<byte[]>() {
+        @Override
+        public int compare(byte[] p, byte[] q) {
+            int len = Math.min(p.length, q.length);
+            for (int i = 0; i < len; i++) {
+                int c = (p[i] & 0xFF) - (q[i] & 0xFF);
+                if (c != 0) {
+                    return c;
+                }
+            }
+            return p.length - q.length;
+        }
+    };
+
+    private Rational[] values;
+    private byte[][] keys;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(12345);
+        values = new Rational[SIZE];
+        keys = new byte[SIZE][];
+        for (int i = 0; i < SIZE; i++) {
+            values[i] = new Rational(random.nextInt(2000001) - 1000000,
+                    1 + random.nextInt(10000));
+            keys[i] = RationalSortKey.encode(values[i]);
+        }
+    }
+
+    @Benchmark
+    public Rational[] sortRational() {
+        Rational[] copy = values.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    @Benchmark
+    public byte[][] sortKeys() {
+        byte[][] copy = keys.clone();
+        Arrays.sort(copy, MEMCMP);
+        return copy;
+    }
+
+    @Benchmark
+    public byte[][] encodeAndSortKeys() {
+        byte[][] copy = new byte[SIZE][];
+        for (int i = 0; i < SIZE; i++) {
+            copy[i] = RationalSortKey.encode(values[i]);
+        }
+        Arrays.sort(copy, MEMCMP);
+        return copy;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder().include(
+                RationalSortKeyBenchmark.class.getSimpleName()).build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * This code was written by Bear Giles <bgiles@coyotesong.com>and he
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Any contributions made by others are licensed to this project under
+ * one or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ * Copyright (c) 2012 Bear Giles <bgiles@coyotesong.com>
+ */
+package com.invariantproperties.udt.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.invariantproperties.udt.Rational;
+import com.invariantproperties.udt.sql.CompactRationalUDT;
+
+/**
+ * Compare the storage size of the fixed 16-byte rational format with the
+ * varint rational_compact format on generated data, and measure the cost of
+ * encoding and decoding the compact format.
+ * 
+ * The sizes are printed by main() before the benchmarks are run.
+ * 
+ * @author bgiles@coyotesong.com
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RationalStorageBenchmark {
+    private static final int SIZE = 1024;
+
+    /** fixed internallength, int aligned */
+    private static final int FIXED_LENGTH = 16;
+
+    /** short varlena header */
+    private static final int VARLENA_HEADER = 1;
+
+    @Param({ "integers", "cents", "fractions", "random" })
+    public String distribution;
+
+    private Rational[] values;
+    private byte[][] encoded;
+    private byte[] buffer = new byte[CompactRationalUDT.MAX_LENGTH];
+
+    @Setup
+    public void setup() {
+        values = generate(distribution, SIZE);
+        encoded = new byte[SIZE][];
+        for (int i = 0; i < SIZE; i++) {
+            int len = CompactRationalUDT.encode(values[i], buffer, 0);
+            encoded[i] = Arrays.copyOf(buffer, len);
+        }
+    }
+
+    /**
+     * Generate test data. 'integers' are counts, 'cents' are prices with a
+     * denominator of 100, 'fractions' have small denominators and 'random'
+     * are arbitrary 64-bit values.
+     */
+    static Rational[] generate(String distribution, int size) {
+        Random random = new Random(12345);
+        Rational[] values = new Rational[size];
+        for (int i = 0; i < size; i++) {
+            if ("integers".equals(distribution)) {
+                values[i] = Rational.valueOf(random.nextInt(10000));
+            } else if ("cents".equals(distribution)) {
+                values[i] = Rational.valueOf(random.nextInt(1000000), 100);
+            } else if ("fractions".equals(distribution)) {
+                values[i] = Rational.valueOf(random.nextInt(201) - 100,
+                        1 + random.nextInt(16));
+            } else {
+                values[i] = Rational.valueOf(random.nextLong(),
+                        1 + (random.nextLong() >>> 1));
+            }
+        }
+        return values;
+    }
+
+    @Benchmark
+    public void encode(Blackhole bh) {
+        for (int i = 0; i < SIZE; i++) {
+            bh.consume(CompactRationalUDT.encode(values[i], buffer, 0));
+        }
+    }
+
+    @Benchmark
+    public void decode(Blackhole bh) {
+        for (int i = 0; i < SIZE; i++) {
+            byte[] b = encoded[i];
+            bh.consume(CompactRationalUDT.decode(b, 0, b.length));
+        }
+    }
+
+    /**
+     * Print the average stored size of each distribution.
+     */
+    static void printStorageSizes() {
+        byte[] buffer = new byte[CompactRationalUDT.MAX_LENGTH];
+        System.out.println("distribution  rational  rational_compact");
+        for (String distribution : new String[] { "integers", "cents",
+                "fractions", "random" }) {
+            Rational[] values = generate(distribution, 100000);
+            long total = 0;
+            for (Rational r : values) {
+                total += VARLENA_HEADER
+                        + CompactRationalUDT.encode(r, buffer, 0);
+            }
+            System.out.printf("%-12s  %8d  %16.2f%n", distribution,
+                    FIXED_LENGTH, ((double) total) / values.length);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        printStorageSizes();
+        Options options = new OptionsBuilder().include(
+                RationalStorageBenchmark.class.getSimpleName()).build();
+        new Runner(options).run();
+    }
+}
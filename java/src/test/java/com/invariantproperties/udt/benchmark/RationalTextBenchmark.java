@@ -0,0 +1,140 @@
+/*
+ * This code was written by Bear Giles <bgiles@coyotesong.com>and he
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Any contributions made by others are licensed to this project under
+ * one or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ * Copyright (c) 2012 Bear Giles <bgiles@coyotesong.com>
+ */
+package com.invariantproperties.udt.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.invariantproperties.udt.Rational;
+
+/**
+ * Compare Rational text input and output against the original regex and
+ * String.format() implementations on a COPY-sized batch of values.
+ * 
+ * @author bgiles@coyotesong.com
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RationalTextBenchmark {
+    private static final int SIZE = 10000;
+
+    private Rational[] values;
+    private String[] text;
+    private StringBuilder buffer = new StringBuilder(41);
+
+    @Setup
+    public void setup() {
+        Random random = new Random(12345);
+        values = new Rational[SIZE];
+        text = new String[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            values[i] = new Rational(random.nextLong() % 1000000000L,
+                    1 + random.nextInt(1000000));
+            text[i] = values[i].toString();
+        }
+    }
+
+    @Benchmark
+    public void parse(Blackhole bh) {
+        for (int i = 0; i < SIZE; i++) {
+            bh.consume(Rational.parse(text[i]));
+        }
+    }
+
+    @Benchmark
+    public void parseRegex(Blackhole bh) {
+        for (int i = 0; i < SIZE; i++) {
+            bh.consume(parseRegex(text[i]));
+        }
+    }
+
+    @Benchmark
+    public void format(Blackhole bh) {
+        for (int i = 0; i < SIZE; i++) {
+            buffer.setLength(0);
+            bh.consume(values[i].appendTo(buffer).toString());
+        }
+    }
+
+    @Benchmark
+    public void formatString(Blackhole bh) {
+        for (int i = 0; i < SIZE; i++) {
+            bh.consume(formatString(values[i]));
+        }
+    }
+
+    /**
+     * The original Rational.parse() implementation.
+     */
+    static Rational parseRegex(String input) {
+        Pattern pattern = Pattern.compile("(-?[0-9]+)( */ *(-?[0-9]+))?");
+        Matcher matcher = pattern.matcher(input);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException(
+                    "Unable to parse rational from string \"" + input + '"');
+        }
+        if (matcher.group(3) == null) {
+            return new Rational(Long.parseLong(matcher.group(1)));
+        }
+        return new Rational(Long.parseLong(matcher.group(1)),
+                Long.parseLong(matcher.group(3)));
+    }
+
+    /**
+     * The original Rational.toString() implementation.
+     */
+    static String formatString(Rational p) {
+        if (p.getDenominator() == 1) {
+            return String.valueOf(p.getNumerator());
+        }
+        return String.format("%d/%d", p.getNumerator(), p.getDenominator());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder().include(
+                RationalTextBenchmark.class.getSimpleName()).build();
+        new Runner(options).run();
+    }
+}
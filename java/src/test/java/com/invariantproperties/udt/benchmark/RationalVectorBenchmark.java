@@ -0,0 +1,168 @@
+/*
+ * This code was written by Bear Giles <bgiles@coyotesong.com>and he
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Any contributions made by others are licensed to this project under
+ * one or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ * Copyright (c) 2012 Bear Giles <bgiles@coyotesong.com>
+ */
+package com.invariantproperties.udt.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.invariantproperties.udt.BigRational;
+import com.invariantproperties.udt.Rational;
+import com.invariantproperties.udt.RationalAccumulator;
+import com.invariantproperties.udt.RationalVector;
+
+/**
+ * Compare the per-element cost of RationalVector kernels with the equivalent
+ * loops over Rational objects. Scores are per element.
+ * 
+ * @author bgiles@coyotesong.com
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RationalVectorBenchmark {
+    private static final int SIZE = 4096;
+
+    private Rational[] p;
+    private Rational[] q;
+    private RationalVector vp;
+    private RationalVector vq;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(12345);
+        p = new Rational[SIZE];
+        q = new Rational[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            p[i] = new Rational(random.nextInt(20001) - 10000,
+                    1 + random.nextInt(1000));
+            q[i] = new Rational(random.nextInt(20001) - 10000,
+                    1 + random.nextInt(1000));
+        }
+        vp = new RationalVector(p);
+        vq = new RationalVector(q);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public Rational[] addScalar() {
+        Rational[] r = new Rational[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            r[i] = p[i].add(q[i]);
+        }
+        return r;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public RationalVector addVector() {
+        return vp.add(vq);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public Rational[] multiplyScalar() {
+        Rational[] r = new Rational[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            r[i] = p[i].multiply(q[i]);
+        }
+        return r;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public RationalVector multiplyVector() {
+        return vp.multiply(vq);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public BigRational sumScalar() {
+        RationalAccumulator acc = new RationalAccumulator();
+        for (int i = 0; i < SIZE; i++) {
+            acc.add(p[i]);
+        }
+        return acc.getSum();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public BigRational sumVector() {
+        return vp.sum();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public Rational[] sortScalar() {
+        Rational[] r = p.clone();
+        Arrays.sort(r);
+        return r;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public RationalVector sortVector() {
+        RationalVector r = new RationalVector(vp);
+        r.sort();
+        return r;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public Rational medianScalar() {
+        Rational[] r = p.clone();
+        Arrays.sort(r);
+        return r[(SIZE - 1) / 2];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public Rational medianVector() {
+        return new RationalVector(vp).select((SIZE - 1) / 2);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder().include(
+                RationalVectorBenchmark.class.getSimpleName()).build();
+        new Runner(options).run();
+    }
+}
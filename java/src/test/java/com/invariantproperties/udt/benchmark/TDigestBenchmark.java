@@ -0,0 +1,109 @@
+/*
+ * This code was written by Bear Giles <bgiles@coyotesong.com>and he
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Any contributions made by others are licensed to this project under
+ * one or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ * Copyright (c) 2012 Bear Giles <bgiles@coyotesong.com>
+ */
+package com.invariantproperties.udt.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.invariantproperties.udt.TDigest;
+
+/**
+ * Compare the per-row cost of the tdigest aggregate transition function
+ * when the encoded state is decoded, updated and encoded again with the cost
+ * when the value is appended to the encoded state in place. Both start from
+ * a digest of many values, so the state holds a realistic number of
+ * centroids. Scores are per row.
+ * 
+ * @author bgiles@coyotesong.com
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TDigestBenchmark {
+    private static final int SIZE = 4096;
+
+    private double[] values;
+    private byte[] state;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(12345);
+        TDigest digest = new TDigest();
+        for (int i = 0; i < 100000; i++) {
+            digest.add(random.nextGaussian());
+        }
+        digest.compress();
+        state = digest.toByteArray();
+        values = new double[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            values[i] = random.nextGaussian();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public byte[] addDecoded() {
+        byte[] s = state.clone();
+        for (int i = 0; i < SIZE; i++) {
+            TDigest digest = TDigest.fromByteArray(s);
+            digest.add(values[i]);
+            s = digest.toByteArray();
+        }
+        return s;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public byte[] addInPlace() {
+        byte[] s = state.clone();
+        for (int i = 0; i < SIZE; i++) {
+            s = TDigest.add(s, values[i]);
+        }
+        return s;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder().include(
+                TDigestBenchmark.class.getSimpleName()).build();
+        new Runner(options).run();
+    }
+}